@@ -2,6 +2,8 @@ package se.bjurr.prnfb.http;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.slf4j.LoggerFactory.getLogger;
+import static se.bjurr.prnfb.jfr.PrnfbFlightRecorder.beginHttpInvoke;
+import static se.bjurr.prnfb.jfr.PrnfbFlightRecorder.endHttpInvoke;
 
 import com.atlassian.event.api.EventListener;
 import com.atlassian.plugin.event.events.PluginDisablingEvent;
@@ -32,7 +34,6 @@ import org.apache.http.conn.socket.ConnectionSocketFactory;
 import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.impl.client.BasicCredentialsProvider;
-import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.ProxyAuthenticationStrategy;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
@@ -41,13 +42,14 @@ import org.apache.http.ssl.SSLContexts;
 import org.apache.http.ssl.TrustStrategy;
 import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
+import se.bjurr.prnfb.jfr.PrnfbRecording;
 
 @ExportAsService({HttpUtil.class})
 @Named("PRNotifier_HttpUtil")
 public class HttpUtil implements LifecycleAware {
   private static final Logger LOG = getLogger(HttpUtil.class);
-  private static volatile CloseableHttpClient main = null;
-  private static final Map<HttpHost, CloseableHttpClient> proxies = new ConcurrentHashMap<>();
+  private static volatile PooledHttpClient main = null;
+  private static volatile Map<HttpHost, PooledHttpClient> proxies = new ConcurrentHashMap<>();
 
   public HttpUtil() {}
 
@@ -56,47 +58,61 @@ public class HttpUtil implements LifecycleAware {
   public static final TreeMap<Long, String[]> LAST_25_ERRORS = new TreeMap<>();
   public static final TreeMap<Long, String[]> LAST_25_IN_FLIGHT = new TreeMap<>();
 
+  /**
+   * Replaces the cached clients. New requests get new clients, the replaced clients are closed when
+   * the requests using them are done.
+   */
   public static void reset() {
-    if (main != null) {
-      try {
-        main.close();
-      } catch (Throwable t) {
-        // swallow
-      }
+    final PooledHttpClient replacedMain;
+    final Map<HttpHost, PooledHttpClient> replacedProxies;
+    synchronized (HttpUtil.class) {
+      replacedMain = main;
+      replacedProxies = proxies;
       main = null;
+      proxies = new ConcurrentHashMap<>();
     }
-    for (CloseableHttpClient c : proxies.values()) {
-      if (c != null) {
-        try {
-          c.close();
-        } catch (Throwable t) {
-          // swallow
-        }
-      }
+    if (replacedMain != null) {
+      replacedMain.retire();
+    }
+    for (PooledHttpClient c : replacedProxies.values()) {
+      c.retire();
     }
-    proxies.clear();
   }
 
-  private static CloseableHttpClient getCachedClient(final UrlInvoker u, final HttpHost h) {
-    CloseableHttpClient client;
-    if (h != null) {
-      // proxy=true
-      client = proxies.get(h);
-      if (client == null) {
-        HttpClientBuilder builder = HttpClientBuilder.create();
-        configureSsl(u, builder, true);
-        configureForProxy(u, h, builder);
-        client = builder.build();
-        proxies.put(h, client);
+  private static PooledHttpClient acquireClient(final UrlInvoker u, final HttpHost h) {
+    while (true) {
+      final PooledHttpClient client = getCachedClient(u, h);
+      if (client.acquire()) {
+        return client;
       }
-    } else {
-      // proxy=false
-      client = main;
-      if (client == null) {
-        HttpClientBuilder builder = HttpClientBuilder.create();
-        configureSsl(u, builder, false);
-        client = builder.build();
-        main = client;
+    }
+  }
+
+  private static PooledHttpClient getCachedClient(final UrlInvoker u, final HttpHost h) {
+    PooledHttpClient client = h != null ? proxies.get(h) : main;
+    if (client != null) {
+      return client;
+    }
+    synchronized (HttpUtil.class) {
+      if (h != null) {
+        // proxy=true
+        client = proxies.get(h);
+        if (client == null) {
+          HttpClientBuilder builder = HttpClientBuilder.create();
+          configureSsl(u, builder, true);
+          configureForProxy(u, h, builder);
+          client = new PooledHttpClient(builder.build());
+          proxies.put(h, client);
+        }
+      } else {
+        // proxy=false
+        client = main;
+        if (client == null) {
+          HttpClientBuilder builder = HttpClientBuilder.create();
+          configureSsl(u, builder, false);
+          client = new PooledHttpClient(builder.build());
+          main = client;
+        }
       }
     }
     return client;
@@ -105,13 +121,14 @@ public class HttpUtil implements LifecycleAware {
   public static HttpResponse doInvoke(final UrlInvoker u, final HttpRequestBase httpRequestBase) {
     SimpleDateFormat df = new SimpleDateFormat("YYYY-MM-dd'T'HH:mm:ss.SSSZ");
     HttpHost h = u.getHttpHostForProxy();
-    CloseableHttpClient client = getCachedClient(u, h);
+    PooledHttpClient client = acquireClient(u, h);
     CloseableHttpResponse httpResponse = null;
     long contentLength = -1;
     if (httpRequestBase instanceof HttpEntityEnclosingRequestBase) {
       HttpEntityEnclosingRequestBase b = (HttpEntityEnclosingRequestBase) httpRequestBase;
       contentLength = b.getEntity().getContentLength();
     }
+    final PrnfbRecording recording = beginHttpInvoke();
     long start = System.currentTimeMillis();
     Date d = new Date(start);
     final URI uri = httpRequestBase.getURI();
@@ -130,7 +147,7 @@ public class HttpUtil implements LifecycleAware {
     put(LAST_25_IN_FLIGHT, start, forLog);
     long delay = -1;
     try {
-      httpResponse = client.execute(httpRequestBase);
+      httpResponse = client.getClient().execute(httpRequestBase);
       delay = System.currentTimeMillis() - start;
       forLog[1] = delay + "ms";
       final int statusCode = httpResponse.getStatusLine().getStatusCode();
@@ -148,6 +165,17 @@ public class HttpUtil implements LifecycleAware {
       } else {
         put(LAST_25_FAILURES, start, forLog);
       }
+      endHttpInvoke(
+          recording,
+          u.getNotificationUuid().orElse(null),
+          u.getPullRequestId().orElse(null),
+          httpRequestBase.getMethod(),
+          uri,
+          h,
+          contentLength,
+          statusCode,
+          entityString,
+          null);
       return new HttpResponse(uri, statusCode, entityString);
 
     } catch (final Exception e) {
@@ -159,6 +187,17 @@ public class HttpUtil implements LifecycleAware {
       forLog[8] = e.toString();
 
       put(LAST_25_ERRORS, start, forLog);
+      endHttpInvoke(
+          recording,
+          u.getNotificationUuid().orElse(null),
+          u.getPullRequestId().orElse(null),
+          httpRequestBase.getMethod(),
+          uri,
+          h,
+          contentLength,
+          -1,
+          null,
+          e);
       LOG.error("PR-Notifier-HTTP-Failure - " + e, e);
 
     } finally {
@@ -168,6 +207,8 @@ public class HttpUtil implements LifecycleAware {
         }
       } catch (final IOException e) {
         throw new RuntimeException(e);
+      } finally {
+        client.release();
       }
     }
     return null;
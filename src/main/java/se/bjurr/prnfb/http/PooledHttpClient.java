@@ -0,0 +1,64 @@
+package se.bjurr.prnfb.http;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.http.impl.client.CloseableHttpClient;
+
+/**
+ * A cached client and the number of requests using it. A retired client is closed when the last
+ * request using it is done, so that replacing clients does not abort requests in flight.
+ */
+class PooledHttpClient {
+  private static final int CLOSED = -1;
+
+  private final CloseableHttpClient client;
+  /** Requests using the client, or {@link #CLOSED}. */
+  private final AtomicInteger inFlight = new AtomicInteger();
+
+  private volatile boolean retired = false;
+
+  PooledHttpClient(CloseableHttpClient client) {
+    this.client = client;
+  }
+
+  /** Returns <code>false</code> if the client is closed and a new one must be used. */
+  boolean acquire() {
+    while (true) {
+      final int current = this.inFlight.get();
+      if (current == CLOSED) {
+        return false;
+      }
+      if (this.inFlight.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+  }
+
+  CloseableHttpClient getClient() {
+    return this.client;
+  }
+
+  boolean isClosed() {
+    return this.inFlight.get() == CLOSED;
+  }
+
+  void release() {
+    if (this.inFlight.decrementAndGet() == 0 && this.retired) {
+      closeIfIdle();
+    }
+  }
+
+  void retire() {
+    this.retired = true;
+    closeIfIdle();
+  }
+
+  private void closeIfIdle() {
+    if (this.inFlight.compareAndSet(0, CLOSED)) {
+      try {
+        this.client.close();
+      } catch (Throwable t) {
+        // swallow
+      }
+    }
+  }
+}
@@ -4,7 +4,6 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Optional.empty;
 import static java.util.Optional.ofNullable;
 import static javax.ws.rs.core.HttpHeaders.AUTHORIZATION;
-import static javax.xml.bind.DatatypeConverter.printBase64Binary;
 import static org.apache.http.HttpVersion.HTTP_1_0;
 import static org.apache.http.HttpVersion.HTTP_1_1;
 import static org.slf4j.LoggerFactory.getLogger;
@@ -17,15 +16,15 @@ import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 import org.apache.http.HttpHost;
 import org.apache.http.HttpVersion;
 import org.apache.http.ProtocolVersion;
 import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
 import org.apache.http.client.methods.HttpRequestBase;
-import org.apache.http.entity.ByteArrayEntity;
 import org.slf4j.Logger;
+import se.bjurr.prnfb.settings.PrnfbCompiledNotification;
 import se.bjurr.prnfb.settings.PrnfbHeader;
-import se.bjurr.prnfb.settings.PrnfbNotification;
 
 /**
  * If told to accept all certificates, an unsafe X509 trust manager is used.<br>
@@ -57,13 +56,16 @@ public class UrlInvoker {
 
   private ClientKeyStore clientKeyStore;
   private final List<PrnfbHeader> headers = new ArrayList<>();
+  private Optional<HttpHost> httpHostForProxy = empty();
   private HTTP_METHOD method = GET;
+  private Optional<UUID> notificationUuid = empty();
   private Optional<String> postContent = empty();
   private Optional<String> proxyHost = empty();
   private Optional<String> proxyPassword = empty();
   private Optional<Integer> proxyPort = empty();
   private Optional<String> proxySchema = empty();
   private Optional<String> proxyUser = empty();
+  private Optional<Long> pullRequestId = empty();
   private HttpResponse response;
 
   private boolean shouldAcceptAnyCertificate;
@@ -73,11 +75,9 @@ public class UrlInvoker {
 
   UrlInvoker() {}
 
-  public UrlInvoker appendBasicAuth(final PrnfbNotification notification) {
-    if (notification.getUser().isPresent() && notification.getPassword().isPresent()) {
-      final String userpass = notification.getUser().get() + ":" + notification.getPassword().get();
-      final String basicAuth = "Basic " + new String(printBase64Binary(userpass.getBytes(UTF_8)));
-      withHeader(AUTHORIZATION, basicAuth);
+  public UrlInvoker appendBasicAuth(final PrnfbCompiledNotification notification) {
+    if (notification.getBasicAuth().isPresent()) {
+      withHeader(AUTHORIZATION, notification.getBasicAuth().get());
     }
     return this;
   }
@@ -94,6 +94,10 @@ public class UrlInvoker {
     return this.method;
   }
 
+  public Optional<UUID> getNotificationUuid() {
+    return this.notificationUuid;
+  }
+
   public Optional<String> getPostContent() {
     return this.postContent;
   }
@@ -118,6 +122,10 @@ public class UrlInvoker {
     return this.proxyUser;
   }
 
+  public Optional<Long> getPullRequestId() {
+    return this.pullRequestId;
+  }
+
   public HttpResponse getResponse() {
     return this.response;
   }
@@ -184,6 +192,9 @@ public class UrlInvoker {
   }
 
   public HttpHost getHttpHostForProxy() {
+    if (this.httpHostForProxy.isPresent()) {
+      return this.httpHostForProxy.get();
+    }
     if (shouldUseProxy()) {
       return new HttpHost(
           this.proxyHost.get(), this.proxyPort.get(), this.proxySchema.orElse(null));
@@ -197,6 +208,12 @@ public class UrlInvoker {
     return this;
   }
 
+  /** A proxy created earlier, used instead of creating one from the proxy server and port. */
+  public UrlInvoker withHttpHostForProxy(final Optional<HttpHost> httpHostForProxy) {
+    this.httpHostForProxy = httpHostForProxy;
+    return this;
+  }
+
   public UrlInvoker withHeader(final String name, final String value) {
     this.headers.add(new PrnfbHeader(name, value));
     return this;
@@ -207,6 +224,11 @@ public class UrlInvoker {
     return this;
   }
 
+  public UrlInvoker withNotificationUuid(final UUID notificationUuid) {
+    this.notificationUuid = ofNullable(notificationUuid);
+    return this;
+  }
+
   public UrlInvoker withPostContent(final Optional<String> postContent) {
     this.postContent = postContent;
     return this;
@@ -237,6 +259,11 @@ public class UrlInvoker {
     return this;
   }
 
+  public UrlInvoker withPullRequestId(final Long pullRequestId) {
+    this.pullRequestId = ofNullable(pullRequestId);
+    return this;
+  }
+
   public UrlInvoker withUrlParam(final String urlParam) {
     this.urlParam = urlParam.replaceAll("\\s", "%20");
     return this;
@@ -277,7 +304,7 @@ public class UrlInvoker {
           }
         };
     if (entity != null) {
-      entityEnclosing.setEntity(new ByteArrayEntity(entity.getBytes()));
+      entityEnclosing.setEntity(new Utf8StringEntity(entity));
     }
     return entityEnclosing;
   }
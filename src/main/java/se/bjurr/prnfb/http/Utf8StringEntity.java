@@ -0,0 +1,113 @@
+package se.bjurr.prnfb.http;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import org.apache.http.entity.AbstractHttpEntity;
+
+/**
+ * A string entity that is encoded as UTF-8 while it is written, through a buffer reused by the
+ * thread. So that the content is never copied into a byte array of its own size.
+ */
+public class Utf8StringEntity extends AbstractHttpEntity {
+  static final int BUFFER_SIZE = 8192;
+
+  private static final ThreadLocal<ByteBuffer> buffers =
+      ThreadLocal.withInitial(() -> ByteBuffer.allocate(BUFFER_SIZE));
+  private static final ThreadLocal<CharsetEncoder> encoders =
+      ThreadLocal.withInitial(
+          () ->
+              UTF_8
+                  .newEncoder()
+                  .onMalformedInput(CodingErrorAction.REPLACE)
+                  .onUnmappableCharacter(CodingErrorAction.REPLACE));
+
+  /**
+   * The number of bytes of the string encoded as UTF-8. An unpaired surrogate is encoded as a
+   * replacement byte, like {@link String#getBytes(java.nio.charset.Charset)} does.
+   */
+  static long utf8Length(final CharSequence s) {
+    long length = 0;
+    final int chars = s.length();
+    for (int i = 0; i < chars; i++) {
+      final char c = s.charAt(i);
+      if (c < 0x80) {
+        length++;
+      } else if (c < 0x800) {
+        length += 2;
+      } else if (Character.isHighSurrogate(c)
+          && i + 1 < chars
+          && Character.isLowSurrogate(s.charAt(i + 1))) {
+        length += 4;
+        i++;
+      } else if (Character.isSurrogate(c)) {
+        length++;
+      } else {
+        length += 3;
+      }
+    }
+    return length;
+  }
+
+  private final String content;
+  private long contentLength = -1;
+
+  public Utf8StringEntity(final String content) {
+    this.content = content;
+  }
+
+  @Override
+  public InputStream getContent() {
+    return new ByteArrayInputStream(this.content.getBytes(UTF_8));
+  }
+
+  @Override
+  public long getContentLength() {
+    if (this.contentLength == -1) {
+      this.contentLength = utf8Length(this.content);
+    }
+    return this.contentLength;
+  }
+
+  @Override
+  public boolean isRepeatable() {
+    return true;
+  }
+
+  @Override
+  public boolean isStreaming() {
+    return false;
+  }
+
+  @Override
+  public void writeTo(final OutputStream outStream) throws IOException {
+    final ByteBuffer buffer = buffers.get();
+    final CharsetEncoder encoder = encoders.get().reset();
+    final CharBuffer chars = CharBuffer.wrap(this.content);
+    buffer.clear();
+    CoderResult result;
+    do {
+      result = encoder.encode(chars, buffer, true);
+      flush(buffer, outStream);
+    } while (result.isOverflow());
+    do {
+      result = encoder.flush(buffer);
+      flush(buffer, outStream);
+    } while (result.isOverflow());
+    outStream.flush();
+  }
+
+  private static void flush(final ByteBuffer buffer, final OutputStream outStream)
+      throws IOException {
+    outStream.write(buffer.array(), 0, buffer.position());
+    buffer.clear();
+  }
+}
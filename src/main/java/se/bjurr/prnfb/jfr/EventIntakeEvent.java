@@ -0,0 +1,22 @@
+package se.bjurr.prnfb.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("se.bjurr.prnfb.EventIntake")
+@Label("Event Intake")
+@Description("A pull request event handled by the notifier")
+final class EventIntakeEvent extends PrnfbEvent {
+  @Label("Event Type")
+  String eventType;
+
+  @Label("Notifications")
+  int notificationCount;
+
+  @Label("Variable Cache Hits")
+  int variableCacheHits;
+
+  @Label("Variable Cache Misses")
+  int variableCacheMisses;
+}
@@ -0,0 +1,34 @@
+package se.bjurr.prnfb.jfr;
+
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("se.bjurr.prnfb.HttpInvoke")
+@Label("HTTP Invoke")
+@Description("An HTTP request sent by the notifier")
+final class HttpInvokeEvent extends PrnfbEvent {
+  @Label("Method")
+  String method;
+
+  @Label("Host")
+  String host;
+
+  @Label("Proxy")
+  String proxy;
+
+  @Label("Status")
+  int status;
+
+  @Label("Request Size")
+  @DataAmount
+  long requestBytes;
+
+  @Label("Response Size")
+  @DataAmount
+  long responseBytes;
+
+  @Label("Failure")
+  String failure;
+}
@@ -0,0 +1,10 @@
+package se.bjurr.prnfb.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("se.bjurr.prnfb.InjectionUrlFetch")
+@Label("Injection URL Fetch")
+@Description("Resolving of ${INJECTION_URL_VALUE}")
+final class InjectionUrlFetchEvent extends PrnfbEvent {}
@@ -0,0 +1,16 @@
+package se.bjurr.prnfb.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("se.bjurr.prnfb.NotificationMatch")
+@Label("Notification Match")
+@Description("Evaluation of triggers, filter and merge state for a notification")
+final class NotificationMatchEvent extends PrnfbEvent {
+  @Label("Action")
+  String action;
+
+  @Label("Triggered")
+  boolean triggered;
+}
@@ -0,0 +1,16 @@
+package se.bjurr.prnfb.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+@Category({"Bitbucket", "Pull Request Notifier"})
+@StackTrace(false)
+abstract class PrnfbEvent extends Event implements PrnfbRecording {
+  @Label("Notification UUID")
+  String notificationUuid;
+
+  @Label("Pull Request ID")
+  long pullRequestId;
+}
@@ -0,0 +1,219 @@
+package se.bjurr.prnfb.jfr;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import com.atlassian.bitbucket.event.pull.PullRequestEvent;
+import com.atlassian.bitbucket.pull.PullRequest;
+import java.net.URI;
+import java.util.UUID;
+import org.apache.http.HttpHost;
+import org.slf4j.Logger;
+import se.bjurr.prnfb.listener.PrnfbPullRequestAction;
+import se.bjurr.prnfb.service.PrnfbRenderer.ENCODE_FOR;
+import se.bjurr.prnfb.service.PrnfbVariableCache;
+import se.bjurr.prnfb.settings.PrnfbNotification;
+
+/**
+ * Emits custom JDK Flight Recorder events. Disabled by default and enabled with the global
+ * setting {@link se.bjurr.prnfb.settings.PrnfbSettingsData#isFlightRecorderEnabled()}.<br>
+ * <br>
+ * Every begin method returns <code>null</code> when disabled, and every end method returns
+ * immediately when given <code>null</code>. The event classes are only loaded once recording is
+ * enabled.
+ */
+public final class PrnfbFlightRecorder {
+  private static final Logger LOG = getLogger(PrnfbFlightRecorder.class);
+  private static volatile boolean enabled = false;
+
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  public static void setEnabled(final boolean enabled) {
+    if (enabled == PrnfbFlightRecorder.enabled) {
+      return;
+    }
+    if (enabled && !isAvailable()) {
+      LOG.warn("Flight Recorder is not available in this JVM, will not emit events.");
+      return;
+    }
+    LOG.info((enabled ? "Enabling" : "Disabling") + " Flight Recorder events.");
+    PrnfbFlightRecorder.enabled = enabled;
+  }
+
+  private static boolean isAvailable() {
+    try {
+      Class.forName("jdk.jfr.Event", false, PrnfbFlightRecorder.class.getClassLoader());
+      return true;
+    } catch (final ClassNotFoundException | LinkageError e) {
+      return false;
+    }
+  }
+
+  public static PrnfbRecording beginEventIntake() {
+    if (!enabled) {
+      return null;
+    }
+    final EventIntakeEvent event = new EventIntakeEvent();
+    event.begin();
+    return event;
+  }
+
+  public static void endEventIntake(
+      final PrnfbRecording recording,
+      final PullRequestEvent pullRequestEvent,
+      final int notificationCount,
+      final PrnfbVariableCache variableCache) {
+    if (recording == null) {
+      return;
+    }
+    final EventIntakeEvent event = (EventIntakeEvent) recording;
+    event.end();
+    if (event.shouldCommit()) {
+      event.pullRequestId = pullRequestEvent.getPullRequest().getId();
+      event.eventType = pullRequestEvent.getClass().getSimpleName();
+      event.notificationCount = notificationCount;
+      event.variableCacheHits = variableCache.getHits();
+      event.variableCacheMisses = variableCache.getMisses();
+      event.commit();
+    }
+  }
+
+  public static PrnfbRecording beginNotificationMatch() {
+    if (!enabled) {
+      return null;
+    }
+    final NotificationMatchEvent event = new NotificationMatchEvent();
+    event.begin();
+    return event;
+  }
+
+  public static void endNotificationMatch(
+      final PrnfbRecording recording,
+      final PrnfbNotification notification,
+      final PullRequest pullRequest,
+      final PrnfbPullRequestAction action,
+      final boolean triggered) {
+    if (recording == null) {
+      return;
+    }
+    final NotificationMatchEvent event = (NotificationMatchEvent) recording;
+    event.end();
+    if (event.shouldCommit()) {
+      event.notificationUuid = uuidOf(notification);
+      event.pullRequestId = pullRequest.getId();
+      event.action = action == null ? null : action.name();
+      event.triggered = triggered;
+      event.commit();
+    }
+  }
+
+  public static PrnfbRecording beginRender() {
+    if (!enabled) {
+      return null;
+    }
+    final RenderEvent event = new RenderEvent();
+    event.begin();
+    return event;
+  }
+
+  public static void endRender(
+      final PrnfbRecording recording,
+      final PrnfbNotification notification,
+      final PullRequest pullRequest,
+      final ENCODE_FOR encodeFor,
+      final int variableCount) {
+    if (recording == null) {
+      return;
+    }
+    final RenderEvent event = (RenderEvent) recording;
+    event.end();
+    if (event.shouldCommit()) {
+      event.notificationUuid = uuidOf(notification);
+      event.pullRequestId = pullRequest.getId();
+      event.encoding = encodeFor == null ? null : encodeFor.name();
+      event.variableCount = variableCount;
+      event.commit();
+    }
+  }
+
+  public static PrnfbRecording beginInjectionUrlFetch() {
+    if (!enabled) {
+      return null;
+    }
+    final InjectionUrlFetchEvent event = new InjectionUrlFetchEvent();
+    event.begin();
+    return event;
+  }
+
+  public static void endInjectionUrlFetch(
+      final PrnfbRecording recording,
+      final PrnfbNotification notification,
+      final PullRequest pullRequest) {
+    if (recording == null) {
+      return;
+    }
+    final InjectionUrlFetchEvent event = (InjectionUrlFetchEvent) recording;
+    event.end();
+    if (event.shouldCommit()) {
+      event.notificationUuid = uuidOf(notification);
+      event.pullRequestId = pullRequest.getId();
+      event.commit();
+    }
+  }
+
+  public static PrnfbRecording beginHttpInvoke() {
+    if (!enabled) {
+      return null;
+    }
+    final HttpInvokeEvent event = new HttpInvokeEvent();
+    event.begin();
+    return event;
+  }
+
+  /**
+   * @param status HTTP status code, or -1 if no response was received.
+   * @param responseContent the response body, or <code>null</code> if no response was received.
+   * @param failure the exception that failed the request, or <code>null</code>.
+   */
+  public static void endHttpInvoke(
+      final PrnfbRecording recording,
+      final UUID notificationUuid,
+      final Long pullRequestId,
+      final String method,
+      final URI uri,
+      final HttpHost proxy,
+      final long requestBytes,
+      final int status,
+      final String responseContent,
+      final Exception failure) {
+    if (recording == null) {
+      return;
+    }
+    final HttpInvokeEvent event = (HttpInvokeEvent) recording;
+    event.end();
+    if (event.shouldCommit()) {
+      event.notificationUuid = notificationUuid == null ? null : notificationUuid.toString();
+      event.pullRequestId = pullRequestId == null ? -1 : pullRequestId;
+      event.method = method;
+      event.host = uri == null ? null : uri.getHost();
+      event.proxy = proxy == null ? null : proxy.toHostString();
+      event.requestBytes = requestBytes;
+      event.status = status;
+      event.responseBytes =
+          responseContent == null ? -1 : responseContent.getBytes(UTF_8).length;
+      event.failure = failure == null ? null : failure.toString();
+      event.commit();
+    }
+  }
+
+  private static String uuidOf(final PrnfbNotification notification) {
+    if (notification == null) {
+      return null;
+    }
+    return notification.getUuid().toString();
+  }
+
+  private PrnfbFlightRecorder() {}
+}
@@ -0,0 +1,7 @@
+package se.bjurr.prnfb.jfr;
+
+/**
+ * Handle to an ongoing Flight Recorder event, returned by the begin methods in {@link
+ * PrnfbFlightRecorder}. Is <code>null</code> when recording is disabled.
+ */
+public interface PrnfbRecording {}
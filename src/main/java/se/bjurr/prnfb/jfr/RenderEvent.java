@@ -0,0 +1,16 @@
+package se.bjurr.prnfb.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("se.bjurr.prnfb.Render")
+@Label("Render")
+@Description("Rendering of a template, like URL, post content or header")
+final class RenderEvent extends PrnfbEvent {
+  @Label("Encoding")
+  String encoding;
+
+  @Label("Variables")
+  int variableCount;
+}
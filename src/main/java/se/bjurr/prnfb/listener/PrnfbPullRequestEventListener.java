@@ -3,10 +3,14 @@ package se.bjurr.prnfb.listener;
 import static com.atlassian.bitbucket.permission.Permission.ADMIN;
 import static java.lang.Boolean.FALSE;
 import static java.lang.Boolean.TRUE;
-import static java.util.regex.Pattern.compile;
 import static org.slf4j.LoggerFactory.getLogger;
 import static se.bjurr.prnfb.http.UrlInvoker.urlInvoker;
+import static se.bjurr.prnfb.jfr.PrnfbFlightRecorder.beginEventIntake;
+import static se.bjurr.prnfb.jfr.PrnfbFlightRecorder.beginNotificationMatch;
+import static se.bjurr.prnfb.jfr.PrnfbFlightRecorder.endEventIntake;
+import static se.bjurr.prnfb.jfr.PrnfbFlightRecorder.endNotificationMatch;
 import static se.bjurr.prnfb.listener.PrnfbPullRequestAction.fromPullRequestEvent;
+import static se.bjurr.prnfb.service.SettingsService.getCompiledNotification;
 import static se.bjurr.prnfb.settings.TRIGGER_IF_MERGE.ALWAYS;
 import static se.bjurr.prnfb.settings.TRIGGER_IF_MERGE.CONFLICTING;
 import static se.bjurr.prnfb.settings.TRIGGER_IF_MERGE.NOT_CONFLICTING;
@@ -31,7 +35,9 @@ import com.atlassian.bitbucket.scm.ScmService;
 import com.atlassian.bitbucket.user.SecurityService;
 import com.atlassian.bitbucket.util.Operation;
 import com.atlassian.event.api.EventListener;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import org.slf4j.Logger;
 import se.bjurr.prnfb.http.ClientKeyStore;
@@ -39,12 +45,14 @@ import se.bjurr.prnfb.http.HttpResponse;
 import se.bjurr.prnfb.http.Invoker;
 import se.bjurr.prnfb.http.NotificationResponse;
 import se.bjurr.prnfb.http.UrlInvoker;
+import se.bjurr.prnfb.jfr.PrnfbRecording;
 import se.bjurr.prnfb.service.PrnfbRenderer;
 import se.bjurr.prnfb.service.PrnfbRenderer.ENCODE_FOR;
 import se.bjurr.prnfb.service.PrnfbRendererFactory;
 import se.bjurr.prnfb.service.SettingsService;
 import se.bjurr.prnfb.service.VariablesContext;
 import se.bjurr.prnfb.service.VariablesContext.VariablesContextBuilder;
+import se.bjurr.prnfb.settings.PrnfbCompiledNotification;
 import se.bjurr.prnfb.settings.PrnfbHeader;
 import se.bjurr.prnfb.settings.PrnfbNotification;
 import se.bjurr.prnfb.settings.PrnfbSettingsData;
@@ -104,38 +112,54 @@ public class PrnfbPullRequestEventListener {
       return;
     }
 
-    for (final PrnfbNotification notification : settingsService.getNotifications()) {
+    final PrnfbRecording recording = beginEventIntake();
+    final VariablesContext variables =
+        new VariablesContextBuilder() //
+            .setPullRequestEvent(pullRequestEvent) //
+            .build();
+    final List<PrnfbCompiledNotification> notifications =
+        settingsService.getCompiledNotifications();
+    for (final PrnfbCompiledNotification notification : notifications) {
       try {
-        handleEventNotification(pullRequestEvent, settings, clientKeyStore, notification);
+        handleEventNotification(
+            pullRequestEvent, settings, clientKeyStore, notification, variables);
       } catch (final Exception e) {
         LOG.error(
             "Unable to handle notification "
-                + notification.getUuid()
+                + notification.getNotification().getUuid()
                 + " "
-                + notification.getName(),
+                + notification.getNotification().getName(),
             e);
       }
     }
+    if (LOG.isDebugEnabled()) {
+      LOG.debug(
+          "Handled "
+              + pullRequestEvent.getClass().getSimpleName()
+              + " on pull request "
+              + pullRequest.getId()
+              + " with "
+              + variables.getVariableCache());
+    }
+    endEventIntake(recording, pullRequestEvent, notifications.size(), variables.getVariableCache());
   }
 
   private void handleEventNotification(
       final PullRequestEvent pullRequestEvent,
       final PrnfbSettingsData settings,
       final ClientKeyStore clientKeyStore,
-      final PrnfbNotification notification) {
-    final PrnfbPullRequestAction action = fromPullRequestEvent(pullRequestEvent, notification);
-    final VariablesContext variables =
-        new VariablesContextBuilder() //
-            .setPullRequestEvent(pullRequestEvent) //
-            .build();
+      final PrnfbCompiledNotification notification,
+      final VariablesContext variables) {
+    final PrnfbPullRequestAction action =
+        fromPullRequestEvent(pullRequestEvent, notification.getNotification());
     final PrnfbRenderer renderer =
         prnfbRendererFactory.create(
             pullRequestEvent.getPullRequest(),
             action,
-            notification,
+            notification.getNotification(),
             variables,
             pullRequestEvent.getUser());
-    notify(
+    doNotify(
         notification,
         action,
         pullRequestEvent.getPullRequest(),
@@ -168,6 +192,43 @@ public class PrnfbPullRequestEventListener {
       final PullRequest pullRequest,
       final ClientKeyStore clientKeyStore,
       final Boolean shouldAcceptAnyCertificate) {
+    return isTriggeredByAction(
+        getCompiledNotification(notification),
+        pullRequestAction,
+        renderer,
+        pullRequest,
+        clientKeyStore,
+        shouldAcceptAnyCertificate);
+  }
+
+  boolean isTriggeredByAction(
+      final PrnfbCompiledNotification notification,
+      final PrnfbPullRequestAction pullRequestAction,
+      final PrnfbRenderer renderer,
+      final PullRequest pullRequest,
+      final ClientKeyStore clientKeyStore,
+      final Boolean shouldAcceptAnyCertificate) {
+    final PrnfbRecording recording = beginNotificationMatch();
+    final boolean triggered =
+        doIsNotificationTriggeredByAction(
+            notification,
+            pullRequestAction,
+            renderer,
+            pullRequest,
+            clientKeyStore,
+            shouldAcceptAnyCertificate);
+    endNotificationMatch(
+        recording, notification.getNotification(), pullRequest, pullRequestAction, triggered);
+    return triggered;
+  }
+
+  private boolean doIsNotificationTriggeredByAction(
+      final PrnfbCompiledNotification notification,
+      final PrnfbPullRequestAction pullRequestAction,
+      final PrnfbRenderer renderer,
+      final PullRequest pullRequest,
+      final ClientKeyStore clientKeyStore,
+      final Boolean shouldAcceptAnyCertificate) {
     if (!notification.getTriggers().contains(pullRequestAction)) {
       return FALSE;
     }
@@ -192,7 +253,9 @@ public class PrnfbPullRequestEventListener {
 
     if (notification.getFilterRegexp().isPresent()
         && notification.getFilterString().isPresent()
-        && !compile(notification.getFilterRegexp().get())
+        && !notification
+            .getFilterRegexp()
+            .get()
             .matcher(
                 renderer.render(
                     notification.getFilterString().get(),
@@ -203,7 +266,7 @@ public class PrnfbPullRequestEventListener {
       return FALSE;
     }
 
-    if (notification.getTriggerIgnoreStateList().contains(pullRequest.getState())) {
+    if (notification.getTriggerIgnoreStates().contains(pullRequest.getState())) {
       return FALSE;
     }
 
@@ -234,6 +297,10 @@ public class PrnfbPullRequestEventListener {
             });
   }
 
+  /**
+   * Invokes a notification that is {@link #isNotificationTriggeredByAction triggered}. It is not
+   * evaluated again.
+   */
   public NotificationResponse notify(
       final PrnfbNotification notification,
       final PrnfbPullRequestAction pullRequestAction,
@@ -241,8 +308,43 @@ public class PrnfbPullRequestEventListener {
       final PrnfbRenderer renderer,
       final ClientKeyStore clientKeyStore,
       final Boolean shouldAcceptAnyCertificate) {
-    if (!isNotificationTriggeredByAction(
-        notification,
+    return doInvoke(
+        getCompiledNotification(notification),
+        pullRequest,
+        renderer,
+        clientKeyStore,
+        shouldAcceptAnyCertificate);
+  }
+
+  /** Like {@link #notify}, but invoked on the executor that handles pull request events. */
+  public CompletableFuture<NotificationResponse> notifyAsync(
+      final PrnfbNotification notification,
+      final PrnfbPullRequestAction pullRequestAction,
+      final PullRequest pullRequest,
+      final PrnfbRenderer renderer,
+      final ClientKeyStore clientKeyStore,
+      final Boolean shouldAcceptAnyCertificate) {
+    return CompletableFuture.supplyAsync(
+        () ->
+            notify(
+                notification,
+                pullRequestAction,
+                pullRequest,
+                renderer,
+                clientKeyStore,
+                shouldAcceptAnyCertificate),
+        executorService);
+  }
+
+  private NotificationResponse doNotify(
+      final PrnfbCompiledNotification compiled,
+      final PrnfbPullRequestAction pullRequestAction,
+      final PullRequest pullRequest,
+      final PrnfbRenderer renderer,
+      final ClientKeyStore clientKeyStore,
+      final Boolean shouldAcceptAnyCertificate) {
+    if (!isTriggeredByAction(
+        compiled,
         pullRequestAction,
         renderer,
         pullRequest,
@@ -250,7 +352,16 @@ public class PrnfbPullRequestEventListener {
         shouldAcceptAnyCertificate)) {
       return null;
     }
+    return doInvoke(compiled, pullRequest, renderer, clientKeyStore, shouldAcceptAnyCertificate);
+  }
 
+  private NotificationResponse doInvoke(
+      final PrnfbCompiledNotification compiled,
+      final PullRequest pullRequest,
+      final PrnfbRenderer renderer,
+      final ClientKeyStore clientKeyStore,
+      final Boolean shouldAcceptAnyCertificate) {
+    final PrnfbNotification notification = compiled.getNotification();
     Optional<String> postContent = Optional.empty();
     if (notification.getPostContent().isPresent()) {
       final ENCODE_FOR encodePostContentFor = notification.getPostContentEncoding();
@@ -284,7 +395,9 @@ public class PrnfbPullRequestEventListener {
             .withUrlParam(renderedUrl) //
             .withMethod(notification.getMethod()) //
             .withPostContent(postContent) //
-            .appendBasicAuth(notification);
+            .withNotificationUuid(notification.getUuid()) //
+            .withPullRequestId(pullRequest.getId()) //
+            .appendBasicAuth(compiled);
     for (final PrnfbHeader header : notification.getHeaders()) {
       urlInvoker //
           .withHeader(
@@ -301,6 +414,7 @@ public class PrnfbPullRequestEventListener {
                     .withProxySchema(notification.getProxySchema()) //
                     .withProxyUser(notification.getProxyUser()) //
                     .withProxyPassword(notification.getProxyPassword()) //
+                    .withHttpHostForProxy(compiled.getProxy()) //
                     .shouldAcceptAnyCertificate(shouldAcceptAnyCertificate) //
                     .setHttpVersion(notification.getHttpVersion()) //
                 );
@@ -1,11 +1,15 @@
 package se.bjurr.prnfb.presentation;
 
+import static java.util.function.Function.identity;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 import static javax.ws.rs.core.Response.Status.NOT_FOUND;
 import static javax.ws.rs.core.Response.Status.OK;
 import static javax.ws.rs.core.Response.Status.UNAUTHORIZED;
 import static javax.ws.rs.core.Response.ok;
 import static javax.ws.rs.core.Response.status;
+import static se.bjurr.prnfb.presentation.Ndjson.APPLICATION_NDJSON;
+import static se.bjurr.prnfb.presentation.Ndjson.readEach;
+import static se.bjurr.prnfb.presentation.Ndjson.writeEach;
 import static se.bjurr.prnfb.transformer.ButtonTransformer.toButtonDto;
 import static se.bjurr.prnfb.transformer.ButtonTransformer.toButtonDtoList;
 import static se.bjurr.prnfb.transformer.ButtonTransformer.toPrnfbButton;
@@ -13,12 +17,16 @@ import static se.bjurr.prnfb.transformer.ButtonTransformer.toTriggerResultDto;
 
 import com.atlassian.annotations.security.XsrfProtectionExcluded;
 import com.atlassian.bitbucket.project.Project;
+import com.atlassian.bitbucket.pull.PullRequest;
 import com.atlassian.bitbucket.repository.Repository;
 import com.atlassian.plugin.spring.scanner.annotation.export.ExportAsService;
 import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import javax.inject.Inject;
@@ -36,9 +44,11 @@ import javax.ws.rs.core.Context;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 import se.bjurr.prnfb.http.NotificationResponse;
+import se.bjurr.prnfb.presentation.dto.BulkResultDTO;
 import se.bjurr.prnfb.presentation.dto.ButtonDTO;
 import se.bjurr.prnfb.presentation.dto.ButtonFormElementDTO;
 import se.bjurr.prnfb.presentation.dto.ButtonPressDTO;
+import se.bjurr.prnfb.service.ButtonPressJob;
 import se.bjurr.prnfb.service.ButtonsService;
 import se.bjurr.prnfb.service.PrnfbRenderer.ENCODE_FOR;
 import se.bjurr.prnfb.service.PrnfbRendererWrapper;
@@ -46,6 +56,8 @@ import se.bjurr.prnfb.service.SettingsService;
 import se.bjurr.prnfb.service.UserCheckService;
 import se.bjurr.prnfb.settings.PrnfbButton;
 import se.bjurr.prnfb.settings.USER_LEVEL;
+import se.bjurr.prnfb.settings.ValidationException;
+import se.bjurr.prnfb.transformer.ButtonTransformer;
 
 @ExportAsService({ButtonServlet.class})
 @Named("ButtonServlet")
@@ -87,6 +99,43 @@ public class ButtonServlet {
         .build();
   }
 
+  /**
+   * Adds, or updates, the buttons of the NDJSON, one button per line, in one transaction. The
+   * result of each line is reported, and lines that are not valid are not stored.
+   */
+  @POST
+  @Path("/bulk")
+  @XsrfProtectionExcluded
+  @Consumes(APPLICATION_NDJSON)
+  @Produces(APPLICATION_NDJSON)
+  public Response createBulk(InputStream buttonDtos) {
+    final USER_LEVEL adminRestriction =
+        settingsService.getPrnfbSettingsData().getAdminRestriction();
+    final List<PrnfbButton> buttons = new ArrayList<>();
+    final List<BulkResultDTO> results =
+        readEach(
+            buttonDtos,
+            ButtonDTO.class,
+            buttonDto -> {
+              if (!userCheckService.isAdminAllowed(buttonDto, adminRestriction)) {
+                throw new ValidationException("projectKey", "Not allowed to administrate.");
+              }
+              final PrnfbButton button;
+              try {
+                button = toPrnfbButton(buttonDto);
+              } catch (final Error e) {
+                // Button forms are validated by throwing Error
+                throw new ValidationException("buttonFormList", e.getMessage());
+              }
+              buttons.add(button);
+              return button.getUuid();
+            });
+    if (!buttons.isEmpty()) {
+      settingsService.addOrUpdateButtons(buttons);
+    }
+    return ok(writeEach(results, identity()), APPLICATION_NDJSON).build();
+  }
+
   @DELETE
   @Path("{uuid}")
   @XsrfProtectionExcluded
@@ -113,6 +162,17 @@ public class ButtonServlet {
     return ok(dtos, APPLICATION_JSON).build();
   }
 
+  /** All buttons, one per line. */
+  @GET
+  @Path("/bulk")
+  @Produces(APPLICATION_NDJSON)
+  public Response getBulk() {
+    final List<PrnfbButton> buttons = settingsService.getButtons();
+    final Iterable<PrnfbButton> allowedButtons = userCheckService.filterAdminAllowed(buttons);
+    return ok(writeEach(allowedButtons, ButtonTransformer::toButtonDto), APPLICATION_NDJSON)
+        .build();
+  }
+
   public static Long parseLong(String s, long defaultVal) {
     s = s != null ? s.trim() : "";
     if ("".equals(s)) {
@@ -232,11 +292,14 @@ public class ButtonServlet {
 
   // @Path("/repository/{repositoryId}/pullrequest/{pullRequestId}")
   public Response getPullRequestButtons(Integer repositoryId, Long pullRequestId) {
-    final List<PrnfbButton> buttons = buttonsService.getButtons(repositoryId, pullRequestId);
+    final PullRequest pullRequest = buttonsService.getPullRequest(repositoryId, pullRequestId);
+    final List<PrnfbButton> buttons = buttonsService.getButtons(pullRequest);
+    final Map<UUID, PrnfbRendererWrapper> renderers =
+        buttonsService.getRenderers(pullRequest, buttons);
     final List<ButtonDTO> dtos = toButtonDtoList(buttons);
     Collections.sort(dtos);
     for (final ButtonDTO dto : dtos) {
-      renderButtonDtoList(repositoryId, pullRequestId, dto);
+      renderButtonDto(renderers.get(dto.getUuid()), dto);
     }
     return ok(dtos, APPLICATION_JSON).build();
   }
@@ -246,7 +309,10 @@ public class ButtonServlet {
   @XsrfProtectionExcluded
   @Produces(APPLICATION_JSON)
   public Response press(
-      @Context HttpServletRequest request, @Context UriInfo ui, @FormParam("form") String form) {
+      @Context HttpServletRequest request,
+      @Context UriInfo ui,
+      @FormParam("form") String form,
+      @FormParam("async") String async) {
 
     final String path = ui.getPath();
     String[] parsed = parsePath(path, "pull-requests");
@@ -261,21 +327,39 @@ public class ButtonServlet {
     Repository r = userCheckService.getRepo(project, repo);
     Integer rId = r != null ? r.getId() : null;
     Long prId = parseLong(pr, -1L);
-    final List<PrnfbButton> buttons = buttonsService.getButtons(rId, prId);
-    final Optional<PrnfbButton> button =
-        buttons.stream().filter(b -> b.getUuid().equals(u)).findAny();
+    final PullRequest pullRequest = buttonsService.getPullRequest(rId, prId);
+    final Optional<PrnfbButton> button = buttonsService.findAllowedButton(pullRequest, u);
     if (!button.isPresent()) {
       return status(NOT_FOUND).build();
     }
-    final List<NotificationResponse> results = buttonsService.handlePressed(rId, prId, u, form);
+    if ("true".equals(async)) {
+      final ButtonPressJob job = buttonsService.handlePressedAsync(pullRequest, button.get(), form);
+      return ok(toTriggerResultDto(job), APPLICATION_JSON).build();
+    }
+    final List<NotificationResponse> results =
+        buttonsService.handlePressed(pullRequest, button.get(), form);
     final ButtonPressDTO dto = toTriggerResultDto(button.get(), results);
     return ok(dto, APPLICATION_JSON).build();
   }
 
-  private void renderButtonDtoList(Integer repositoryId, Long pullRequestId, ButtonDTO dto) {
-    final PrnfbRendererWrapper renderer =
-        buttonsService.getRenderer(repositoryId, pullRequestId, dto.getUuid());
+  /**
+   * The responses of a button pressed asynchronously, so far. Only found by the user that pressed
+   * the button, on the node where it was pressed.
+   */
+  @GET
+  @Path("/job/{jobId}")
+  @Produces(APPLICATION_JSON)
+  public Response getJob(@PathParam("jobId") UUID jobId) {
+    final Optional<ButtonPressJob> job =
+        ButtonPressJob.find(jobId) //
+            .filter(userCheckService::isJobAllowed);
+    if (!job.isPresent()) {
+      return status(NOT_FOUND).build();
+    }
+    return ok(toTriggerResultDto(job.get()), APPLICATION_JSON).build();
+  }
 
+  private void renderButtonDto(PrnfbRendererWrapper renderer, ButtonDTO dto) {
     final List<ButtonFormElementDTO> buttonFormDtoList = dto.getButtonFormList();
     if (buttonFormDtoList != null) {
       for (final ButtonFormElementDTO buttonFormElementDto : buttonFormDtoList) {
@@ -14,7 +14,9 @@ import com.atlassian.sal.api.user.UserManager;
 import com.atlassian.sal.api.user.UserProfile;
 import com.atlassian.templaterenderer.TemplateRenderer;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import javax.inject.Inject;
@@ -24,6 +26,11 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import se.bjurr.prnfb.Util;
 import se.bjurr.prnfb.http.HttpUtil;
+import se.bjurr.prnfb.service.ButtonVisibilityCache;
+import se.bjurr.prnfb.service.CloneUrlCache;
+import se.bjurr.prnfb.service.InjectionUrlCache;
+import se.bjurr.prnfb.service.PrnfbVariableCache;
+import se.bjurr.prnfb.service.SettingsService;
 import se.bjurr.prnfb.service.UserCheckService;
 
 @ExportAsService({GlobalAdminServlet.class})
@@ -101,6 +108,8 @@ public class GlobalAdminServlet extends HttpServlet {
         context.put("failures", HttpUtil.LAST_25_FAILURES.values());
         context.put("errors", HttpUtil.LAST_25_ERRORS.values());
         context.put("in_flight", HttpUtil.LAST_25_IN_FLIGHT.values());
+        context.put("caches", getCacheStatistics());
+        context.put("settingsReloads", getSettingsReloadStatistics());
         response.setContentType("text/html;charset=UTF-8");
         this.renderer.render("debug.vm", context, response.getWriter());
         return;
@@ -128,6 +137,45 @@ public class GlobalAdminServlet extends HttpServlet {
     }
   }
 
+  private List<String[]> getCacheStatistics() {
+    final List<String[]> caches = new ArrayList<>();
+    caches.add(
+        new String[] {
+          "Variable resolution",
+          "" + PrnfbVariableCache.getTotalHits(),
+          "" + PrnfbVariableCache.getTotalMisses()
+        });
+    caches.add(
+        new String[] {
+          "Clone URLs", "" + CloneUrlCache.getHits(), "" + CloneUrlCache.getMisses()
+        });
+    caches.add(
+        new String[] {
+          "Injection URL responses",
+          "" + InjectionUrlCache.getHits(),
+          "" + InjectionUrlCache.getMisses()
+        });
+    caches.add(
+        new String[] {
+          "Button visibility",
+          "" + ButtonVisibilityCache.getHits(),
+          "" + ButtonVisibilityCache.getMisses()
+        });
+    return caches;
+  }
+
+  private List<String[]> getSettingsReloadStatistics() {
+    final List<String[]> reloads = new ArrayList<>();
+    reloads.add(
+        new String[] {
+          "" + SettingsService.getReloads(),
+          SettingsService.getLastReloadMillis() + "ms",
+          SettingsService.getReloadMillis() + "ms",
+          "" + SettingsService.getUnchangedVersions()
+        });
+    return reloads;
+  }
+
   private URI getUri(HttpServletRequest request) {
     StringBuffer builder = request.getRequestURL();
     if (request.getQueryString() != null) {
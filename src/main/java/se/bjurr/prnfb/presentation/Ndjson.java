@@ -0,0 +1,99 @@
+package se.bjurr.prnfb.presentation;
+
+import static com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility.ANY;
+import static com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility.NONE;
+import static com.fasterxml.jackson.databind.DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES;
+
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+import javax.ws.rs.core.StreamingOutput;
+import se.bjurr.prnfb.presentation.dto.BulkResultDTO;
+import se.bjurr.prnfb.settings.ValidationException;
+
+/**
+ * Newline delimited JSON, one object per line, for bulk import and export. Objects are read and
+ * written one at a time, the whole payload is never in memory. Fields are mapped like in the JSON
+ * of the other resources.
+ */
+class Ndjson {
+  public static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+  interface Importer<T> {
+    /** @return the UUID of the imported object. */
+    UUID accept(T dto) throws ValidationException;
+  }
+
+  private static ObjectMapper objectMapper = new ObjectMapper();
+
+  static {
+    objectMapper.registerModule(new Jdk8Module());
+    objectMapper.setVisibility(PropertyAccessor.ALL, NONE);
+    objectMapper.setVisibility(PropertyAccessor.FIELD, ANY);
+    objectMapper.disable(FAIL_ON_UNKNOWN_PROPERTIES);
+    objectMapper.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+  }
+
+  /**
+   * Reads each line of the stream and gives it to the importer. A line that can not be imported
+   * is reported in the result of that line, and the next line is read. A line that is not JSON
+   * ends reading, since the following lines can not be found.
+   */
+  static <T> List<BulkResultDTO> readEach(
+      InputStream inputStream, Class<T> type, Importer<T> importer) {
+    final List<BulkResultDTO> results = new ArrayList<>();
+    int line = 0;
+    try (JsonParser parser = objectMapper.getFactory().createParser(inputStream)) {
+      while (true) {
+        line++;
+        final JsonNode node;
+        try {
+          if (parser.nextToken() == null) {
+            break;
+          }
+          node = parser.readValueAsTree();
+        } catch (final IOException e) {
+          results.add(new BulkResultDTO(line, null, "Not valid JSON: " + e.getMessage()));
+          break;
+        }
+        try {
+          if (!node.isObject()) {
+            throw new ValidationException("line", "Not a JSON object.");
+          }
+          final UUID uuid = importer.accept(objectMapper.treeToValue(node, type));
+          results.add(new BulkResultDTO(line, uuid, null));
+        } catch (final ValidationException e) {
+          results.add(new BulkResultDTO(line, null, e.getMessage()));
+        } catch (final Exception e) {
+          results.add(new BulkResultDTO(line, null, e.toString()));
+        }
+      }
+    } catch (final IOException e) {
+      throw new RuntimeException(e);
+    }
+    return results;
+  }
+
+  /** Writes each object, transformed, on a line of its own. */
+  static <T, D> StreamingOutput writeEach(Iterable<T> objects, Function<T, D> transformer) {
+    return outputStream -> {
+      final JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream);
+      generator.setRootValueSeparator(null);
+      for (final T object : objects) {
+        objectMapper.writeValue(generator, transformer.apply(object));
+        generator.writeRaw('\n');
+      }
+      generator.flush();
+    };
+  }
+}
@@ -1,10 +1,14 @@
 package se.bjurr.prnfb.presentation;
 
+import static java.util.function.Function.identity;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 import static javax.ws.rs.core.Response.Status.OK;
 import static javax.ws.rs.core.Response.Status.UNAUTHORIZED;
 import static javax.ws.rs.core.Response.ok;
 import static javax.ws.rs.core.Response.status;
+import static se.bjurr.prnfb.presentation.Ndjson.APPLICATION_NDJSON;
+import static se.bjurr.prnfb.presentation.Ndjson.readEach;
+import static se.bjurr.prnfb.presentation.Ndjson.writeEach;
 import static se.bjurr.prnfb.transformer.NotificationTransformer.toNotificationDto;
 import static se.bjurr.prnfb.transformer.NotificationTransformer.toNotificationDtoList;
 import static se.bjurr.prnfb.transformer.NotificationTransformer.toPrnfbNotification;
@@ -12,6 +16,8 @@ import static se.bjurr.prnfb.transformer.NotificationTransformer.toPrnfbNotifica
 import com.atlassian.annotations.security.XsrfProtectionExcluded;
 import com.atlassian.plugin.spring.scanner.annotation.export.ExportAsService;
 import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
@@ -25,11 +31,14 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.Response;
+import se.bjurr.prnfb.presentation.dto.BulkResultDTO;
 import se.bjurr.prnfb.presentation.dto.NotificationDTO;
 import se.bjurr.prnfb.service.SettingsService;
 import se.bjurr.prnfb.service.UserCheckService;
 import se.bjurr.prnfb.settings.PrnfbNotification;
 import se.bjurr.prnfb.settings.USER_LEVEL;
+import se.bjurr.prnfb.settings.ValidationException;
+import se.bjurr.prnfb.transformer.NotificationTransformer;
 
 @ExportAsService({NotificationServlet.class})
 @Named("NotificationServlet")
@@ -73,6 +82,41 @@ public class NotificationServlet {
     }
   }
 
+  /**
+   * Adds, or updates, the notifications of the NDJSON, one notification per line, in one
+   * transaction. The result of each line is reported, and lines that are not valid are not stored.
+   */
+  @POST
+  @Path("/bulk")
+  @XsrfProtectionExcluded
+  @Consumes(APPLICATION_NDJSON)
+  @Produces(APPLICATION_NDJSON)
+  public Response createBulk(InputStream notificationDtos) {
+    final USER_LEVEL adminRestriction =
+        settingsService.getPrnfbSettingsData().getAdminRestriction();
+    final List<PrnfbNotification> notifications = new ArrayList<>();
+    final List<BulkResultDTO> results =
+        readEach(
+            notificationDtos,
+            NotificationDTO.class,
+            notificationDto -> {
+              if (!this.userCheckService.isAdminAllowed(notificationDto, adminRestriction)) {
+                throw new ValidationException("projectKey", "Not allowed to administrate.");
+              }
+              final PrnfbNotification notification = toPrnfbNotification(notificationDto);
+              notifications.add(notification);
+              return notification.getUuid();
+            });
+    if (!notifications.isEmpty()) {
+      try {
+        this.settingsService.addOrUpdateNotifications(notifications);
+      } catch (final ValidationException e) {
+        throw new RuntimeException(e);
+      }
+    }
+    return ok(writeEach(results, identity()), APPLICATION_NDJSON).build();
+  }
+
   @DELETE
   @Path("{uuid}")
   @XsrfProtectionExcluded
@@ -99,6 +143,20 @@ public class NotificationServlet {
     return ok(dtos).build();
   }
 
+  /** All notifications, one per line. */
+  @GET
+  @Path("/bulk")
+  @Produces(APPLICATION_NDJSON)
+  public Response getBulk() {
+    final List<PrnfbNotification> notifications = this.settingsService.getNotifications();
+    final Iterable<PrnfbNotification> notificationsFiltered =
+        userCheckService.filterAdminAllowed(notifications);
+    return ok(
+            writeEach(notificationsFiltered, NotificationTransformer::toNotificationDto),
+            APPLICATION_NDJSON)
+        .build();
+  }
+
   @GET
   @Path("/projects/{projectKey}")
   @Produces(APPLICATION_JSON)
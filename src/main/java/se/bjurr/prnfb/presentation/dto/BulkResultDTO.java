@@ -0,0 +1,47 @@
+package se.bjurr.prnfb.presentation.dto;
+
+import static javax.xml.bind.annotation.XmlAccessType.FIELD;
+
+import java.util.UUID;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/** The result of one line of a bulk import. */
+@XmlRootElement
+@XmlAccessorType(FIELD)
+public class BulkResultDTO {
+  private final String error;
+  private final int line;
+  private final UUID uuid;
+
+  public BulkResultDTO(int line, UUID uuid, String error) {
+    this.line = line;
+    this.uuid = uuid;
+    this.error = error;
+  }
+
+  /** <code>null</code> if the line was imported. */
+  public String getError() {
+    return this.error;
+  }
+
+  public int getLine() {
+    return this.line;
+  }
+
+  /** <code>null</code> if the line could not be imported. */
+  public UUID getUuid() {
+    return this.uuid;
+  }
+
+  @Override
+  public String toString() {
+    return "BulkResultDTO [line="
+        + this.line
+        + ", uuid="
+        + this.uuid
+        + ", error="
+        + this.error
+        + "]";
+  }
+}
@@ -3,6 +3,7 @@ package se.bjurr.prnfb.presentation.dto;
 import static javax.xml.bind.annotation.XmlAccessType.FIELD;
 
 import java.util.List;
+import java.util.UUID;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlRootElement;
 
@@ -10,12 +11,27 @@ import javax.xml.bind.annotation.XmlRootElement;
 @XmlAccessorType(FIELD)
 public class ButtonPressDTO {
   private final ON_OR_OFF confirmation;
+  /** If all notifications are completed. */
+  private final boolean done;
+  /** The job to poll for more responses, <code>null</code> if pressed synchronously. */
+  private final UUID jobId;
+
   private final List<NotificationResponseDTO> notificationResponses;
 
   public ButtonPressDTO(
       ON_OR_OFF confirmation, List<NotificationResponseDTO> notificationResponses) {
+    this(confirmation, notificationResponses, null, true);
+  }
+
+  public ButtonPressDTO(
+      ON_OR_OFF confirmation,
+      List<NotificationResponseDTO> notificationResponses,
+      UUID jobId,
+      boolean done) {
     this.confirmation = confirmation;
     this.notificationResponses = notificationResponses;
+    this.jobId = jobId;
+    this.done = done;
   }
 
   @Override
@@ -33,6 +49,16 @@ public class ButtonPressDTO {
     if (this.confirmation != other.confirmation) {
       return false;
     }
+    if (this.done != other.done) {
+      return false;
+    }
+    if (this.jobId == null) {
+      if (other.jobId != null) {
+        return false;
+      }
+    } else if (!this.jobId.equals(other.jobId)) {
+      return false;
+    }
     if (this.notificationResponses == null) {
       if (other.notificationResponses != null) {
         return false;
@@ -47,15 +73,25 @@ public class ButtonPressDTO {
     return this.confirmation;
   }
 
+  public UUID getJobId() {
+    return this.jobId;
+  }
+
   public List<NotificationResponseDTO> getNotificationResponses() {
     return this.notificationResponses;
   }
 
+  public boolean isDone() {
+    return this.done;
+  }
+
   @Override
   public int hashCode() {
     final int prime = 31;
     int result = 1;
     result = prime * result + ((this.confirmation == null) ? 0 : this.confirmation.hashCode());
+    result = prime * result + (this.done ? 1231 : 1237);
+    result = prime * result + ((this.jobId == null) ? 0 : this.jobId.hashCode());
     result =
         prime * result
             + ((this.notificationResponses == null) ? 0 : this.notificationResponses.hashCode());
@@ -66,6 +102,10 @@ public class ButtonPressDTO {
   public String toString() {
     return "ButtonPressDTO [confirmation="
         + this.confirmation
+        + ", done="
+        + this.done
+        + ", jobId="
+        + this.jobId
         + ", notificationResponses="
         + this.notificationResponses
         + "]";
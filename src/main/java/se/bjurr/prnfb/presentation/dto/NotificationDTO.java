@@ -15,11 +15,13 @@ import se.bjurr.prnfb.settings.TRIGGER_IF_MERGE;
 @XmlRootElement
 @XmlAccessorType(FIELD)
 public class NotificationDTO implements Comparable<NotificationDTO>, Restricted {
+  private List<String> expensiveVariables;
   private String filterRegexp;
   private String filterString;
   private List<HeaderDTO> headers;
   private String injectionUrl;
   private String injectionUrlRegexp;
+  private Integer injectionUrlCacheSeconds;
   private String variableName;
   private String variableRegex;
   private HTTP_METHOD method;
@@ -64,6 +66,13 @@ public class NotificationDTO implements Comparable<NotificationDTO>, Restricted
       return false;
     }
     final NotificationDTO other = (NotificationDTO) obj;
+    if (expensiveVariables == null) {
+      if (other.expensiveVariables != null) {
+        return false;
+      }
+    } else if (!expensiveVariables.equals(other.expensiveVariables)) {
+      return false;
+    }
     if (filterRegexp == null) {
       if (other.filterRegexp != null) {
         return false;
@@ -106,6 +115,13 @@ public class NotificationDTO implements Comparable<NotificationDTO>, Restricted
     } else if (!injectionUrlRegexp.equals(other.injectionUrlRegexp)) {
       return false;
     }
+    if (injectionUrlCacheSeconds == null) {
+      if (other.injectionUrlCacheSeconds != null) {
+        return false;
+      }
+    } else if (!injectionUrlCacheSeconds.equals(other.injectionUrlCacheSeconds)) {
+      return false;
+    }
     if (variableName == null) {
       if (other.variableName != null) {
         return false;
@@ -240,6 +256,10 @@ public class NotificationDTO implements Comparable<NotificationDTO>, Restricted
     return true;
   }
 
+  public List<String> getExpensiveVariables() {
+    return this.expensiveVariables;
+  }
+
   public String getFilterRegexp() {
     return this.filterRegexp;
   }
@@ -260,6 +280,10 @@ public class NotificationDTO implements Comparable<NotificationDTO>, Restricted
     return this.injectionUrlRegexp;
   }
 
+  public Integer getInjectionUrlCacheSeconds() {
+    return this.injectionUrlCacheSeconds;
+  }
+
   public String getVariableName() {
     return this.variableName;
   }
@@ -342,12 +366,16 @@ public class NotificationDTO implements Comparable<NotificationDTO>, Restricted
   public int hashCode() {
     final int prime = 31;
     int result = 1;
+    result = prime * result + (expensiveVariables == null ? 0 : expensiveVariables.hashCode());
     result = prime * result + (filterRegexp == null ? 0 : filterRegexp.hashCode());
     result = prime * result + (filterString == null ? 0 : filterString.hashCode());
     result = prime * result + (headers == null ? 0 : headers.hashCode());
     result = prime * result + (httpVersion == null ? 0 : httpVersion.hashCode());
     result = prime * result + (injectionUrl == null ? 0 : injectionUrl.hashCode());
     result = prime * result + (injectionUrlRegexp == null ? 0 : injectionUrlRegexp.hashCode());
+    result =
+        prime * result
+            + (injectionUrlCacheSeconds == null ? 0 : injectionUrlCacheSeconds.hashCode());
     result = prime * result + (variableName == null ? 0 : variableName.hashCode());
     result = prime * result + (variableRegex == null ? 0 : variableRegex.hashCode());
     result = prime * result + (method == null ? 0 : method.hashCode());
@@ -373,6 +401,10 @@ public class NotificationDTO implements Comparable<NotificationDTO>, Restricted
     return result;
   }
 
+  public void setExpensiveVariables(final List<String> expensiveVariables) {
+    this.expensiveVariables = expensiveVariables;
+  }
+
   public void setFilterRegexp(final String filterRegexp) {
     this.filterRegexp = filterRegexp;
   }
@@ -393,6 +425,10 @@ public class NotificationDTO implements Comparable<NotificationDTO>, Restricted
     this.injectionUrlRegexp = injectionUrlRegexp;
   }
 
+  public void setInjectionUrlCacheSeconds(final Integer injectionUrlCacheSeconds) {
+    this.injectionUrlCacheSeconds = injectionUrlCacheSeconds;
+  }
+
   public void setVariableName(final String variableName) {
     this.variableName = variableName;
   }
@@ -491,7 +527,9 @@ public class NotificationDTO implements Comparable<NotificationDTO>, Restricted
 
   @Override
   public String toString() {
-    return "NotificationDTO [filterRegexp="
+    return "NotificationDTO [expensiveVariables="
+        + expensiveVariables
+        + ", filterRegexp="
         + filterRegexp
         + ", filterString="
         + filterString
@@ -501,6 +539,8 @@ public class NotificationDTO implements Comparable<NotificationDTO>, Restricted
         + injectionUrl
         + ", injectionUrlRegexp="
         + injectionUrlRegexp
+        + ", injectionUrlCacheSeconds="
+        + injectionUrlCacheSeconds
         + ", variableName="
         + variableName
         + ", variableRegex="
@@ -11,9 +11,11 @@ import se.bjurr.prnfb.settings.USER_LEVEL;
 public class SettingsDataDTO {
 
   private USER_LEVEL adminRestriction;
+  private boolean flightRecorderEnabled;
   private String keyStore;
   private String keyStorePassword;
   private String keyStoreType;
+  private boolean settingsCompressed;
   private boolean shouldAcceptAnyCertificate;
 
   @Override
@@ -31,6 +33,9 @@ public class SettingsDataDTO {
     if (this.adminRestriction != other.adminRestriction) {
       return false;
     }
+    if (this.flightRecorderEnabled != other.flightRecorderEnabled) {
+      return false;
+    }
     if (this.keyStore == null) {
       if (other.keyStore != null) {
         return false;
@@ -52,6 +57,9 @@ public class SettingsDataDTO {
     } else if (!this.keyStoreType.equals(other.keyStoreType)) {
       return false;
     }
+    if (this.settingsCompressed != other.settingsCompressed) {
+      return false;
+    }
     if (this.shouldAcceptAnyCertificate != other.shouldAcceptAnyCertificate) {
       return false;
     }
@@ -80,14 +88,24 @@ public class SettingsDataDTO {
     int result = 1;
     result =
         prime * result + ((this.adminRestriction == null) ? 0 : this.adminRestriction.hashCode());
+    result = prime * result + (this.flightRecorderEnabled ? 1231 : 1237);
     result = prime * result + ((this.keyStore == null) ? 0 : this.keyStore.hashCode());
     result =
         prime * result + ((this.keyStorePassword == null) ? 0 : this.keyStorePassword.hashCode());
     result = prime * result + ((this.keyStoreType == null) ? 0 : this.keyStoreType.hashCode());
+    result = prime * result + (this.settingsCompressed ? 1231 : 1237);
     result = prime * result + (this.shouldAcceptAnyCertificate ? 1231 : 1237);
     return result;
   }
 
+  public boolean isFlightRecorderEnabled() {
+    return this.flightRecorderEnabled;
+  }
+
+  public boolean isSettingsCompressed() {
+    return this.settingsCompressed;
+  }
+
   public boolean isShouldAcceptAnyCertificate() {
     return this.shouldAcceptAnyCertificate;
   }
@@ -96,6 +114,10 @@ public class SettingsDataDTO {
     this.adminRestriction = adminRestriction;
   }
 
+  public void setFlightRecorderEnabled(boolean flightRecorderEnabled) {
+    this.flightRecorderEnabled = flightRecorderEnabled;
+  }
+
   public void setKeyStore(String keyStore) {
     this.keyStore = keyStore;
   }
@@ -108,6 +130,10 @@ public class SettingsDataDTO {
     this.keyStoreType = keyStoreType;
   }
 
+  public void setSettingsCompressed(boolean settingsCompressed) {
+    this.settingsCompressed = settingsCompressed;
+  }
+
   public void setShouldAcceptAnyCertificate(boolean shouldAcceptAnyCertificate) {
     this.shouldAcceptAnyCertificate = shouldAcceptAnyCertificate;
   }
@@ -116,12 +142,16 @@ public class SettingsDataDTO {
   public String toString() {
     return "SettingsDataDTO [adminRestriction="
         + this.adminRestriction
+        + ", flightRecorderEnabled="
+        + this.flightRecorderEnabled
         + ", keyStore="
         + this.keyStore
         + ", keyStorePassword="
         + this.keyStorePassword
         + ", keyStoreType="
         + this.keyStoreType
+        + ", settingsCompressed="
+        + this.settingsCompressed
         + ", shouldAcceptAnyCertificate="
         + this.shouldAcceptAnyCertificate
         + "]";
@@ -0,0 +1,121 @@
+package se.bjurr.prnfb.service;
+
+import com.atlassian.bitbucket.repository.Repository;
+import com.atlassian.sal.api.user.UserKey;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import se.bjurr.prnfb.http.NotificationResponse;
+import se.bjurr.prnfb.settings.PrnfbButton;
+
+/**
+ * A button pressed with {@link ButtonsService#handlePressedAsync}. The triggered notifications are
+ * invoked in parallel, and their responses are added as they complete. Jobs can be found for
+ * {@link #MAX_AGE_MILLIS} after they are started, by the user that pressed the button.
+ *
+ * <p>Jobs are only kept on the node where they were started. In a cluster without sticky sessions,
+ * polling another node finds no job, and the browser stops polling and tells the user that the
+ * responses are unavailable. The notifications are still invoked.
+ */
+public class ButtonPressJob {
+  static final long MAX_AGE_MILLIS = 10 * 60 * 1000L;
+  static final int MAX_JOBS = 1000;
+
+  private static final Map<UUID, ButtonPressJob> jobs =
+      Collections.synchronizedMap(
+          new LinkedHashMap<UUID, ButtonPressJob>() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, ButtonPressJob> eldest) {
+              return size() > MAX_JOBS
+                  || eldest.getValue().expires < System.currentTimeMillis();
+            }
+          });
+
+  public static Optional<ButtonPressJob> find(UUID id) {
+    final ButtonPressJob job = jobs.get(id);
+    if (job == null || job.expires < System.currentTimeMillis()) {
+      return Optional.empty();
+    }
+    return Optional.of(job);
+  }
+
+  /**
+   * @param userKey the user that pressed the button, <code>null</code> if anonymous.
+   * @param repository the repository of the pull request.
+   */
+  static ButtonPressJob start(
+      PrnfbButton button, UserKey userKey, Repository repository, int notifications) {
+    final ButtonPressJob job = new ButtonPressJob(button, userKey, repository, notifications);
+    jobs.put(job.id, job);
+    return job;
+  }
+
+  private final PrnfbButton button;
+  private int completed = 0;
+  private final long expires;
+  private final UUID id = UUID.randomUUID();
+  private final int notifications;
+  private final Repository repository;
+  private final List<NotificationResponse> responses = new ArrayList<>();
+  private final UserKey userKey;
+
+  private ButtonPressJob(
+      PrnfbButton button, UserKey userKey, Repository repository, int notifications) {
+    this.button = button;
+    this.userKey = userKey;
+    this.repository = repository;
+    this.notifications = notifications;
+    this.expires = System.currentTimeMillis() + MAX_AGE_MILLIS;
+  }
+
+  public PrnfbButton getButton() {
+    return this.button;
+  }
+
+  public UUID getId() {
+    return this.id;
+  }
+
+  public Repository getRepository() {
+    return this.repository;
+  }
+
+  /** The responses of the notifications completed so far, in the order they completed. */
+  public synchronized List<NotificationResponse> getResponses() {
+    return new ArrayList<>(this.responses);
+  }
+
+  public Optional<UserKey> getUserKey() {
+    return Optional.ofNullable(this.userKey);
+  }
+
+  /** If all notifications are completed. When done, all responses are available. */
+  public synchronized boolean isDone() {
+    return this.completed >= this.notifications;
+  }
+
+  /** @param response <code>null</code> if the notification failed without a response. */
+  synchronized void complete(NotificationResponse response) {
+    if (response != null) {
+      this.responses.add(response);
+    }
+    this.completed++;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "ButtonPressJob [id="
+        + this.id
+        + ", completed="
+        + this.completed
+        + ", notifications="
+        + this.notifications
+        + "]";
+  }
+}
@@ -0,0 +1,152 @@
+package se.bjurr.prnfb.service;
+
+import static java.util.Arrays.asList;
+
+import com.atlassian.bitbucket.event.pull.PullRequestEvent;
+import com.atlassian.bitbucket.pull.PullRequest;
+import com.atlassian.event.api.EventListener;
+import com.atlassian.sal.api.user.UserKey;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import se.bjurr.prnfb.settings.PrnfbButton;
+import se.bjurr.prnfb.settings.PrnfbSettings;
+import se.bjurr.prnfb.settings.USER_LEVEL;
+
+/**
+ * Buttons visible on pull requests, keyed by repository, pull request, pull request version, user
+ * and the {@link USER_LEVEL} of the user in the repository. The user is part of the key because
+ * filters may use variables of the current user, like <code>${PULL_REQUEST_USER_SLUG}</code>.
+ * Invalidated by pull request events and when the settings change. Entries also expire after
+ * {@link #MAX_AGE_MILLIS}, since notifications may depend on state that is not versioned, like
+ * builds, and events are only seen on the node where they happen.
+ */
+public class ButtonVisibilityCache {
+  static final long MAX_AGE_MILLIS = 60 * 1000L;
+  static final int MAX_ENTRIES = 1000;
+
+  private static class CachedButtons {
+    private final List<PrnfbButton> buttons;
+    private final long expires;
+
+    private CachedButtons(List<PrnfbButton> buttons, long expires) {
+      this.buttons = buttons;
+      this.expires = expires;
+    }
+  }
+
+  private static final Map<List<Object>, CachedButtons> visibleButtons =
+      Collections.synchronizedMap(
+          new LinkedHashMap<List<Object>, CachedButtons>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, CachedButtons> eldest) {
+              return size() > MAX_ENTRIES;
+            }
+          });
+  /** The settings that the cached buttons were found in. */
+  private static PrnfbSettings settings = null;
+
+  private static final AtomicLong hits = new AtomicLong();
+  private static final AtomicLong misses = new AtomicLong();
+
+  /** @return the cached buttons, or <code>null</code> if not cached. */
+  public static List<PrnfbButton> get(
+      PrnfbSettings currentSettings,
+      Integer repositoryId,
+      Long pullRequestId,
+      int pullRequestVersion,
+      UserKey userKey,
+      USER_LEVEL userLevel) {
+    final CachedButtons cached;
+    synchronized (visibleButtons) {
+      if (settings != currentSettings) {
+        visibleButtons.clear();
+        settings = currentSettings;
+      }
+      cached =
+          visibleButtons.get(
+              keyOf(repositoryId, pullRequestId, pullRequestVersion, userKey, userLevel));
+    }
+    if (cached == null || cached.expires < System.currentTimeMillis()) {
+      misses.incrementAndGet();
+      return null;
+    }
+    hits.incrementAndGet();
+    return cached.buttons;
+  }
+
+  public static long getHits() {
+    return hits.get();
+  }
+
+  public static long getMisses() {
+    return misses.get();
+  }
+
+  public static void invalidate(Integer repositoryId, Long pullRequestId) {
+    synchronized (visibleButtons) {
+      visibleButtons
+          .keySet()
+          .removeIf(
+              key ->
+                  Objects.equals(key.get(0), repositoryId)
+                      && Objects.equals(key.get(1), pullRequestId));
+    }
+  }
+
+  public static void invalidateAll() {
+    visibleButtons.clear();
+  }
+
+  /**
+   * Not cached if the settings changed since {@link #get(PrnfbSettings, Integer, Long, int,
+   * UserKey, USER_LEVEL)}.
+   *
+   * @return the cached, unmodifiable, buttons.
+   */
+  public static List<PrnfbButton> put(
+      PrnfbSettings currentSettings,
+      Integer repositoryId,
+      Long pullRequestId,
+      int pullRequestVersion,
+      UserKey userKey,
+      USER_LEVEL userLevel,
+      List<PrnfbButton> buttons) {
+    final List<PrnfbButton> unmodifiable = Collections.unmodifiableList(new ArrayList<>(buttons));
+    synchronized (visibleButtons) {
+      if (settings == currentSettings) {
+        visibleButtons.put(
+            keyOf(repositoryId, pullRequestId, pullRequestVersion, userKey, userLevel),
+            new CachedButtons(unmodifiable, System.currentTimeMillis() + MAX_AGE_MILLIS));
+      }
+    }
+    return unmodifiable;
+  }
+
+  static int getSize() {
+    return visibleButtons.size();
+  }
+
+  private static List<Object> keyOf(
+      Integer repositoryId,
+      Long pullRequestId,
+      int pullRequestVersion,
+      UserKey userKey,
+      USER_LEVEL userLevel) {
+    return asList(repositoryId, pullRequestId, pullRequestVersion, userKey, userLevel);
+  }
+
+  public ButtonVisibilityCache() {}
+
+  @EventListener
+  public void onEvent(final PullRequestEvent e) {
+    final PullRequest pullRequest = e.getPullRequest();
+    invalidate(pullRequest.getToRef().getRepository().getId(), pullRequest.getId());
+  }
+}
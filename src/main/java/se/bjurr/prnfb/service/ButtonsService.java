@@ -2,15 +2,22 @@ package se.bjurr.prnfb.service;
 
 import static java.lang.Boolean.FALSE;
 import static java.lang.Boolean.TRUE;
+import static org.slf4j.LoggerFactory.getLogger;
 import static se.bjurr.prnfb.listener.PrnfbPullRequestAction.BUTTON_TRIGGER;
 
 import com.atlassian.bitbucket.pull.PullRequest;
 import com.atlassian.bitbucket.pull.PullRequestService;
 import com.atlassian.bitbucket.repository.Repository;
+import com.atlassian.sal.api.user.UserKey;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import org.slf4j.Logger;
 import se.bjurr.prnfb.http.ClientKeyStore;
 import se.bjurr.prnfb.http.NotificationResponse;
 import se.bjurr.prnfb.listener.PrnfbPullRequestAction;
@@ -18,9 +25,12 @@ import se.bjurr.prnfb.listener.PrnfbPullRequestEventListener;
 import se.bjurr.prnfb.service.VariablesContext.VariablesContextBuilder;
 import se.bjurr.prnfb.settings.PrnfbButton;
 import se.bjurr.prnfb.settings.PrnfbNotification;
+import se.bjurr.prnfb.settings.PrnfbSettings;
 import se.bjurr.prnfb.settings.PrnfbSettingsData;
+import se.bjurr.prnfb.settings.USER_LEVEL;
 
 public class ButtonsService {
+  private static final Logger LOG = getLogger(ButtonsService.class);
 
   private final PrnfbPullRequestEventListener prnfbPullRequestEventListener;
   private final PrnfbRendererFactory prnfbRendererFactory;
@@ -51,10 +61,9 @@ public class ButtonsService {
     String repositoryKey = pullRequest.getToRef().getRepository().getSlug();
     List<PrnfbButton> allFoundButtons = new ArrayList<>();
     for (PrnfbButton candidate : settingsService.getButtons()) {
-      PrnfbButton button = settingsService.getButton(candidate.getUuid());
       VariablesContext variables =
           new VariablesContextBuilder() //
-              .setButton(button) //
+              .setButton(candidate) //
               .build();
 
       PrnfbPullRequestAction pullRequestAction = BUTTON_TRIGGER;
@@ -84,13 +93,51 @@ public class ButtonsService {
       final PullRequest pullRequest,
       final String formData) {
     PrnfbButton button = settingsService.getButton(buttonUuid);
+    return doHandlePressed(
+        button, clientKeyStore, shouldAcceptAnyCertificate, pullRequest, formData);
+  }
+
+  /** Each notification is evaluated once, and invoked if triggered. */
+  private List<NotificationResponse> doHandlePressed(
+      PrnfbButton button,
+      ClientKeyStore clientKeyStore,
+      boolean shouldAcceptAnyCertificate,
+      final PullRequest pullRequest,
+      final String formData) {
+    final Map<PrnfbNotification, PrnfbRenderer> triggered =
+        findTriggered(button, clientKeyStore, shouldAcceptAnyCertificate, pullRequest, formData);
+
+    List<NotificationResponse> successes = new ArrayList<>();
+    for (Map.Entry<PrnfbNotification, PrnfbRenderer> entry : triggered.entrySet()) {
+      NotificationResponse response =
+          prnfbPullRequestEventListener.notify(
+              entry.getKey(),
+              BUTTON_TRIGGER,
+              pullRequest,
+              entry.getValue(),
+              clientKeyStore,
+              shouldAcceptAnyCertificate);
+      if (response != null) {
+        successes.add(response);
+      }
+    }
+    return successes;
+  }
+
+  /** The notifications triggered by the button, in the order they are configured. */
+  private Map<PrnfbNotification, PrnfbRenderer> findTriggered(
+      PrnfbButton button,
+      ClientKeyStore clientKeyStore,
+      boolean shouldAcceptAnyCertificate,
+      final PullRequest pullRequest,
+      final String formData) {
     VariablesContext variables =
         new VariablesContextBuilder() //
             .setButton(button) //
             .setFormData(formData) //
             .build();
 
-    List<NotificationResponse> successes = new ArrayList<>();
+    final Map<PrnfbNotification, PrnfbRenderer> triggered = new LinkedHashMap<>();
     for (PrnfbNotification prnfbNotification : settingsService.getNotifications()) {
       PrnfbPullRequestAction pullRequestAction = BUTTON_TRIGGER;
       PrnfbRenderer renderer =
@@ -102,61 +149,142 @@ public class ButtonsService {
           pullRequest,
           clientKeyStore,
           shouldAcceptAnyCertificate)) {
-        NotificationResponse response =
-            prnfbPullRequestEventListener.notify(
-                prnfbNotification,
-                pullRequestAction,
-                pullRequest,
-                renderer,
-                clientKeyStore,
-                shouldAcceptAnyCertificate);
-        if (response != null) {
-          successes.add(response);
-        }
+        triggered.put(prnfbNotification, renderer);
       }
     }
+    return triggered;
+  }
 
-    return successes;
+  /**
+   * The button, if it is visible to the current user on the pull request. That is found without
+   * form data, like when listing the buttons, and reuses {@link ButtonVisibilityCache}. The cache
+   * is per user, so a button hidden from this user by a filter is not found even if it is visible
+   * to others at the same user level.
+   */
+  public Optional<PrnfbButton> findAllowedButton(final PullRequest pullRequest, UUID buttonUuid) {
+    if (pullRequest == null || buttonUuid == null) {
+      return Optional.empty();
+    }
+    for (final PrnfbButton button : getButtons(pullRequest)) {
+      if (button.getUuid().equals(buttonUuid)) {
+        return Optional.of(button);
+      }
+    }
+    return Optional.empty();
   }
 
   public List<PrnfbButton> getButtons(Integer repositoryId, Long pullRequestId) {
-    final PrnfbSettingsData settings = settingsService.getPrnfbSettingsData();
-    List<PrnfbNotification> notifications = settingsService.getNotifications();
+    return getButtons(getPullRequest(repositoryId, pullRequestId));
+  }
+
+  /**
+   * The buttons visible to the current user, cached in {@link ButtonVisibilityCache}. Filters may
+   * use variables of the current user, so they are cached per user.
+   */
+  public List<PrnfbButton> getButtons(final PullRequest pullRequest) {
+    final PrnfbSettings prnfbSettings = settingsService.getPrnfbSettings();
+    final Repository repository = pullRequest.getToRef().getRepository();
+    final USER_LEVEL userLevel =
+        userCheckService.getUserLevel(repository.getProject().getKey(), repository.getSlug());
+    final UserKey userKey = userCheckService.getUserKey().orElse(null);
+    final Integer repositoryId = repository.getId();
+    final Long pullRequestId = pullRequest.getId();
+    final int version = pullRequest.getVersion();
+    final List<PrnfbButton> cached =
+        ButtonVisibilityCache.get(
+            prnfbSettings, repositoryId, pullRequestId, version, userKey, userLevel);
+    if (cached != null) {
+      return cached;
+    }
+    final PrnfbSettingsData settings = prnfbSettings.getPrnfbSettingsData();
+    List<PrnfbNotification> notifications = prnfbSettings.getNotifications();
     ClientKeyStore clientKeyStore = new ClientKeyStore(settings);
-    final PullRequest pullRequest = pullRequestService.getById(repositoryId, pullRequestId);
     boolean shouldAcceptAnyCertificate = settings.isShouldAcceptAnyCertificate();
-    return doGetButtons(notifications, clientKeyStore, pullRequest, shouldAcceptAnyCertificate);
+    final List<PrnfbButton> buttons =
+        doGetButtons(notifications, clientKeyStore, pullRequest, shouldAcceptAnyCertificate);
+    return ButtonVisibilityCache.put(
+        prnfbSettings, repositoryId, pullRequestId, version, userKey, userLevel, buttons);
+  }
+
+  public PullRequest getPullRequest(Integer repositoryId, Long pullRequestId) {
+    return pullRequestService.getById(repositoryId, pullRequestId);
   }
 
-  public PrnfbRendererWrapper getRenderer(
-      Integer repositoryId, Long pullRequestId, UUID buttonUuid) {
+  /**
+   * Renderers of the buttons, by button. They share the settings, and the variables that do not
+   * depend on the button are resolved once for all of them.
+   */
+  public Map<UUID, PrnfbRendererWrapper> getRenderers(
+      final PullRequest pullRequest, List<PrnfbButton> buttons) {
     final PrnfbSettingsData settings = settingsService.getPrnfbSettingsData();
     ClientKeyStore clientKeyStore = new ClientKeyStore(settings);
-    final PullRequest pullRequest = pullRequestService.getById(repositoryId, pullRequestId);
     boolean shouldAcceptAnyCertificate = settings.isShouldAcceptAnyCertificate();
+    final PrnfbVariableCache variableCache = new PrnfbVariableCache();
 
-    PrnfbButton button = settingsService.getButton(buttonUuid);
-    VariablesContext variables =
-        new VariablesContextBuilder() //
-            .setButton(button) //
-            .build();
-
-    PrnfbPullRequestAction pullRequestAction = BUTTON_TRIGGER;
-
-    PrnfbRendererWrapper renderer =
-        prnfbRendererFactory.create(
-            pullRequest, pullRequestAction, variables, clientKeyStore, shouldAcceptAnyCertificate);
-    return renderer;
+    final Map<UUID, PrnfbRendererWrapper> renderers = new HashMap<>();
+    for (PrnfbButton button : buttons) {
+      VariablesContext variables =
+          new VariablesContextBuilder() //
+              .setButton(button) //
+              .setVariableCache(variableCache) //
+              .build();
+      renderers.put(
+          button.getUuid(),
+          prnfbRendererFactory.create(
+              pullRequest, BUTTON_TRIGGER, variables, clientKeyStore, shouldAcceptAnyCertificate));
+    }
+    return renderers;
   }
 
+  /**
+   * Invokes the notifications triggered by the button. It must be found with {@link
+   * #findAllowedButton}, so that only visible buttons are pressed.
+   */
   public List<NotificationResponse> handlePressed(
-      Integer repositoryId, Long pullRequestId, UUID buttonUuid, String formData) {
+      final PullRequest pullRequest, PrnfbButton button, String formData) {
     final PrnfbSettingsData prnfbSettingsData = settingsService.getPrnfbSettingsData();
     ClientKeyStore clientKeyStore = new ClientKeyStore(prnfbSettingsData);
     boolean shouldAcceptAnyCertificate = prnfbSettingsData.isShouldAcceptAnyCertificate();
-    final PullRequest pullRequest = pullRequestService.getById(repositoryId, pullRequestId);
     return doHandlePressed(
-        buttonUuid, clientKeyStore, shouldAcceptAnyCertificate, pullRequest, formData);
+        button, clientKeyStore, shouldAcceptAnyCertificate, pullRequest, formData);
+  }
+
+  /**
+   * Like {@link #handlePressed}, but returns when the triggered notifications are found. They are
+   * invoked in parallel, and their responses are added to the job as they complete.
+   */
+  public ButtonPressJob handlePressedAsync(
+      final PullRequest pullRequest, PrnfbButton button, String formData) {
+    final PrnfbSettingsData prnfbSettingsData = settingsService.getPrnfbSettingsData();
+    ClientKeyStore clientKeyStore = new ClientKeyStore(prnfbSettingsData);
+    boolean shouldAcceptAnyCertificate = prnfbSettingsData.isShouldAcceptAnyCertificate();
+    final Map<PrnfbNotification, PrnfbRenderer> triggered =
+        findTriggered(button, clientKeyStore, shouldAcceptAnyCertificate, pullRequest, formData);
+
+    final ButtonPressJob job =
+        ButtonPressJob.start(
+            button,
+            userCheckService.getUserKey().orElse(null),
+            pullRequest.getToRef().getRepository(),
+            triggered.size());
+    for (Map.Entry<PrnfbNotification, PrnfbRenderer> entry : triggered.entrySet()) {
+      prnfbPullRequestEventListener
+          .notifyAsync(
+              entry.getKey(),
+              BUTTON_TRIGGER,
+              pullRequest,
+              entry.getValue(),
+              clientKeyStore,
+              shouldAcceptAnyCertificate)
+          .whenComplete(
+              (response, error) -> {
+                if (error != null) {
+                  LOG.error("Unable to invoke " + entry.getKey().getName(), error);
+                }
+                job.complete(response);
+              });
+    }
+    return job;
   }
 
   private boolean isTriggeredByAction(
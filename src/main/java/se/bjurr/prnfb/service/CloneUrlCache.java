@@ -0,0 +1,99 @@
+package se.bjurr.prnfb.service;
+
+import com.atlassian.bitbucket.event.repository.RepositoryDeletedEvent;
+import com.atlassian.bitbucket.event.repository.RepositoryModifiedEvent;
+import com.atlassian.event.api.EventListener;
+import java.net.URI;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Clone URL:s of repositories, keyed by repository id, protocol and if user info is stripped.
+ * Invalidated when a repository is modified or deleted. Each entry has the base URL it was created
+ * with, and is not used with another base URL. Entries also expire after {@link #MAX_AGE_MILLIS},
+ * since repository events are only seen on the node where they happen.
+ */
+public class CloneUrlCache {
+  static final long MAX_AGE_MILLIS = 10 * 60 * 1000L;
+
+  private static class CachedCloneUrl {
+    private final URI baseUrl;
+    private final long expires;
+    private final String url;
+
+    private CachedCloneUrl(URI baseUrl, String url, long expires) {
+      this.baseUrl = baseUrl;
+      this.url = url;
+      this.expires = expires;
+    }
+  }
+
+  private static final Map<Integer, Map<String, CachedCloneUrl>> cloneUrls =
+      new ConcurrentHashMap<>();
+  private static final AtomicLong hits = new AtomicLong();
+  private static final AtomicLong misses = new AtomicLong();
+
+  /** @return the cached clone URL, or <code>null</code> if not cached. */
+  public static String get(
+      Integer repositoryId, RepoProtocol protocol, boolean stripUserInfo, URI currentBaseUrl) {
+    final Map<String, CachedCloneUrl> repositoryUrls = cloneUrls.get(repositoryId);
+    final CachedCloneUrl cached =
+        repositoryUrls == null ? null : repositoryUrls.get(keyOf(protocol, stripUserInfo));
+    if (cached == null
+        || cached.expires < System.currentTimeMillis()
+        || !Objects.equals(cached.baseUrl, currentBaseUrl)) {
+      misses.incrementAndGet();
+      return null;
+    }
+    hits.incrementAndGet();
+    return cached.url;
+  }
+
+  public static long getHits() {
+    return hits.get();
+  }
+
+  public static long getMisses() {
+    return misses.get();
+  }
+
+  public static void invalidate(Integer repositoryId) {
+    cloneUrls.remove(repositoryId);
+  }
+
+  public static void invalidateAll() {
+    cloneUrls.clear();
+  }
+
+  /** @param baseUrl the base URL when the clone URL was created. */
+  public static void put(
+      Integer repositoryId,
+      RepoProtocol protocol,
+      boolean stripUserInfo,
+      URI baseUrl,
+      String url) {
+    cloneUrls
+        .computeIfAbsent(repositoryId, id -> new ConcurrentHashMap<>())
+        .put(
+            keyOf(protocol, stripUserInfo),
+            new CachedCloneUrl(baseUrl, url, System.currentTimeMillis() + MAX_AGE_MILLIS));
+  }
+
+  private static String keyOf(RepoProtocol protocol, boolean stripUserInfo) {
+    return protocol.name() + (stripUserInfo ? "-stripped" : "");
+  }
+
+  public CloneUrlCache() {}
+
+  @EventListener
+  public void onEvent(final RepositoryDeletedEvent e) {
+    invalidate(e.getRepository().getId());
+  }
+
+  @EventListener
+  public void onEvent(final RepositoryModifiedEvent e) {
+    invalidate(e.getRepository().getId());
+  }
+}
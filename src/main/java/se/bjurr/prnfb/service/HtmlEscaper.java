@@ -0,0 +1,93 @@
+package se.bjurr.prnfb.service;
+
+import org.apache.commons.lang3.StringEscapeUtils;
+
+/**
+ * Escapes like {@link StringEscapeUtils#escapeHtml4(String)}, and replaces new lines with <code>
+ * &lt;br /&gt;</code>. Appends to a {@link StringBuilder} and returns values that need no escaping
+ * as they are.
+ */
+public class HtmlEscaper {
+  private static final String BR = "<br />";
+
+  /**
+   * Entities of the characters escaped by {@link StringEscapeUtils#escapeHtml4(String)}. All HTML
+   * 4 entities are below {@link #ENTITIES_END}.
+   */
+  private static final String[] ENTITIES;
+
+  private static final int ENTITIES_END = 0x3000;
+
+  static {
+    ENTITIES = new String[ENTITIES_END];
+    for (char c = 0; c < ENTITIES_END; c++) {
+      final String s = String.valueOf(c);
+      final String escaped = StringEscapeUtils.escapeHtml4(s);
+      if (!escaped.equals(s)) {
+        ENTITIES[c] = escaped;
+      }
+    }
+  }
+
+  /** @return the value itself, if nothing needs to be escaped. */
+  public static String htmlEscape(String value) {
+    final int first = firstToEscape(value);
+    if (first == -1) {
+      return value;
+    }
+    final StringBuilder out = new StringBuilder(value.length() + 16);
+    htmlEscape(value, first, out);
+    return out.toString();
+  }
+
+  public static void htmlEscape(String value, StringBuilder out) {
+    final int first = firstToEscape(value);
+    if (first == -1) {
+      out.append(value);
+      return;
+    }
+    htmlEscape(value, first, out);
+  }
+
+  private static void htmlEscape(String value, int first, StringBuilder out) {
+    int last = 0;
+    final int length = value.length();
+    for (int i = first; i < length; i++) {
+      final char c = value.charAt(i);
+      final String replacement;
+      final int next;
+      if (c == '\r' && i + 1 < length && value.charAt(i + 1) == '\n') {
+        replacement = BR;
+        next = i + 2;
+      } else if (c == '\n') {
+        replacement = BR;
+        next = i + 1;
+      } else if (c < ENTITIES_END && ENTITIES[c] != null) {
+        replacement = ENTITIES[c];
+        next = i + 1;
+      } else {
+        continue;
+      }
+      if (last < i) {
+        out.append(value, last, i);
+      }
+      out.append(replacement);
+      last = next;
+      i = next - 1;
+    }
+    if (last < length) {
+      out.append(value, last, length);
+    }
+  }
+
+  private static int firstToEscape(String value) {
+    final int length = value.length();
+    for (int i = 0; i < length; i++) {
+      final char c = value.charAt(i);
+      if (c == '\r' || c == '\n' || c < ENTITIES_END && ENTITIES[c] != null) {
+        return i;
+      }
+    }
+    return -1;
+  }
+}
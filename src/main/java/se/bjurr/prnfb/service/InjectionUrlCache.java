@@ -0,0 +1,151 @@
+package se.bjurr.prnfb.service;
+
+import static java.util.Arrays.asList;
+import static se.bjurr.prnfb.settings.PrnfbNotification.MAX_INJECTION_URL_CACHE_SECONDS;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import se.bjurr.prnfb.http.HttpResponse;
+
+/**
+ * Responses from injection URL:s, for notifications with {@link
+ * se.bjurr.prnfb.settings.PrnfbNotification#getInjectionUrlCacheSeconds()} set. Keyed by
+ * notification and the rendered injection URL. Concurrent lookups of the same key, that are not
+ * cached, wait for one single request. A response fetched while the notification is invalidated is
+ * not cached. Other nodes invalidate when they see that the notification changed, within {@link
+ * SettingsService#VERSION_CHECK_MILLIS}.
+ */
+public class InjectionUrlCache {
+  static final int MAX_ENTRIES = 1000;
+
+  private static class CachedResponse {
+    private final long expires;
+    private final HttpResponse response;
+
+    private CachedResponse(HttpResponse response, long expires) {
+      this.response = response;
+      this.expires = expires;
+    }
+  }
+
+  private static final Map<List<Object>, CachedResponse> responses =
+      Collections.synchronizedMap(
+          new LinkedHashMap<List<Object>, CachedResponse>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, CachedResponse> eldest) {
+              return size() > MAX_ENTRIES;
+            }
+          });
+  private static final Map<List<Object>, FutureTask<HttpResponse>> inFlight =
+      new ConcurrentHashMap<>();
+  /**
+   * The generation of each notification, replaced when it is invalidated. Changed, like responses,
+   * only when synchronized on responses.
+   */
+  private static final Map<UUID, Object> generations = new ConcurrentHashMap<>();
+  private static final AtomicLong hits = new AtomicLong();
+  private static final AtomicLong misses = new AtomicLong();
+
+  /**
+   * @param fetcher invoked on a miss. Responses with a status other than 2xx are not cached.
+   * @return the cached response, or the response from the fetcher.
+   */
+  public static HttpResponse get(
+      final UUID notificationUuid,
+      final String renderedUrl,
+      final int cacheSeconds,
+      final Supplier<HttpResponse> fetcher) {
+    final List<Object> key = asList(notificationUuid, renderedUrl);
+    final CachedResponse cached = responses.get(key);
+    if (cached != null && cached.expires >= System.currentTimeMillis()) {
+      hits.incrementAndGet();
+      return cached.response;
+    }
+    misses.incrementAndGet();
+
+    final Object generation = generations.computeIfAbsent(notificationUuid, uuid -> new Object());
+    final long maxAgeMillis = Math.min(cacheSeconds, MAX_INJECTION_URL_CACHE_SECONDS) * 1000L;
+    final FutureTask<HttpResponse> task =
+        new FutureTask<>(
+            () -> {
+              final HttpResponse response = fetcher.get();
+              if (response != null && response.getStatus() >= 200 && response.getStatus() <= 299) {
+                final long expires = System.currentTimeMillis() + maxAgeMillis;
+                synchronized (responses) {
+                  if (generations.get(notificationUuid) == generation) {
+                    responses.put(key, new CachedResponse(response, expires));
+                  }
+                }
+              }
+              return response;
+            });
+    final FutureTask<HttpResponse> running = inFlight.putIfAbsent(key, task);
+    if (running == null) {
+      try {
+        task.run();
+      } finally {
+        inFlight.remove(key, task);
+      }
+      return await(task);
+    }
+    return await(running);
+  }
+
+  public static long getHits() {
+    return hits.get();
+  }
+
+  public static long getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * Removes cached responses of the notification, when it is updated or deleted. Requests in flight
+   * are not shared with later lookups, and their responses are not cached.
+   */
+  public static void invalidate(final UUID notificationUuid) {
+    synchronized (responses) {
+      generations.remove(notificationUuid);
+      responses.keySet().removeIf(key -> key.get(0).equals(notificationUuid));
+    }
+    inFlight.keySet().removeIf(key -> key.get(0).equals(notificationUuid));
+  }
+
+  public static void invalidateAll() {
+    synchronized (responses) {
+      generations.clear();
+      responses.clear();
+    }
+    inFlight.clear();
+  }
+
+  static int getSize() {
+    return responses.size();
+  }
+
+  private static HttpResponse await(final FutureTask<HttpResponse> task) {
+    try {
+      return task.get();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (final ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  private InjectionUrlCache() {}
+}
@@ -1,7 +1,5 @@
 package se.bjurr.prnfb.service;
 
-import java.io.StringWriter;
-
 /** Copied from GSON JsonWriter */
 public class JsonEscaper {
 
@@ -28,35 +26,63 @@ public class JsonEscaper {
     HTML_SAFE_REPLACEMENT_CHARS['\''] = "\\u0027";
   }
 
+  /** @return the value itself, if nothing needs to be escaped. */
   public static String jsonEscape(String value) {
-    final StringWriter out = new StringWriter();
-    String[] replacements = HTML_SAFE_REPLACEMENT_CHARS;
+    final int first = firstToEscape(value);
+    if (first == -1) {
+      return value;
+    }
+    final StringBuilder out = new StringBuilder(value.length() + 16);
+    jsonEscape(value, first, out);
+    return out.toString();
+  }
+
+  public static void jsonEscape(String value, StringBuilder out) {
+    final int first = firstToEscape(value);
+    if (first == -1) {
+      out.append(value);
+      return;
+    }
+    jsonEscape(value, first, out);
+  }
+
+  private static void jsonEscape(String value, int first, StringBuilder out) {
     int last = 0;
     int length = value.length();
-    for (int i = 0; i < length; i++) {
-      char c = value.charAt(i);
-      String replacement;
-      if (c < 128) {
-        replacement = replacements[c];
-        if (replacement == null) {
-          continue;
-        }
-      } else if (c == '\u2028') {
-        replacement = "\\u2028";
-      } else if (c == '\u2029') {
-        replacement = "\\u2029";
-      } else {
+    for (int i = first; i < length; i++) {
+      String replacement = replacementOf(value.charAt(i));
+      if (replacement == null) {
         continue;
       }
       if (last < i) {
-        out.write(value, last, i - last);
+        out.append(value, last, i);
       }
-      out.write(replacement);
+      out.append(replacement);
       last = i + 1;
     }
     if (last < length) {
-      out.write(value, last, length - last);
+      out.append(value, last, length);
     }
-    return out.toString();
+  }
+
+  private static int firstToEscape(String value) {
+    int length = value.length();
+    for (int i = 0; i < length; i++) {
+      if (replacementOf(value.charAt(i)) != null) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static String replacementOf(char c) {
+    if (c < 128) {
+      return HTML_SAFE_REPLACEMENT_CHARS[c];
+    } else if (c == '\u2028') {
+      return "\\u2028";
+    } else if (c == '\u2029') {
+      return "\\u2029";
+    }
+    return null;
   }
 }
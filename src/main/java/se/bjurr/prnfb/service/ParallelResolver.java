@@ -0,0 +1,102 @@
+package se.bjurr.prnfb.service;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.slf4j.Logger;
+
+/**
+ * Resolves {@link PrnfbVariable#isExpensive() expensive} variables in parallel, on a bounded pool
+ * of daemon threads. So that the time to render is that of the slowest variable, not the sum of
+ * them.
+ */
+class ParallelResolver {
+  static final long DEADLINE_MILLIS = 60 * 1000L;
+  static final int POOL_SIZE = 4;
+  static final int QUEUE_SIZE = 100;
+
+  private static final Logger LOG = getLogger(ParallelResolver.class);
+
+  private static class ResolverThread extends Thread {
+    private ResolverThread(Runnable runnable, String name) {
+      super(runnable, name);
+      setDaemon(true);
+    }
+  }
+
+  private static final AtomicInteger threadNumber = new AtomicInteger();
+  private static final ThreadPoolExecutor pool =
+      new ThreadPoolExecutor(
+          POOL_SIZE,
+          POOL_SIZE,
+          60,
+          SECONDS,
+          new LinkedBlockingQueue<>(QUEUE_SIZE),
+          runnable ->
+              new ResolverThread(runnable, "prnfb-resolver-" + threadNumber.incrementAndGet()));
+
+  static {
+    pool.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * Variables not resolved before the deadline, or that failed, are resolved to an empty string.
+   * When called from a resolver thread, as when an injection URL is rendered, or when the pool is
+   * full, variables are resolved one after another in the calling thread.
+   */
+  static Map<PrnfbVariable, String> resolveAll(
+      final Collection<PrnfbVariable> variables,
+      final Function<PrnfbVariable, String> resolver,
+      final long deadlineMillis) {
+    final Map<PrnfbVariable, String> resolved = new EnumMap<>(PrnfbVariable.class);
+    final Map<PrnfbVariable, FutureTask<String>> tasks = new EnumMap<>(PrnfbVariable.class);
+    final boolean inResolverThread = Thread.currentThread() instanceof ResolverThread;
+    for (final PrnfbVariable variable : variables) {
+      final FutureTask<String> task = new FutureTask<>(() -> resolver.apply(variable));
+      if (!inResolverThread) {
+        try {
+          pool.execute(task);
+          tasks.put(variable, task);
+          continue;
+        } catch (final RejectedExecutionException e) {
+          LOG.debug("Resolver pool full, resolving " + variable + " in calling thread");
+        }
+      }
+      resolved.put(variable, resolver.apply(variable));
+    }
+
+    final long deadline = System.currentTimeMillis() + deadlineMillis;
+    for (final Map.Entry<PrnfbVariable, FutureTask<String>> entry : tasks.entrySet()) {
+      final PrnfbVariable variable = entry.getKey();
+      final FutureTask<String> task = entry.getValue();
+      String value = "";
+      try {
+        value = task.get(Math.max(0, deadline - System.currentTimeMillis()), MILLISECONDS);
+      } catch (final TimeoutException e) {
+        task.cancel(true);
+        LOG.warn("Did not resolve " + variable + " within " + deadlineMillis + "ms");
+      } catch (final InterruptedException e) {
+        task.cancel(true);
+        Thread.currentThread().interrupt();
+      } catch (final ExecutionException e) {
+        LOG.error("Error when resolving " + variable, e.getCause());
+      }
+      resolved.put(variable, value);
+    }
+    return resolved;
+  }
+
+  private ParallelResolver() {}
+}
@@ -0,0 +1,169 @@
+package se.bjurr.prnfb.service;
+
+import static java.util.Collections.emptyList;
+
+import com.atlassian.bitbucket.pull.PullRequest;
+import com.atlassian.bitbucket.pull.PullRequestParticipant;
+import com.atlassian.bitbucket.pull.PullRequestParticipantStatus;
+import com.atlassian.bitbucket.user.ApplicationUser;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Reviewers and participants of a pull request, grouped by status in one pass. It is created once
+ * per rendering and all reviewer and participant variables are resolved from it.
+ */
+class PrnfbParticipants {
+
+  /**
+   * Users of a group. Each of the sorted, comma separated, lists is joined the first time it is
+   * used.
+   */
+  static class Group {
+    private String displayNames;
+    private String emails;
+    private String ids;
+    private String names;
+    private String slugs;
+    private final List<ApplicationUser> users;
+
+    private Group(final List<ApplicationUser> users) {
+      this.users = users;
+    }
+
+    int getCount() {
+      return this.users.size();
+    }
+
+    String getDisplayNames() {
+      if (this.displayNames == null) {
+        this.displayNames = join(u -> u.getDisplayName());
+      }
+      return this.displayNames;
+    }
+
+    String getEmails() {
+      if (this.emails == null) {
+        this.emails = join(u -> u.getEmailAddress());
+      }
+      return this.emails;
+    }
+
+    String getIds() {
+      if (this.ids == null) {
+        this.ids = join(u -> "" + u.getId());
+      }
+      return this.ids;
+    }
+
+    String getNames() {
+      if (this.names == null) {
+        this.names = join(u -> u.getName());
+      }
+      return this.names;
+    }
+
+    String getSlugs() {
+      if (this.slugs == null) {
+        this.slugs = join(u -> u.getSlug());
+      }
+      return this.slugs;
+    }
+
+    private String join(final Function<ApplicationUser, String> field) {
+      final List<String> values = new ArrayList<>(this.users.size());
+      for (final ApplicationUser user : this.users) {
+        values.add(field.apply(user));
+      }
+      Collections.sort(values);
+      return String.join(",", values);
+    }
+  }
+
+  private static final Group EMPTY = new Group(emptyList());
+
+  static PrnfbParticipants of(final PullRequest pullRequest) {
+    final List<ApplicationUser> reviewers = new ArrayList<>();
+    final Map<PullRequestParticipantStatus, List<ApplicationUser>> reviewersByStatus =
+        new EnumMap<>(PullRequestParticipantStatus.class);
+    int reviewersApproved = 0;
+    for (final PullRequestParticipant reviewer : pullRequest.getReviewers()) {
+      reviewers.add(reviewer.getUser());
+      reviewersByStatus
+          .computeIfAbsent(reviewer.getStatus(), s -> new ArrayList<>())
+          .add(reviewer.getUser());
+      if (reviewer.isApproved()) {
+        reviewersApproved++;
+      }
+    }
+
+    final List<ApplicationUser> participants = new ArrayList<>();
+    int participantsApproved = 0;
+    for (final PullRequestParticipant participant : pullRequest.getParticipants()) {
+      participants.add(participant.getUser());
+      if (participant.isApproved()) {
+        participantsApproved++;
+      }
+    }
+
+    final Map<PullRequestParticipantStatus, Group> groups =
+        new EnumMap<>(PullRequestParticipantStatus.class);
+    for (final Map.Entry<PullRequestParticipantStatus, List<ApplicationUser>> entry :
+        reviewersByStatus.entrySet()) {
+      groups.put(entry.getKey(), new Group(entry.getValue()));
+    }
+    return new PrnfbParticipants(
+        new Group(participants),
+        participantsApproved,
+        new Group(reviewers),
+        reviewersApproved,
+        groups);
+  }
+
+  private final Group participants;
+  private final int participantsApprovedCount;
+  private final Group reviewers;
+  private final int reviewersApprovedCount;
+  private final Map<PullRequestParticipantStatus, Group> reviewersByStatus;
+
+  private PrnfbParticipants(
+      final Group participants,
+      final int participantsApprovedCount,
+      final Group reviewers,
+      final int reviewersApprovedCount,
+      final Map<PullRequestParticipantStatus, Group> reviewersByStatus) {
+    this.participants = participants;
+    this.participantsApprovedCount = participantsApprovedCount;
+    this.reviewers = reviewers;
+    this.reviewersApprovedCount = reviewersApprovedCount;
+    this.reviewersByStatus = reviewersByStatus;
+  }
+
+  Group getParticipants() {
+    return this.participants;
+  }
+
+  int getParticipantsApprovedCount() {
+    return this.participantsApprovedCount;
+  }
+
+  Group getReviewers() {
+    return this.reviewers;
+  }
+
+  Group getReviewers(final PullRequestParticipantStatus status) {
+    final Group group = this.reviewersByStatus.get(status);
+    if (group == null) {
+      return EMPTY;
+    }
+    return group;
+  }
+
+  int getReviewersApprovedCount() {
+    return this.reviewersApprovedCount;
+  }
+}
@@ -1,25 +1,30 @@
 package se.bjurr.prnfb.service;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
-import static org.slf4j.LoggerFactory.getLogger;
+import static java.util.Collections.singletonMap;
+import static se.bjurr.prnfb.jfr.PrnfbFlightRecorder.beginRender;
+import static se.bjurr.prnfb.jfr.PrnfbFlightRecorder.endRender;
+import static se.bjurr.prnfb.service.HtmlEscaper.htmlEscape;
 import static se.bjurr.prnfb.service.JsonEscaper.jsonEscape;
 import static se.bjurr.prnfb.service.PrnfbRenderer.ENCODE_FOR.HTML;
 import static se.bjurr.prnfb.service.PrnfbRenderer.ENCODE_FOR.JSON;
 import static se.bjurr.prnfb.service.PrnfbRenderer.ENCODE_FOR.URL;
 import static se.bjurr.prnfb.service.PrnfbVariable.EVERYTHING_URL;
+import static se.bjurr.prnfb.service.UrlEscaper.urlEncode;
 
 import com.atlassian.bitbucket.pull.PullRequest;
 import com.atlassian.bitbucket.repository.RepositoryService;
 import com.atlassian.bitbucket.server.ApplicationPropertiesService;
 import com.atlassian.bitbucket.user.ApplicationUser;
 import com.atlassian.bitbucket.user.SecurityService;
-import java.io.UnsupportedEncodingException;
-import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.regex.Matcher;
-import org.apache.commons.lang3.StringEscapeUtils;
-import org.slf4j.Logger;
 import se.bjurr.prnfb.http.ClientKeyStore;
+import se.bjurr.prnfb.jfr.PrnfbRecording;
 import se.bjurr.prnfb.listener.PrnfbPullRequestAction;
 import se.bjurr.prnfb.settings.PrnfbNotification;
 
@@ -31,7 +36,11 @@ public class PrnfbRenderer {
     JSON
   }
 
-  private static final Logger LOG = getLogger(PrnfbRenderer.class);
+  private static final int BEFORE_EVERYTHING_URL = -1;
+  private static final int EVERYTHING_URL_POSITION = 0;
+  private static final int MAX_PLACEHOLDER_LENGTH = maxPlaceholderLength();
+  private static final char PLACEHOLDER_END = '}';
+
   private final ApplicationUser applicationUser;
   private final PrnfbNotification prnfbNotification;
   private final ApplicationPropertiesService propertiesService;
@@ -39,6 +48,7 @@ public class PrnfbRenderer {
   private final PrnfbPullRequestAction pullRequestAction;
   private final RepositoryService repositoryService;
   private final SecurityService securityService;
+  private final PrnfbVariableCache variableCache;
 
   /**
    * Contains special variables that are only available for specific events like {@link
@@ -55,6 +65,28 @@ public class PrnfbRenderer {
       PrnfbNotification prnfbNotification,
       Map<PrnfbVariable, String> variables,
       SecurityService securityService) {
+    this(
+        pullRequest,
+        pullRequestAction,
+        applicationUser,
+        repositoryService,
+        propertiesService,
+        prnfbNotification,
+        variables,
+        securityService,
+        new PrnfbVariableCache());
+  }
+
+  PrnfbRenderer(
+      PullRequest pullRequest,
+      PrnfbPullRequestAction pullRequestAction,
+      ApplicationUser applicationUser,
+      RepositoryService repositoryService,
+      ApplicationPropertiesService propertiesService,
+      PrnfbNotification prnfbNotification,
+      Map<PrnfbVariable, String> variables,
+      SecurityService securityService,
+      PrnfbVariableCache variableCache) {
     this.pullRequest = pullRequest;
     this.pullRequestAction = pullRequestAction;
     this.applicationUser = applicationUser;
@@ -63,31 +95,35 @@ public class PrnfbRenderer {
     this.propertiesService = propertiesService;
     this.variables = variables;
     this.securityService = securityService;
+    this.variableCache = variableCache;
   }
 
-  private boolean containsVariable(String string, final String regExpStr) {
-    if (string == null || string.isEmpty()) {
-      return false;
+  private String encode(final String resolved, final ENCODE_FOR encodeFor) {
+    if (encodeFor == URL) {
+      return urlEncode(resolved);
+    } else if (encodeFor == HTML) {
+      return htmlEscape(resolved);
+    } else if (encodeFor == JSON) {
+      return jsonEscape(resolved);
     }
-    return string.contains(regExpStr.replaceAll("\\\\", ""));
+    return resolved;
   }
 
-  public String getRenderedStringResolved(
-      String string, ENCODE_FOR encodeFor, final String regExpStr, String resolved) {
-    String replaceWith;
+  private void encode(final String resolved, final ENCODE_FOR encodeFor, final StringBuilder sb) {
     if (encodeFor == URL) {
-      try {
-        replaceWith = URLEncoder.encode(resolved, UTF_8.name());
-      } catch (final UnsupportedEncodingException e) {
-        throw new RuntimeException(e);
-      }
+      urlEncode(resolved, sb);
     } else if (encodeFor == HTML) {
-      replaceWith = StringEscapeUtils.escapeHtml4(resolved).replaceAll("(\r\n|\n)", "<br />");
+      htmlEscape(resolved, sb);
     } else if (encodeFor == JSON) {
-      replaceWith = jsonEscape(resolved);
+      jsonEscape(resolved, sb);
     } else {
-      replaceWith = resolved;
+      sb.append(resolved);
     }
+  }
+
+  public String getRenderedStringResolved(
+      String string, ENCODE_FOR encodeFor, final String regExpStr, String resolved) {
+    String replaceWith = encode(resolved, encodeFor);
     try {
       replaceWith = Matcher.quoteReplacement(replaceWith);
       string = string.replaceAll(regExpStr, replaceWith);
@@ -101,52 +137,255 @@ public class PrnfbRenderer {
     return "\\$\\{" + variable.name() + "\\}";
   }
 
+  /**
+   * Renders the string in one pass over its {@link PrnfbTemplate}. The result is the same as
+   * replacing {@link PrnfbVariable#EVERYTHING_URL}, not encoded, and then every variable in the
+   * order they are declared in {@link PrnfbVariable}. So a variable value may itself contain
+   * variables declared after it, and those are also rendered. {@link PrnfbVariable#isExpensive()
+   * Expensive} variables are resolved in parallel before that, see {@link ParallelResolver}.
+   */
   public String render(
       String string,
       ENCODE_FOR encodeFor,
       ClientKeyStore clientKeyStore,
       Boolean shouldAcceptAnyCertificate) {
-    string =
-        renderVariable(
-            string, ENCODE_FOR.NONE, clientKeyStore, shouldAcceptAnyCertificate, EVERYTHING_URL);
+    if (string == null) {
+      return null;
+    }
+    return render(string, encodeFor, createContext(clientKeyStore, shouldAcceptAnyCertificate));
+  }
+
+  /** Renders with the context of an enclosing rendering, see {@link PrnfbResolveContext}. */
+  String render(String string, ENCODE_FOR encodeFor, PrnfbResolveContext context) {
+    if (string == null) {
+      return null;
+    }
+    final PrnfbRecording recording = beginRender();
+    final PrnfbTemplate template = templateOf(string, context);
+    if (!template.hasVariables()) {
+      endRender(recording, prnfbNotification, pullRequest, encodeFor, 0);
+      return string;
+    }
+    final Rendering rendering = new Rendering(encodeFor, context);
+    rendering.resolveExpensive(template);
+    final StringBuilder sb = new StringBuilder(string.length() + 64);
+    appendRendered(sb, template, BEFORE_EVERYTHING_URL, rendering);
+    final String rendered =
+        rendering.isPlaceholderAtJoin(sb)
+            ? renderSequentially(string, rendering)
+            : sb.toString();
+    endRender(recording, prnfbNotification, pullRequest, encodeFor, context.getResolvedCount());
+    return rendered;
+  }
+
+  /**
+   * Templates of the notification are parsed when it is compiled, see {@link
+   * se.bjurr.prnfb.settings.PrnfbCompiledNotification#findTemplate(String)}. Other templates, like
+   * those of buttons, are cached by {@link PrnfbTemplate#compile(String)}.
+   */
+  private PrnfbTemplate templateOf(final String string, final PrnfbResolveContext context) {
+    if (prnfbNotification != null) {
+      final Optional<PrnfbTemplate> template =
+          context.getCompiledNotification().findTemplate(string);
+      if (template.isPresent()) {
+        return template.get();
+      }
+    }
+    return PrnfbTemplate.compile(string);
+  }
 
+  /** Replaces the variables one at a time, in the order described in {@link #render}. */
+  private String renderSequentially(String string, final Rendering rendering) {
+    final String everythingUrl = placeholder(EVERYTHING_URL);
+    if (string.contains(everythingUrl)) {
+      string = string.replace(everythingUrl, rendering.getResolved(EVERYTHING_URL));
+    }
     for (final PrnfbVariable variable : PrnfbVariable.values()) {
-      string =
-          renderVariable(string, encodeFor, clientKeyStore, shouldAcceptAnyCertificate, variable);
+      final String placeholder = placeholder(variable);
+      if (string.contains(placeholder)) {
+        string = string.replace(placeholder, rendering.getEncoded(variable));
+      }
     }
     return string;
   }
 
-  private String renderVariable(
-      String string,
-      ENCODE_FOR encodeFor,
-      ClientKeyStore clientKeyStore,
-      Boolean shouldAcceptAnyCertificate,
-      final PrnfbVariable variable) {
-    final String regExpStr = regexp(variable);
-    if (containsVariable(string, regExpStr)) {
-      String resolved = "";
-      try {
-        resolved =
-            variable.resolve(
-                pullRequest,
-                pullRequestAction,
-                applicationUser,
-                repositoryService,
-                propertiesService,
-                prnfbNotification,
-                variables,
-                clientKeyStore,
-                shouldAcceptAnyCertificate,
-                securityService);
-        if (resolved == null) {
-          resolved = "";
+  private static int maxPlaceholderLength() {
+    int max = 0;
+    for (final PrnfbVariable variable : PrnfbVariable.values()) {
+      max = Math.max(max, placeholder(variable).length());
+    }
+    return max;
+  }
+
+  private static String placeholder(final PrnfbVariable variable) {
+    return "${" + variable.name() + "}";
+  }
+
+  /**
+   * Variables are replaced in passes, {@link PrnfbVariable#EVERYTHING_URL} first at position 0 and
+   * then every variable at position <code>ordinal + 1</code>. A value inserted at one position is
+   * only rendered by the passes after it.
+   */
+  private void appendRendered(
+      final StringBuilder sb,
+      final PrnfbTemplate template,
+      final int renderedPosition,
+      final Rendering rendering) {
+    for (int i = 0; i < template.getVariableCount(); i++) {
+      sb.append(template.getLiteral(i));
+      rendering.addJoin(sb);
+      final PrnfbVariable variable = template.getVariable(i);
+      if (variable == EVERYTHING_URL && renderedPosition < EVERYTHING_URL_POSITION) {
+        final String value = rendering.getResolved(variable);
+        appendValue(sb, null, value, EVERYTHING_URL_POSITION, rendering);
+      } else if (renderedPosition < positionOf(variable)) {
+        final String resolved = rendering.getResolved(variable);
+        if (resolved.indexOf("${") == -1) {
+          // Encoding never adds placeholders, so the value can be encoded into the buffer
+          encode(resolved, rendering.encodeFor, sb);
+        } else {
+          final String value = rendering.getEncoded(variable);
+          appendValue(sb, null, value, positionOf(variable), rendering);
         }
-      } catch (final Exception e) {
-        LOG.error("Error when resolving " + variable, e);
+      } else {
+        sb.append(placeholder(variable));
       }
-      return getRenderedStringResolved(string, encodeFor, regExpStr, resolved);
+      rendering.addJoin(sb);
+    }
+    sb.append(template.getLiteral(template.getVariableCount()));
+  }
+
+  private void appendValue(
+      final StringBuilder sb,
+      PrnfbTemplate valueTemplate,
+      final String value,
+      final int position,
+      final Rendering rendering) {
+    if (value.indexOf("${") == -1) {
+      sb.append(value);
+      return;
+    }
+    if (valueTemplate == null) {
+      valueTemplate = PrnfbTemplate.parse(value);
+    }
+    appendRendered(sb, valueTemplate, position, rendering);
+  }
+
+  private static int positionOf(final PrnfbVariable variable) {
+    return variable.ordinal() + 1;
+  }
+
+  PrnfbResolveContext createContext(
+      ClientKeyStore clientKeyStore, Boolean shouldAcceptAnyCertificate) {
+    return new PrnfbResolveContext(
+        this,
+        pullRequest,
+        pullRequestAction,
+        applicationUser,
+        repositoryService,
+        propertiesService,
+        prnfbNotification,
+        variables,
+        securityService,
+        variableCache,
+        clientKeyStore,
+        shouldAcceptAnyCertificate,
+        System.currentTimeMillis() + ParallelResolver.DEADLINE_MILLIS);
+  }
+
+  /** State of one call to {@link PrnfbRenderer#render}. */
+  private class Rendering {
+    private final PrnfbResolveContext context;
+    private final Map<PrnfbVariable, String> encoded = new EnumMap<>(PrnfbVariable.class);
+    private final ENCODE_FOR encodeFor;
+    /** Where literals and values of the output are joined. */
+    private int[] joins = new int[16];
+
+    private int joinCount = 0;
+
+    private Rendering(ENCODE_FOR encodeFor, PrnfbResolveContext context) {
+      this.encodeFor = encodeFor;
+      this.context = context;
+    }
+
+    private String getEncoded(final PrnfbVariable variable) {
+      String value = this.encoded.get(variable);
+      if (value == null) {
+        value = encode(getResolved(variable), this.encodeFor);
+        this.encoded.put(variable, value);
+      }
+      return value;
+    }
+
+    /**
+     * Resolves the {@link PrnfbTemplate#getExpensiveVariables() expensive variables} of the
+     * template, that are not already resolved, in parallel.
+     */
+    private void resolveExpensive(final PrnfbTemplate template) {
+      final List<PrnfbVariable> notResolved = new ArrayList<>();
+      for (final PrnfbVariable variable : template.getExpensiveVariables()) {
+        if (this.context.getResolvedIfPresent(variable) == null) {
+          notResolved.add(variable);
+        }
+      }
+      if (notResolved.isEmpty()) {
+        return;
+      }
+      final Map<PrnfbVariable, String> values =
+          notResolved.size() == 1
+              ? singletonMap(notResolved.get(0), this.context.resolve(notResolved.get(0)))
+              : ParallelResolver.resolveAll(
+                  notResolved,
+                  variable -> this.context.resolve(variable),
+                  this.context.getMillisUntilDeadline());
+      for (final Map.Entry<PrnfbVariable, String> entry : values.entrySet()) {
+        this.context.putResolved(entry.getKey(), entry.getValue());
+      }
+    }
+
+    private String getResolved(final PrnfbVariable variable) {
+      return this.context.getResolved(variable);
+    }
+
+    private void addJoin(final StringBuilder sb) {
+      if (this.joinCount == this.joins.length) {
+        this.joins = Arrays.copyOf(this.joins, this.joinCount * 2);
+      }
+      this.joins[this.joinCount++] = sb.length();
+    }
+
+    /**
+     * If a placeholder of a variable starts before, and ends after, where a literal and a value are
+     * joined. Such a placeholder is not in the template, but is rendered by {@link
+     * PrnfbRenderer#renderSequentially}.
+     */
+    private boolean isPlaceholderAtJoin(final StringBuilder sb) {
+      for (int i = 0; i < this.joinCount; i++) {
+        if (isPlaceholderAtJoin(sb, this.joins[i])) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private boolean isPlaceholderAtJoin(final StringBuilder sb, final int join) {
+      final int from = Math.max(0, join - MAX_PLACEHOLDER_LENGTH);
+      for (int start = join - 1; start >= from; start--) {
+        final char c = sb.charAt(start);
+        if (c == PLACEHOLDER_END) {
+          return false;
+        }
+        if (c == '$' && start + 1 < sb.length() && sb.charAt(start + 1) == '{') {
+          final int to = Math.min(sb.length(), start + MAX_PLACEHOLDER_LENGTH);
+          for (int end = Math.max(join, start + 2); end < to; end++) {
+            if (sb.charAt(end) == PLACEHOLDER_END) {
+              return PrnfbVariable.byName(sb.substring(start + 2, end)).isPresent();
+            }
+          }
+          return false;
+        }
+      }
+      return false;
     }
-    return string;
   }
 }
@@ -66,6 +66,7 @@ public class PrnfbRendererFactory {
         this.propertiesService,
         prnfbNotification,
         variables.getVariables(),
-        this.securityService);
+        this.securityService,
+        variables.getVariableCache());
   }
 }
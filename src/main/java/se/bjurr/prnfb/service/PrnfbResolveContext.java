@@ -0,0 +1,203 @@
+package se.bjurr.prnfb.service;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import com.atlassian.bitbucket.pull.PullRequest;
+import com.atlassian.bitbucket.repository.RepositoryService;
+import com.atlassian.bitbucket.server.ApplicationPropertiesService;
+import com.atlassian.bitbucket.user.ApplicationUser;
+import com.atlassian.bitbucket.user.SecurityService;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import se.bjurr.prnfb.http.ClientKeyStore;
+import se.bjurr.prnfb.listener.PrnfbPullRequestAction;
+import se.bjurr.prnfb.service.PrnfbRenderer.ENCODE_FOR;
+import se.bjurr.prnfb.settings.PrnfbCompiledNotification;
+import se.bjurr.prnfb.settings.PrnfbNotification;
+
+/**
+ * Everything a {@link PrnfbVariableResolver} needs to resolve a variable. One is created per
+ * rendering and shared with renderings nested in it, like that of the injection URL.
+ *
+ * <p>Variables resolved with {@link #getResolved(PrnfbVariable)} are memoized here, and in the
+ * {@link PrnfbVariableCache} of the event.
+ */
+public class PrnfbResolveContext {
+  private static final Logger LOG = getLogger(PrnfbResolveContext.class);
+
+  private final ApplicationUser applicationUser;
+  private final ClientKeyStore clientKeyStore;
+  private final long deadline;
+  private PrnfbParticipants participants;
+  private final PrnfbNotification prnfbNotification;
+  private final ApplicationPropertiesService propertiesService;
+  private final PullRequest pullRequest;
+  private final PrnfbPullRequestAction pullRequestAction;
+  private final PrnfbRenderer renderer;
+  private final RepositoryService repositoryService;
+  private final Map<PrnfbVariable, String> resolved = new ConcurrentHashMap<>();
+  private final SecurityService securityService;
+  private final Boolean shouldAcceptAnyCertificate;
+  private final PrnfbVariableCache variableCache;
+  private final Map<PrnfbVariable, String> variables;
+
+  PrnfbResolveContext(
+      PrnfbRenderer renderer,
+      PullRequest pullRequest,
+      PrnfbPullRequestAction pullRequestAction,
+      ApplicationUser applicationUser,
+      RepositoryService repositoryService,
+      ApplicationPropertiesService propertiesService,
+      PrnfbNotification prnfbNotification,
+      Map<PrnfbVariable, String> variables,
+      SecurityService securityService,
+      PrnfbVariableCache variableCache,
+      ClientKeyStore clientKeyStore,
+      Boolean shouldAcceptAnyCertificate,
+      long deadline) {
+    this.renderer = renderer;
+    this.pullRequest = pullRequest;
+    this.pullRequestAction = pullRequestAction;
+    this.applicationUser = applicationUser;
+    this.repositoryService = repositoryService;
+    this.propertiesService = propertiesService;
+    this.prnfbNotification = prnfbNotification;
+    this.variables = variables;
+    this.securityService = securityService;
+    this.variableCache = variableCache;
+    this.clientKeyStore = clientKeyStore;
+    this.shouldAcceptAnyCertificate = shouldAcceptAnyCertificate;
+    this.deadline = deadline;
+  }
+
+  public ApplicationUser getApplicationUser() {
+    return this.applicationUser;
+  }
+
+  public ClientKeyStore getClientKeyStore() {
+    return this.clientKeyStore;
+  }
+
+  /** The notification, as compiled when settings were cached. */
+  public PrnfbCompiledNotification getCompiledNotification() {
+    return SettingsService.getCompiledNotification(this.prnfbNotification);
+  }
+
+  /** When, in milliseconds since the epoch, variables should have been resolved. */
+  public long getDeadline() {
+    return this.deadline;
+  }
+
+  public long getMillisUntilDeadline() {
+    return Math.max(0, this.deadline - System.currentTimeMillis());
+  }
+
+  /** Reviewers and participants are only grouped once, and only if any of them are used. */
+  synchronized PrnfbParticipants getParticipants() {
+    if (this.participants == null) {
+      this.participants = PrnfbParticipants.of(this.pullRequest);
+    }
+    return this.participants;
+  }
+
+  public PrnfbNotification getPrnfbNotification() {
+    return this.prnfbNotification;
+  }
+
+  public ApplicationPropertiesService getPropertiesService() {
+    return this.propertiesService;
+  }
+
+  public PullRequest getPullRequest() {
+    return this.pullRequest;
+  }
+
+  public PrnfbPullRequestAction getPullRequestAction() {
+    return this.pullRequestAction;
+  }
+
+  public RepositoryService getRepositoryService() {
+    return this.repositoryService;
+  }
+
+  /**
+   * The value of the variable, resolved once for this rendering, or taken from the {@link
+   * PrnfbVariableCache}. Never <code>null</code>.
+   */
+  public String getResolved(PrnfbVariable variable) {
+    String value = getResolvedIfPresent(variable);
+    if (value == null) {
+      value = resolve(variable);
+      putResolved(variable, value);
+    }
+    return value;
+  }
+
+  int getResolvedCount() {
+    return this.resolved.size();
+  }
+
+  /** @return the value, or <code>null</code> if the variable is not yet resolved. */
+  String getResolvedIfPresent(PrnfbVariable variable) {
+    String value = this.resolved.get(variable);
+    if (value == null) {
+      value = this.variableCache.get(variable, this.prnfbNotification);
+      if (value != null) {
+        this.resolved.put(variable, value);
+      }
+    }
+    return value;
+  }
+
+  public SecurityService getSecurityService() {
+    return this.securityService;
+  }
+
+  /**
+   * The value of a variable only available for specific events, like {@link
+   * PrnfbVariable#BUTTON_TRIGGER_TITLE}, or an empty string.
+   */
+  public String getVariable(PrnfbVariable variable) {
+    final String value = this.variables.get(variable);
+    if (value == null) {
+      return "";
+    }
+    return value;
+  }
+
+  public Map<PrnfbVariable, String> getVariables() {
+    return this.variables;
+  }
+
+  void putResolved(PrnfbVariable variable, String value) {
+    this.variableCache.put(variable, this.prnfbNotification, value);
+    this.resolved.put(variable, value);
+  }
+
+  /** Renders the string with the variables, and the deadline, of this context. */
+  public String render(String string, ENCODE_FOR encodeFor) {
+    return this.renderer.render(string, encodeFor, this);
+  }
+
+  /**
+   * Resolves the variable, without memoizing it. A variable that fails to resolve is logged and
+   * resolved to an empty string.
+   */
+  String resolve(PrnfbVariable variable) {
+    String value = "";
+    try {
+      value = variable.resolve(this);
+      if (value == null) {
+        value = "";
+      }
+    } catch (final Exception e) {
+      LOG.error("Error when resolving " + variable, e);
+    }
+    return value;
+  }
+
+  public Boolean shouldAcceptAnyCertificate() {
+    return this.shouldAcceptAnyCertificate;
+  }
+}
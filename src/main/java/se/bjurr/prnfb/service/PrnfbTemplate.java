@@ -0,0 +1,143 @@
+package se.bjurr.prnfb.service;
+
+import static se.bjurr.prnfb.service.PrnfbVariable.EVERYTHING_URL;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A template, like a URL or post content, parsed into literal and variable segments. A template
+ * with <code>n</code> variables has <code>n + 1</code> literals, literal <code>i</code> is followed
+ * by variable <code>i</code>. Placeholders not naming a {@link PrnfbVariable} are kept in the
+ * literals.
+ */
+public class PrnfbTemplate {
+  static final int MAX_CACHED_TEMPLATES = 1024;
+
+  private static final String PLACEHOLDER_START = "${";
+  private static final char PLACEHOLDER_END = '}';
+
+  /**
+   * Templates that are not parsed when notifications are compiled, like those of buttons. The
+   * least recently used are removed when there are more than {@link #MAX_CACHED_TEMPLATES}.
+   */
+  private static final Map<String, PrnfbTemplate> cache =
+      Collections.synchronizedMap(
+          new LinkedHashMap<String, PrnfbTemplate>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PrnfbTemplate> eldest) {
+              return size() > MAX_CACHED_TEMPLATES;
+            }
+          });
+
+  /**
+   * Parses the template, or returns the cached result of parsing it earlier. Parsed outside of the
+   * lock of the cache, so a template parsed at the same time by two threads is parsed twice.
+   */
+  public static PrnfbTemplate compile(final String template) {
+    PrnfbTemplate compiled = cache.get(template);
+    if (compiled == null) {
+      compiled = parse(template);
+      cache.put(template, compiled);
+    }
+    return compiled;
+  }
+
+  /** Parses the template without caching it. */
+  public static PrnfbTemplate parse(final String template) {
+    final List<String> literals = new ArrayList<>();
+    final List<PrnfbVariable> variables = new ArrayList<>();
+    int literalStart = 0;
+    int placeholderStart = template.indexOf(PLACEHOLDER_START);
+    while (placeholderStart != -1) {
+      final int nameStart = placeholderStart + PLACEHOLDER_START.length();
+      final int placeholderEnd = template.indexOf(PLACEHOLDER_END, nameStart);
+      if (placeholderEnd == -1) {
+        break;
+      }
+      final PrnfbVariable variable =
+          PrnfbVariable.byName(template.substring(nameStart, placeholderEnd)).orElse(null);
+      if (variable == null) {
+        placeholderStart = template.indexOf(PLACEHOLDER_START, placeholderStart + 1);
+        continue;
+      }
+      literals.add(template.substring(literalStart, placeholderStart));
+      variables.add(variable);
+      literalStart = placeholderEnd + 1;
+      placeholderStart = template.indexOf(PLACEHOLDER_START, literalStart);
+    }
+    literals.add(template.substring(literalStart));
+    return new PrnfbTemplate(
+        literals.toArray(new String[literals.size()]),
+        variables.toArray(new PrnfbVariable[variables.size()]));
+  }
+
+  static int getCacheSize() {
+    return cache.size();
+  }
+
+  private final Set<PrnfbVariable> expensiveVariables;
+  private final String[] literals;
+  private final Set<PrnfbVariable> usedVariables;
+  private final PrnfbVariable[] variables;
+
+  private PrnfbTemplate(String[] literals, PrnfbVariable[] variables) {
+    this.literals = literals;
+    this.variables = variables;
+    final Set<PrnfbVariable> used = EnumSet.noneOf(PrnfbVariable.class);
+    for (final PrnfbVariable variable : variables) {
+      if (variable == EVERYTHING_URL) {
+        used.addAll(EnumSet.allOf(PrnfbVariable.class));
+      } else {
+        used.add(variable);
+      }
+    }
+    final Set<PrnfbVariable> expensive = EnumSet.noneOf(PrnfbVariable.class);
+    for (final PrnfbVariable variable : used) {
+      if (variable.isExpensive()) {
+        expensive.add(variable);
+      }
+    }
+    this.usedVariables = Collections.unmodifiableSet(used);
+    this.expensiveVariables = Collections.unmodifiableSet(expensive);
+  }
+
+  /**
+   * The {@link PrnfbVariable#isExpensive() expensive} variables used, including those used by
+   * {@link PrnfbVariable#EVERYTHING_URL}.
+   */
+  public Set<PrnfbVariable> getExpensiveVariables() {
+    return this.expensiveVariables;
+  }
+
+  /**
+   * The variables used, all variables if {@link PrnfbVariable#EVERYTHING_URL} is used. Variables
+   * in values of other variables are not included.
+   */
+  public Set<PrnfbVariable> getUsedVariables() {
+    return this.usedVariables;
+  }
+
+  public String getLiteral(int i) {
+    return this.literals[i];
+  }
+
+  public PrnfbVariable getVariable(int i) {
+    return this.variables[i];
+  }
+
+  public int getVariableCount() {
+    return this.variables.length;
+  }
+
+  public boolean hasVariables() {
+    return this.variables.length > 0;
+  }
+}
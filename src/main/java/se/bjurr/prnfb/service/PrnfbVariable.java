@@ -3,21 +3,18 @@ package se.bjurr.prnfb.service;
 import static com.atlassian.bitbucket.pull.PullRequestParticipantStatus.APPROVED;
 import static com.atlassian.bitbucket.pull.PullRequestParticipantStatus.NEEDS_WORK;
 import static com.atlassian.bitbucket.pull.PullRequestParticipantStatus.UNAPPROVED;
-import static java.util.regex.Pattern.compile;
 import static se.bjurr.prnfb.http.UrlInvoker.HTTP_METHOD.GET;
 import static se.bjurr.prnfb.http.UrlInvoker.urlInvoker;
+import static se.bjurr.prnfb.jfr.PrnfbFlightRecorder.beginInjectionUrlFetch;
+import static se.bjurr.prnfb.jfr.PrnfbFlightRecorder.endInjectionUrlFetch;
 import static se.bjurr.prnfb.service.RepoProtocol.http;
 import static se.bjurr.prnfb.service.RepoProtocol.ssh;
 
 import com.atlassian.bitbucket.permission.Permission;
 import com.atlassian.bitbucket.pull.PullRequest;
-import com.atlassian.bitbucket.pull.PullRequestParticipant;
-import com.atlassian.bitbucket.pull.PullRequestParticipantStatus;
 import com.atlassian.bitbucket.repository.Repository;
 import com.atlassian.bitbucket.repository.RepositoryCloneLinksRequest;
 import com.atlassian.bitbucket.repository.RepositoryService;
-import com.atlassian.bitbucket.server.ApplicationPropertiesService;
-import com.atlassian.bitbucket.user.ApplicationUser;
 import com.atlassian.bitbucket.user.SecurityService;
 import com.atlassian.bitbucket.util.NamedLink;
 import com.atlassian.bitbucket.util.Operation;
@@ -25,1445 +22,136 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.regex.Matcher;
-import java.util.stream.Collectors;
-import se.bjurr.prnfb.http.ClientKeyStore;
+import java.util.regex.Pattern;
 import se.bjurr.prnfb.http.HttpResponse;
 import se.bjurr.prnfb.http.Invoker;
 import se.bjurr.prnfb.http.UrlInvoker;
-import se.bjurr.prnfb.listener.PrnfbPullRequestAction;
+import se.bjurr.prnfb.jfr.PrnfbRecording;
 import se.bjurr.prnfb.service.PrnfbRenderer.ENCODE_FOR;
+import se.bjurr.prnfb.settings.PrnfbCompiledNotification;
 import se.bjurr.prnfb.settings.PrnfbNotification;
 
 public enum PrnfbVariable {
-  BUTTON_TRIGGER_TITLE(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction pullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return getOrEmpty(variables, BUTTON_TRIGGER_TITLE);
-        }
-      }),
-  EVERYTHING_URL(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction pullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          final List<String> parts = new ArrayList<>();
-          for (final PrnfbVariable v : PrnfbVariable.values()) {
-            if (v != EVERYTHING_URL //
-                && v != PULL_REQUEST_DESCRIPTION) {
-              parts.add(v.name() + "=${" + v.name() + "}");
-            }
-          }
-          Collections.sort(parts);
-          return String.join("&", parts);
-        }
-      }),
-  VARIABLE_REGEX_MATCH(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction pullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          if (prnfbNotification == null || !prnfbNotification.getVariableName().isPresent()) {
-            return "";
-          }
-          final String variableName = prnfbNotification.getVariableName().get();
-          String variableValue = "";
-          for (final PrnfbVariable v : PrnfbVariable.values()) {
-            if (v.name().equals(variableName) && v != VARIABLE_REGEX_MATCH) {
-              variableValue =
-                  v.resolve(
-                      pullRequest,
-                      pullRequestAction,
-                      applicationUser,
-                      repositoryService,
-                      propertiesService,
-                      prnfbNotification,
-                      variables,
-                      clientKeyStore,
-                      shouldAcceptAnyCertificate,
-                      securityService);
-            }
-          }
-          if (prnfbNotification.getVariableRegex().isPresent()) {
-            final Matcher m =
-                compile(prnfbNotification.getVariableRegex().get()).matcher(variableValue);
-            if (!m.find()) {
-              return "";
-            }
-            if (m.groupCount() == 0) {
-              return m.group();
-            }
-            return m.group(1);
-          } else {
-            return variableValue;
-          }
-        }
-      }),
-  INJECTION_URL_VALUE(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction pullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          if (prnfbNotification == null || !prnfbNotification.getInjectionUrl().isPresent()) {
-            return "";
-          }
-          final PrnfbRenderer renderer =
-              new PrnfbRenderer(
-                  pullRequest,
-                  pullRequestAction,
-                  applicationUser,
-                  repositoryService,
-                  propertiesService,
-                  prnfbNotification,
-                  variables,
-                  securityService);
-          final String renderedUrlParam =
-              renderer.render(
-                  prnfbNotification.getInjectionUrl().get(),
-                  ENCODE_FOR.URL,
-                  clientKeyStore,
-                  shouldAcceptAnyCertificate);
-          final UrlInvoker urlInvoker =
-              urlInvoker() //
-                  .withUrlParam(renderedUrlParam) //
-                  .withMethod(GET) //
-                  .withProxyServer(prnfbNotification.getProxyServer()) //
-                  .withProxyPort(prnfbNotification.getProxyPort()) //
-                  .withProxySchema(prnfbNotification.getProxySchema()) //
-                  .withProxyUser(prnfbNotification.getProxyUser()) //
-                  .withProxyPassword(prnfbNotification.getProxyPassword()) //
-                  .appendBasicAuth(prnfbNotification) //
-                  .withClientKeyStore(clientKeyStore) //
-                  .shouldAcceptAnyCertificate(shouldAcceptAnyCertificate);
-          createInvoker() //
-              .invoke(urlInvoker);
-          final String rawResponse = urlInvoker.getResponse().getContent().trim();
-          if (prnfbNotification.getInjectionUrlRegexp().isPresent()) {
-            final Matcher m =
-                compile(prnfbNotification.getInjectionUrlRegexp().get()).matcher(rawResponse);
-            if (!m.find()) {
-              return "";
-            }
-            if (m.groupCount() == 0) {
-              return m.group();
-            }
-            return m.group(1);
-          } else {
-            return rawResponse;
-          }
-        }
-      }),
-  PULL_REQUEST_ACTION(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction prnfbPullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return prnfbPullRequestAction.name();
-        }
-      }),
+  BUTTON_TRIGGER_TITLE,
+  EVERYTHING_URL(context -> everythingUrl()),
+  VARIABLE_REGEX_MATCH(context -> variableRegexMatch(context)),
+  INJECTION_URL_VALUE(context -> injectionUrlValue(context)),
+  PULL_REQUEST_ACTION(context -> context.getPullRequestAction().name()),
   PULL_REQUEST_AUTHOR_DISPLAY_NAME(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction prnfbPullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return pullRequest.getAuthor().getUser().getDisplayName();
-        }
-      }),
+      context -> context.getPullRequest().getAuthor().getUser().getDisplayName()),
   PULL_REQUEST_AUTHOR_EMAIL(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction prnfbPullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return pullRequest.getAuthor().getUser().getEmailAddress();
-        }
-      }),
-  PULL_REQUEST_AUTHOR_ID(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction prnfbPullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return pullRequest.getAuthor().getUser().getId() + "";
-        }
-      }),
-  PULL_REQUEST_AUTHOR_NAME(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction prnfbPullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return pullRequest.getAuthor().getUser().getName();
-        }
-      }),
-  PULL_REQUEST_AUTHOR_SLUG(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction prnfbPullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return pullRequest.getAuthor().getUser().getSlug();
-        }
-      }),
-  PULL_REQUEST_COMMENT_ACTION(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction prnfbPullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return getOrEmpty(variables, PULL_REQUEST_COMMENT_ACTION);
-        }
-      }),
-  PULL_REQUEST_COMMENT_TEXT(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction prnfbPullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return getOrEmpty(variables, PULL_REQUEST_COMMENT_TEXT);
-        }
-      }),
-  PULL_REQUEST_COMMENT_ID(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction prnfbPullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return getOrEmpty(variables, PULL_REQUEST_COMMENT_ID);
-        }
-      }),
-  PULL_REQUEST_DESCRIPTION(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction pullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return pullRequest.getDescription();
-        }
-      }),
-  PULL_REQUEST_FROM_BRANCH(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction prnfbPullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return pullRequest.getFromRef().getDisplayId();
-        }
-      }),
-  PULL_REQUEST_FROM_HASH(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction prnfbPullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return pullRequest.getFromRef().getLatestCommit();
-        }
-      }),
-  PULL_REQUEST_PREVIOUS_FROM_HASH(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction prnfbPullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return getOrEmpty(variables, PULL_REQUEST_PREVIOUS_FROM_HASH);
-        }
-      }),
-  PULL_REQUEST_PREVIOUS_TO_HASH(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction prnfbPullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return getOrEmpty(variables, PULL_REQUEST_PREVIOUS_TO_HASH);
-        }
-      }),
+      context -> context.getPullRequest().getAuthor().getUser().getEmailAddress()),
+  PULL_REQUEST_AUTHOR_ID(context -> context.getPullRequest().getAuthor().getUser().getId() + ""),
+  PULL_REQUEST_AUTHOR_NAME(context -> context.getPullRequest().getAuthor().getUser().getName()),
+  PULL_REQUEST_AUTHOR_SLUG(context -> context.getPullRequest().getAuthor().getUser().getSlug()),
+  PULL_REQUEST_COMMENT_ACTION,
+  PULL_REQUEST_COMMENT_TEXT,
+  PULL_REQUEST_COMMENT_ID,
+  PULL_REQUEST_DESCRIPTION(context -> context.getPullRequest().getDescription()),
+  PULL_REQUEST_FROM_BRANCH(context -> context.getPullRequest().getFromRef().getDisplayId()),
+  PULL_REQUEST_FROM_HASH(context -> context.getPullRequest().getFromRef().getLatestCommit()),
+  PULL_REQUEST_PREVIOUS_FROM_HASH,
+  PULL_REQUEST_PREVIOUS_TO_HASH,
   PULL_REQUEST_FROM_HTTP_CLONE_URL(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction prnfbPullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return cloneUrlFromRepository(
-              http,
-              pullRequest.getFromRef().getRepository(),
-              repositoryService,
-              securityService,
-              true);
-        }
-      }),
-  PULL_REQUEST_FROM_ID(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction prnfbPullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return pullRequest.getFromRef().getId();
-        }
-      }),
+      context ->
+          cloneUrlFromRepository(
+              context, http, context.getPullRequest().getFromRef().getRepository(), true)),
+  PULL_REQUEST_FROM_ID(context -> context.getPullRequest().getFromRef().getId()),
   PULL_REQUEST_FROM_REPO_ID(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction prnfbPullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return pullRequest.getFromRef().getRepository().getId() + "";
-        }
-      }),
+      context -> context.getPullRequest().getFromRef().getRepository().getId() + ""),
   PULL_REQUEST_FROM_REPO_NAME(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction prnfbPullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return pullRequest.getFromRef().getRepository().getName() + "";
-        }
-      }),
+      context -> context.getPullRequest().getFromRef().getRepository().getName() + ""),
   PULL_REQUEST_FROM_REPO_PROJECT_ID(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction prnfbPullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return pullRequest.getFromRef().getRepository().getProject().getId() + "";
-        }
-      }),
+      context -> context.getPullRequest().getFromRef().getRepository().getProject().getId() + ""),
   PULL_REQUEST_FROM_REPO_PROJECT_KEY(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction prnfbPullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return pullRequest.getFromRef().getRepository().getProject().getKey();
-        }
-      }),
+      context -> context.getPullRequest().getFromRef().getRepository().getProject().getKey()),
   PULL_REQUEST_FROM_REPO_SLUG(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction prnfbPullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return pullRequest.getFromRef().getRepository().getSlug() + "";
-        }
-      }),
+      context -> context.getPullRequest().getFromRef().getRepository().getSlug() + ""),
   PULL_REQUEST_FROM_SSH_CLONE_URL(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction prnfbPullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return cloneUrlFromRepository(
-              ssh,
-              pullRequest.getFromRef().getRepository(),
-              repositoryService,
-              securityService,
-              false);
-        }
-      }),
-  PULL_REQUEST_ID(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction prnfbPullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return pullRequest.getId() + "";
-        }
-      }),
-  PULL_REQUEST_MERGE_COMMIT(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction prnfsPullRequestAction,
-            final ApplicationUser stashUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfsNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return getOrEmpty(variables, PULL_REQUEST_MERGE_COMMIT);
-        }
-      }),
+      context ->
+          cloneUrlFromRepository(
+              context, ssh, context.getPullRequest().getFromRef().getRepository(), false)),
+  PULL_REQUEST_ID(context -> context.getPullRequest().getId() + ""),
+  PULL_REQUEST_MERGE_COMMIT,
   PULL_REQUEST_PARTICIPANTS_APPROVED_COUNT(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction pullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return Long.toString(
-              pullRequest.getParticipants().stream().filter(p -> p.isApproved()).count());
-        }
-      }),
+      context -> Integer.toString(context.getParticipants().getParticipantsApprovedCount())),
   PULL_REQUEST_PARTICIPANTS_EMAIL(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction pullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-
-          return listToString(
-              pullRequest
-                  .getParticipants()
-                  .stream()
-                  .map(p -> p.getUser().getEmailAddress())
-                  .collect(Collectors.toList()));
-        }
-      }),
-  PULL_REQUEST_REVIEWERS(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction pullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-
-          return listToString(
-              pullRequest
-                  .getReviewers()
-                  .stream()
-                  .map(p -> p.getUser().getDisplayName())
-                  .collect(Collectors.toList()));
-        }
-      }),
+      context -> context.getParticipants().getParticipants().getEmails()),
+  PULL_REQUEST_REVIEWERS(context -> context.getParticipants().getReviewers().getDisplayNames()),
   PULL_REQUEST_REVIEWERS_APPROVED_COUNT(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction pullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return Long.toString(
-              pullRequest.getReviewers().stream().filter(p -> p.isApproved()).count());
-        }
-      }),
-  PULL_REQUEST_REVIEWERS_EMAIL(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction pullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-
-          return listToString(
-              pullRequest
-                  .getReviewers()
-                  .stream()
-                  .map(p -> p.getUser().getEmailAddress())
-                  .collect(Collectors.toList()));
-        }
-      }),
+      context -> Integer.toString(context.getParticipants().getReviewersApprovedCount())),
+  PULL_REQUEST_REVIEWERS_EMAIL(context -> context.getParticipants().getReviewers().getEmails()),
   PULL_REQUEST_REVIEWERS_NEEDS_WORK_SLUG(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction pullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-
-          return listToString(
-              pullRequest
-                  .getReviewers()
-                  .stream()
-                  .filter(p -> p.getStatus() == NEEDS_WORK)
-                  .map(p -> p.getUser().getSlug())
-                  .collect(Collectors.toList()));
-        }
-      }),
+      context -> context.getParticipants().getReviewers(NEEDS_WORK).getSlugs()),
   PULL_REQUEST_REVIEWERS_NEEDS_WORK_EMAIL(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction pullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-
-          return listToString(
-              pullRequest
-                  .getReviewers()
-                  .stream()
-                  .filter(p -> p.getStatus() == NEEDS_WORK)
-                  .map(p -> p.getUser().getEmailAddress())
-                  .collect(Collectors.toList()));
-        }
-      }),
+      context -> context.getParticipants().getReviewers(NEEDS_WORK).getEmails()),
   PULL_REQUEST_REVIEWERS_NEEDS_WORK_NAME(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction pullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-
-          return listToString(
-              pullRequest
-                  .getReviewers()
-                  .stream()
-                  .filter(p -> p.getStatus() == NEEDS_WORK)
-                  .map(p -> p.getUser().getName())
-                  .collect(Collectors.toList()));
-        }
-      }),
+      context -> context.getParticipants().getReviewers(NEEDS_WORK).getNames()),
   PULL_REQUEST_REVIEWERS_NEEDS_WORK_DISPLAY_NAME(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction pullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-
-          return listToString(
-              pullRequest
-                  .getReviewers()
-                  .stream()
-                  .filter(p -> p.getStatus() == NEEDS_WORK)
-                  .map(p -> p.getUser().getDisplayName())
-                  .collect(Collectors.toList()));
-        }
-      }),
+      context -> context.getParticipants().getReviewers(NEEDS_WORK).getDisplayNames()),
   PULL_REQUEST_REVIEWERS_UNAPPROVED_SLUG(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction pullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-
-          return listToString(
-              pullRequest
-                  .getReviewers()
-                  .stream()
-                  .filter(p -> p.getStatus() == UNAPPROVED)
-                  .map(p -> p.getUser().getSlug())
-                  .collect(Collectors.toList()));
-        }
-      }),
+      context -> context.getParticipants().getReviewers(UNAPPROVED).getSlugs()),
   PULL_REQUEST_REVIEWERS_UNAPPROVED_EMAIL(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction pullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-
-          return listToString(
-              pullRequest
-                  .getReviewers()
-                  .stream()
-                  .filter(p -> p.getStatus() == UNAPPROVED)
-                  .map(p -> p.getUser().getEmailAddress())
-                  .collect(Collectors.toList()));
-        }
-      }),
+      context -> context.getParticipants().getReviewers(UNAPPROVED).getEmails()),
   PULL_REQUEST_REVIEWERS_UNAPPROVED_NAME(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction pullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-
-          return listToString(
-              pullRequest
-                  .getReviewers()
-                  .stream()
-                  .filter(p -> p.getStatus() == UNAPPROVED)
-                  .map(p -> p.getUser().getName())
-                  .collect(Collectors.toList()));
-        }
-      }),
+      context -> context.getParticipants().getReviewers(UNAPPROVED).getNames()),
   PULL_REQUEST_REVIEWERS_UNAPPROVED_DISPLAY_NAME(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction pullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-
-          return listToString(
-              pullRequest
-                  .getReviewers()
-                  .stream()
-                  .filter(p -> p.getStatus() == UNAPPROVED)
-                  .map(p -> p.getUser().getDisplayName())
-                  .collect(Collectors.toList()));
-        }
-      }),
+      context -> context.getParticipants().getReviewers(UNAPPROVED).getDisplayNames()),
   PULL_REQUEST_REVIEWERS_APPROVED_SLUG(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction pullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-
-          return listToString(
-              pullRequest
-                  .getReviewers()
-                  .stream()
-                  .filter(p -> p.getStatus() == APPROVED)
-                  .map(p -> p.getUser().getSlug())
-                  .collect(Collectors.toList()));
-        }
-      }),
+      context -> context.getParticipants().getReviewers(APPROVED).getSlugs()),
   PULL_REQUEST_REVIEWERS_APPROVED_EMAIL(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction pullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-
-          return listToString(
-              pullRequest
-                  .getReviewers()
-                  .stream()
-                  .filter(p -> p.getStatus() == APPROVED)
-                  .map(p -> p.getUser().getEmailAddress())
-                  .collect(Collectors.toList()));
-        }
-      }),
+      context -> context.getParticipants().getReviewers(APPROVED).getEmails()),
   PULL_REQUEST_REVIEWERS_APPROVED_NAME(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction pullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-
-          return listToString(
-              pullRequest
-                  .getReviewers()
-                  .stream()
-                  .filter(p -> p.getStatus() == APPROVED)
-                  .map(p -> p.getUser().getName())
-                  .collect(Collectors.toList()));
-        }
-      }),
+      context -> context.getParticipants().getReviewers(APPROVED).getNames()),
   PULL_REQUEST_REVIEWERS_APPROVED_DISPLAY_NAME(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction pullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return listToString(
-              pullRequest
-                  .getReviewers()
-                  .stream()
-                  .filter(p -> p.getStatus() == APPROVED)
-                  .map(p -> p.getUser().getDisplayName())
-                  .collect(Collectors.toList()));
-        }
-      }),
-  PULL_REQUEST_REVIEWERS_ID(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction pullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-
-          return listToString(
-              pullRequest
-                  .getReviewers()
-                  .stream()
-                  .map(p -> "" + p.getUser().getId())
-                  .collect(Collectors.toList()));
-        }
-      }),
-  PULL_REQUEST_REVIEWERS_SLUG(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction pullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-
-          return listToString(
-              pullRequest
-                  .getReviewers()
-                  .stream()
-                  .map(p -> p.getUser().getSlug())
-                  .collect(Collectors.toList()));
-        }
-      }),
-  PULL_REQUEST_STATE(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction prnfbPullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return pullRequest.getState().name();
-        }
-      }),
-  PULL_REQUEST_TITLE(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction pullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return pullRequest.getTitle();
-        }
-      }),
-  PULL_REQUEST_TO_BRANCH(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction prnfbPullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return pullRequest.getToRef().getDisplayId();
-        }
-      }),
-  PULL_REQUEST_TO_HASH(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction prnfbPullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return pullRequest.getToRef().getLatestCommit();
-        }
-      }),
+      context -> context.getParticipants().getReviewers(APPROVED).getDisplayNames()),
+  PULL_REQUEST_REVIEWERS_ID(context -> context.getParticipants().getReviewers().getIds()),
+  PULL_REQUEST_REVIEWERS_SLUG(context -> context.getParticipants().getReviewers().getSlugs()),
+  PULL_REQUEST_STATE(context -> context.getPullRequest().getState().name()),
+  PULL_REQUEST_TITLE(context -> context.getPullRequest().getTitle()),
+  PULL_REQUEST_TO_BRANCH(context -> context.getPullRequest().getToRef().getDisplayId()),
+  PULL_REQUEST_TO_HASH(context -> context.getPullRequest().getToRef().getLatestCommit()),
   PULL_REQUEST_TO_HTTP_CLONE_URL(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction prnfbPullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return cloneUrlFromRepository(
-              http,
-              pullRequest.getToRef().getRepository(),
-              repositoryService,
-              securityService,
-              true);
-        }
-      }),
-  PULL_REQUEST_TO_ID(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction prnfbPullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return pullRequest.getToRef().getId();
-        }
-      }),
+      context ->
+          cloneUrlFromRepository(
+              context, http, context.getPullRequest().getToRef().getRepository(), true)),
+  PULL_REQUEST_TO_ID(context -> context.getPullRequest().getToRef().getId()),
   PULL_REQUEST_TO_REPO_ID(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction prnfbPullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return pullRequest.getToRef().getRepository().getId() + "";
-        }
-      }),
+      context -> context.getPullRequest().getToRef().getRepository().getId() + ""),
   PULL_REQUEST_TO_REPO_NAME(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction prnfbPullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return pullRequest.getToRef().getRepository().getName() + "";
-        }
-      }),
+      context -> context.getPullRequest().getToRef().getRepository().getName() + ""),
   PULL_REQUEST_TO_REPO_PROJECT_ID(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction prnfbPullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return pullRequest.getToRef().getRepository().getProject().getId() + "";
-        }
-      }),
+      context -> context.getPullRequest().getToRef().getRepository().getProject().getId() + ""),
   PULL_REQUEST_TO_REPO_PROJECT_KEY(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction prnfbPullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return pullRequest.getToRef().getRepository().getProject().getKey();
-        }
-      }),
+      context -> context.getPullRequest().getToRef().getRepository().getProject().getKey()),
   PULL_REQUEST_TO_REPO_SLUG(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction prnfbPullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return pullRequest.getToRef().getRepository().getSlug() + "";
-        }
-      }),
+      context -> context.getPullRequest().getToRef().getRepository().getSlug() + ""),
   PULL_REQUEST_TO_SSH_CLONE_URL(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction prnfbPullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return cloneUrlFromRepository(
-              ssh,
-              pullRequest.getToRef().getRepository(),
-              repositoryService,
-              securityService,
-              false);
-        }
-      }),
-  PULL_REQUEST_URL(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction prnfbPullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return getPullRequestUrl(propertiesService, pullRequest);
-        }
-      }),
-  PULL_REQUEST_USER_GROUPS(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction prnfbPullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return getOrEmpty(variables, PULL_REQUEST_USER_GROUPS);
-        }
-      }),
-  PULL_REQUEST_USER_DISPLAY_NAME(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction prnfbPullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return applicationUser.getDisplayName();
-        }
-      }),
-  PULL_REQUEST_USER_EMAIL_ADDRESS(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction prnfbPullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return applicationUser.getEmailAddress();
-        }
-      }),
-  PULL_REQUEST_USER_ID(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction pullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return applicationUser.getId() + "";
-        }
-      }),
-  PULL_REQUEST_USER_NAME(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction pullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return applicationUser.getName();
-        }
-      }),
-  PULL_REQUEST_USER_SLUG(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction pullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return applicationUser.getSlug();
-        }
-      }),
-  PULL_REQUEST_VERSION(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction prnfbPullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return pullRequest.getVersion() + "";
-        }
-      }),
-  BUTTON_FORM_DATA(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction pullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return getOrEmpty(variables, BUTTON_FORM_DATA);
-        }
-      }),
+      context ->
+          cloneUrlFromRepository(
+              context, ssh, context.getPullRequest().getToRef().getRepository(), false)),
+  PULL_REQUEST_URL(context -> getPullRequestUrl(context)),
+  PULL_REQUEST_USER_GROUPS,
+  PULL_REQUEST_USER_DISPLAY_NAME(context -> context.getApplicationUser().getDisplayName()),
+  PULL_REQUEST_USER_EMAIL_ADDRESS(context -> context.getApplicationUser().getEmailAddress()),
+  PULL_REQUEST_USER_ID(context -> context.getApplicationUser().getId() + ""),
+  PULL_REQUEST_USER_NAME(context -> context.getApplicationUser().getName()),
+  PULL_REQUEST_USER_SLUG(context -> context.getApplicationUser().getSlug()),
+  PULL_REQUEST_VERSION(context -> context.getPullRequest().getVersion() + ""),
+  BUTTON_FORM_DATA,
   PULL_REQUEST_REVIEWERS_NEEDS_WORK_COUNT(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction pullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return countParticipantsWithStatus(pullRequest.getReviewers(), NEEDS_WORK);
-        }
-      }),
+      context -> Integer.toString(context.getParticipants().getReviewers(NEEDS_WORK).getCount())),
   PULL_REQUEST_REVIEWERS_UNAPPROVED_COUNT(
-      new PrnfbVariableResolver() {
-        @Override
-        public String resolve(
-            final PullRequest pullRequest,
-            final PrnfbPullRequestAction pullRequestAction,
-            final ApplicationUser applicationUser,
-            final RepositoryService repositoryService,
-            final ApplicationPropertiesService propertiesService,
-            final PrnfbNotification prnfbNotification,
-            final Map<PrnfbVariable, String> variables,
-            final ClientKeyStore clientKeyStore,
-            final boolean shouldAcceptAnyCertificate,
-            final SecurityService securityService) {
-          return countParticipantsWithStatus(pullRequest.getReviewers(), UNAPPROVED);
-        }
-      });
-
-  private static String countParticipantsWithStatus(
-      final Set<PullRequestParticipant> participants, final PullRequestParticipantStatus status) {
-    Integer count = 0;
-    for (final PullRequestParticipant participant : participants) {
-      if (participant.getStatus() == status) {
-        count++;
-      }
-    }
-    return count.toString();
-  }
+      context -> Integer.toString(context.getParticipants().getReviewers(UNAPPROVED).getCount()));
 
   private static Invoker mockedInvoker =
       new Invoker() {
@@ -1474,6 +162,27 @@ public enum PrnfbVariable {
       };
 
   private static String cloneUrlFromRepository(
+      final PrnfbResolveContext context,
+      final RepoProtocol protocol,
+      final Repository repository,
+      final boolean stripUserInfo) {
+    final URI baseUrl = context.getPropertiesService().getBaseUrl();
+    final String cached = CloneUrlCache.get(repository.getId(), protocol, stripUserInfo, baseUrl);
+    if (cached != null) {
+      return cached;
+    }
+    final String cloneUrl =
+        doCloneUrlFromRepository(
+            protocol,
+            repository,
+            context.getRepositoryService(),
+            context.getSecurityService(),
+            stripUserInfo);
+    CloneUrlCache.put(repository.getId(), protocol, stripUserInfo, baseUrl, cloneUrl);
+    return cloneUrl;
+  }
+
+  private static String doCloneUrlFromRepository(
       final RepoProtocol protocol,
       final Repository repository,
       final RepositoryService repositoryService,
@@ -1534,6 +243,12 @@ public enum PrnfbVariable {
             });
   }
 
+  private static HttpResponse fetchInjectionUrl(final UrlInvoker urlInvoker) {
+    createInvoker() //
+        .invoke(urlInvoker);
+    return urlInvoker.getResponse();
+  }
+
   private static Invoker createInvoker() {
     if (mockedInvoker != null) {
       return mockedInvoker;
@@ -1546,17 +261,101 @@ public enum PrnfbVariable {
     };
   }
 
-  private static String getOrEmpty(
-      final Map<PrnfbVariable, String> variables, final PrnfbVariable variable) {
-    if (variables.get(variable) == null) {
+  private static String everythingUrl() {
+    final List<String> parts = new ArrayList<>();
+    for (final PrnfbVariable v : PrnfbVariable.values()) {
+      if (v != EVERYTHING_URL //
+          && v != PULL_REQUEST_DESCRIPTION) {
+        parts.add(v.name() + "=${" + v.name() + "}");
+      }
+    }
+    Collections.sort(parts);
+    return String.join("&", parts);
+  }
+
+  private static String variableRegexMatch(final PrnfbResolveContext context) {
+    final PrnfbNotification prnfbNotification = context.getPrnfbNotification();
+    if (prnfbNotification == null || !prnfbNotification.getVariableName().isPresent()) {
       return "";
     }
-    return variables.get(variable);
+    final String variableValue =
+        byName(prnfbNotification.getVariableName().get()) //
+            .filter(v -> v != VARIABLE_REGEX_MATCH) //
+            .map(v -> context.getResolved(v)) //
+            .orElse("");
+    final Optional<Pattern> variableRegex = context.getCompiledNotification().getVariableRegex();
+    if (variableRegex.isPresent()) {
+      final Matcher m = variableRegex.get().matcher(variableValue);
+      if (!m.find()) {
+        return "";
+      }
+      if (m.groupCount() == 0) {
+        return m.group();
+      }
+      return m.group(1);
+    } else {
+      return variableValue;
+    }
+  }
+
+  private static String injectionUrlValue(final PrnfbResolveContext context) {
+    final PrnfbNotification prnfbNotification = context.getPrnfbNotification();
+    if (prnfbNotification == null || !prnfbNotification.getInjectionUrl().isPresent()) {
+      return "";
+    }
+    final PrnfbCompiledNotification compiled = context.getCompiledNotification();
+    final PrnfbRecording recording = beginInjectionUrlFetch();
+    final String renderedUrlParam =
+        context.render(prnfbNotification.getInjectionUrl().get(), ENCODE_FOR.URL);
+    final UrlInvoker urlInvoker =
+        urlInvoker() //
+            .withUrlParam(renderedUrlParam) //
+            .withMethod(GET) //
+            .withProxyServer(prnfbNotification.getProxyServer()) //
+            .withProxyPort(prnfbNotification.getProxyPort()) //
+            .withProxySchema(prnfbNotification.getProxySchema()) //
+            .withProxyUser(prnfbNotification.getProxyUser()) //
+            .withProxyPassword(prnfbNotification.getProxyPassword()) //
+            .withHttpHostForProxy(compiled.getProxy()) //
+            .appendBasicAuth(compiled) //
+            .withClientKeyStore(context.getClientKeyStore()) //
+            .withNotificationUuid(prnfbNotification.getUuid()) //
+            .withPullRequestId(context.getPullRequest().getId()) //
+            .shouldAcceptAnyCertificate(context.shouldAcceptAnyCertificate());
+    final Integer cacheSeconds = prnfbNotification.getInjectionUrlCacheSeconds();
+    final HttpResponse response;
+    try {
+      if (cacheSeconds != null && cacheSeconds > 0) {
+        response =
+            InjectionUrlCache.get(
+                prnfbNotification.getUuid(),
+                renderedUrlParam,
+                cacheSeconds,
+                () -> fetchInjectionUrl(urlInvoker));
+      } else {
+        response = fetchInjectionUrl(urlInvoker);
+      }
+    } finally {
+      endInjectionUrlFetch(recording, prnfbNotification, context.getPullRequest());
+    }
+    final String rawResponse = response.getContent().trim();
+    if (compiled.getInjectionUrlRegexp().isPresent()) {
+      final Matcher m = compiled.getInjectionUrlRegexp().get().matcher(rawResponse);
+      if (!m.find()) {
+        return "";
+      }
+      if (m.groupCount() == 0) {
+        return m.group();
+      }
+      return m.group(1);
+    } else {
+      return rawResponse;
+    }
   }
 
-  private static String getPullRequestUrl(
-      final ApplicationPropertiesService propertiesService, final PullRequest pullRequest) {
-    return propertiesService.getBaseUrl()
+  private static String getPullRequestUrl(final PrnfbResolveContext context) {
+    final PullRequest pullRequest = context.getPullRequest();
+    return context.getPropertiesService().getBaseUrl()
         + "/projects/"
         + pullRequest.getToRef().getRepository().getProject().getKey()
         + "/repos/"
@@ -1565,43 +364,59 @@ public enum PrnfbVariable {
         + pullRequest.getId();
   }
 
-  private static String listToString(final List<String> list) {
-    final List<String> copy = new ArrayList<>(list);
-    Collections.sort(copy);
-    return String.join(",", copy);
+  /** The variable with the name, found without scanning all variables. */
+  public static Optional<PrnfbVariable> byName(final String name) {
+    return Optional.ofNullable(BY_NAME.get(name));
   }
 
   public static void setInvoker(final Invoker invoker) {
     PrnfbVariable.mockedInvoker = invoker;
   }
 
-  private PrnfbVariableResolver resolver;
+  private static final Set<PrnfbVariable> EXPENSIVE =
+      EnumSet.of(
+          INJECTION_URL_VALUE,
+          PULL_REQUEST_FROM_HTTP_CLONE_URL,
+          PULL_REQUEST_FROM_SSH_CLONE_URL,
+          PULL_REQUEST_TO_HTTP_CLONE_URL,
+          PULL_REQUEST_TO_SSH_CLONE_URL);
+
+  private static final Map<String, PrnfbVariable> BY_NAME = new HashMap<>();
+
+  static {
+    for (final PrnfbVariable variable : PrnfbVariable.values()) {
+      BY_NAME.put(variable.name(), variable);
+    }
+  }
+
+  private final PrnfbVariableResolver resolver;
+
+  /**
+   * Variables only available for specific events, they are resolved from the {@link
+   * VariablesContext}.
+   */
+  PrnfbVariable() {
+    this.resolver = null;
+  }
 
   PrnfbVariable(final PrnfbVariableResolver resolver) {
     this.resolver = resolver;
   }
 
-  public String resolve(
-      final PullRequest pullRequest,
-      final PrnfbPullRequestAction pullRequestAction,
-      final ApplicationUser applicationUser,
-      final RepositoryService repositoryService,
-      final ApplicationPropertiesService propertiesService,
-      final PrnfbNotification prnfbNotification,
-      final Map<PrnfbVariable, String> variables,
-      final ClientKeyStore clientKeyStore,
-      final boolean shouldAcceptAnyCertificate,
-      final SecurityService securityService) {
-    return resolver.resolve(
-        pullRequest,
-        pullRequestAction,
-        applicationUser,
-        repositoryService,
-        propertiesService,
-        prnfbNotification,
-        variables,
-        clientKeyStore,
-        shouldAcceptAnyCertificate,
-        securityService);
+  /** Variables only available for specific events, resolved from the {@link VariablesContext}. */
+  public boolean isFromVariablesContext() {
+    return resolver == null;
+  }
+
+  /** Variables that need a network call, or an escalated service call, to be resolved. */
+  public boolean isExpensive() {
+    return EXPENSIVE.contains(this);
+  }
+
+  public String resolve(final PrnfbResolveContext context) {
+    if (resolver == null) {
+      return context.getVariable(this);
+    }
+    return resolver.resolve(context);
   }
 }
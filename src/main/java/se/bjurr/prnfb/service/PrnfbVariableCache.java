@@ -0,0 +1,90 @@
+package se.bjurr.prnfb.service;
+
+import static java.util.Arrays.asList;
+import static se.bjurr.prnfb.service.PrnfbVariable.INJECTION_URL_VALUE;
+import static se.bjurr.prnfb.service.PrnfbVariable.PULL_REQUEST_ACTION;
+import static se.bjurr.prnfb.service.PrnfbVariable.VARIABLE_REGEX_MATCH;
+
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import se.bjurr.prnfb.settings.PrnfbNotification;
+
+/**
+ * Resolved values of {@link PrnfbVariable}s, shared by all renderers created with the same {@link
+ * VariablesContext}. That is all notifications of one pull request event, or of one button, or all
+ * buttons of one pull request. Values that depend on the notification are also keyed by
+ * notification. Values {@link PrnfbVariable#isFromVariablesContext() from the context}, like the
+ * title of a button, are not cached.
+ */
+public class PrnfbVariableCache {
+  private static final Set<PrnfbVariable> NOTIFICATION_DEPENDENT =
+      EnumSet.of(INJECTION_URL_VALUE, VARIABLE_REGEX_MATCH, PULL_REQUEST_ACTION);
+
+  private static final AtomicLong totalHits = new AtomicLong();
+  private static final AtomicLong totalMisses = new AtomicLong();
+
+  public static long getTotalHits() {
+    return totalHits.get();
+  }
+
+  public static long getTotalMisses() {
+    return totalMisses.get();
+  }
+
+  public static boolean isNotificationDependent(PrnfbVariable variable) {
+    return NOTIFICATION_DEPENDENT.contains(variable);
+  }
+
+  private final AtomicInteger hits = new AtomicInteger();
+  private final AtomicInteger misses = new AtomicInteger();
+  private final Map<Object, String> resolved = new ConcurrentHashMap<>();
+
+  /** @return the cached value, or <code>null</code> if not yet resolved. */
+  public String get(PrnfbVariable variable, PrnfbNotification notification) {
+    if (variable.isFromVariablesContext()) {
+      return null;
+    }
+    final String value = this.resolved.get(keyOf(variable, notification));
+    if (value == null) {
+      this.misses.incrementAndGet();
+      totalMisses.incrementAndGet();
+    } else {
+      this.hits.incrementAndGet();
+      totalHits.incrementAndGet();
+    }
+    return value;
+  }
+
+  public int getHits() {
+    return this.hits.get();
+  }
+
+  public int getMisses() {
+    return this.misses.get();
+  }
+
+  public void put(PrnfbVariable variable, PrnfbNotification notification, String value) {
+    if (variable.isFromVariablesContext()) {
+      return;
+    }
+    this.resolved.put(keyOf(variable, notification), value);
+  }
+
+  private Object keyOf(PrnfbVariable variable, PrnfbNotification notification) {
+    if (!isNotificationDependent(variable)) {
+      return variable;
+    }
+    final UUID notificationUuid = notification == null ? null : notification.getUuid();
+    return asList(variable, notificationUuid);
+  }
+
+  @Override
+  public String toString() {
+    return "PrnfbVariableCache [hits=" + this.hits + ", misses=" + this.misses + "]";
+  }
+}
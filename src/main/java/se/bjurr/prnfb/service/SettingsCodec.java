@@ -0,0 +1,79 @@
+package se.bjurr.prnfb.service;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Base64;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import se.bjurr.prnfb.settings.PrnfbSettingsData;
+
+/**
+ * How settings are stored in {@link com.atlassian.sal.api.pluginsettings.PluginSettings}. Values
+ * that are not plain JSON start with a marker, so values stored with any codec, or before codecs
+ * were added, can always be read.
+ */
+enum SettingsCodec {
+  /** Plain JSON, as stored before codecs were added. */
+  JSON {
+    @Override
+    String encode(String json) {
+      return json;
+    }
+  },
+  /**
+   * JSON compressed with gzip, in base64. Each notification and button is stored on its own, and
+   * the gzip header and base64 may make small ones larger, those are stored as plain JSON.
+   */
+  GZIP {
+    @Override
+    String encode(String json) {
+      final String compressed = compress(json);
+      if (compressed.length() >= json.length()) {
+        return json;
+      }
+      return compressed;
+    }
+  };
+
+  static final String GZIP_MARKER = "gzip:";
+
+  static SettingsCodec of(PrnfbSettingsData prnfbSettingsData) {
+    if (prnfbSettingsData != null && prnfbSettingsData.isSettingsCompressed()) {
+      return GZIP;
+    }
+    return JSON;
+  }
+
+  /** Reads a value stored with any codec. Compressed values are read without a copy of the JSON. */
+  static <T> T read(ObjectMapper objectMapper, String stored, Class<T> type) throws IOException {
+    if (!stored.startsWith(GZIP_MARKER)) {
+      return objectMapper.readValue(stored, type);
+    }
+    final byte[] bytes = stored.getBytes(US_ASCII);
+    final InputStream base64 =
+        new ByteArrayInputStream(bytes, GZIP_MARKER.length(), bytes.length - GZIP_MARKER.length());
+    try (InputStream in = new GZIPInputStream(Base64.getDecoder().wrap(base64))) {
+      return objectMapper.readValue(in, type);
+    }
+  }
+
+  /** The JSON compressed, with the marker, even if that is larger. */
+  static String compress(String json) {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (OutputStream out = new GZIPOutputStream(Base64.getEncoder().wrap(bytes))) {
+      out.write(json.getBytes(UTF_8));
+    } catch (final IOException e) {
+      throw new RuntimeException(e);
+    }
+    return GZIP_MARKER + new String(bytes.toByteArray(), US_ASCII);
+  }
+
+  abstract String encode(String json);
+}
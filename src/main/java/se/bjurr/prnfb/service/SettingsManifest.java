@@ -0,0 +1,54 @@
+package se.bjurr.prnfb.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import se.bjurr.prnfb.settings.PrnfbSettingsData;
+
+/**
+ * What is stored in {@link SettingsService#SETTINGS_MANIFEST_KEY}. The global settings, and the
+ * version of each notification and button, in order. The notifications and buttons are stored in
+ * keys of their own.
+ */
+class SettingsManifest {
+  private Map<String, String> buttons = new LinkedHashMap<>();
+  private Map<String, String> notifications = new LinkedHashMap<>();
+  private PrnfbSettingsData prnfbSettingsData;
+
+  public SettingsManifest() {}
+
+  SettingsManifest(PrnfbSettingsData prnfbSettingsData) {
+    this.prnfbSettingsData = prnfbSettingsData;
+  }
+
+  SettingsManifest(SettingsManifest manifest) {
+    this.buttons = new LinkedHashMap<>(manifest.buttons);
+    this.notifications = new LinkedHashMap<>(manifest.notifications);
+    this.prnfbSettingsData = manifest.prnfbSettingsData;
+  }
+
+  /** Versions of the buttons, by UUID. */
+  public Map<String, String> getButtons() {
+    return this.buttons;
+  }
+
+  /** Versions of the notifications, by UUID. */
+  public Map<String, String> getNotifications() {
+    return this.notifications;
+  }
+
+  public PrnfbSettingsData getPrnfbSettingsData() {
+    return this.prnfbSettingsData;
+  }
+
+  public void setButtons(Map<String, String> buttons) {
+    this.buttons = buttons;
+  }
+
+  public void setNotifications(Map<String, String> notifications) {
+    this.notifications = notifications;
+  }
+
+  public void setPrnfbSettingsData(PrnfbSettingsData prnfbSettingsData) {
+    this.prnfbSettingsData = prnfbSettingsData;
+  }
+}
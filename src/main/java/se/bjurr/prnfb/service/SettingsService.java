@@ -1,7 +1,7 @@
 package se.bjurr.prnfb.service;
 
 import static com.atlassian.bitbucket.permission.Permission.ADMIN;
-import static se.bjurr.prnfb.Util.findUuidMatch;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static se.bjurr.prnfb.Util.newListWithoutUuid;
 import static se.bjurr.prnfb.settings.PrnfbNotificationBuilder.prnfbNotificationBuilder;
 import static se.bjurr.prnfb.settings.PrnfbSettings.UNCHANGED;
@@ -18,25 +18,58 @@ import com.atlassian.sal.api.transaction.TransactionCallback;
 import com.atlassian.sal.api.transaction.TransactionTemplate;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import se.bjurr.prnfb.Util;
 import se.bjurr.prnfb.http.HttpUtil;
+import se.bjurr.prnfb.jfr.PrnfbFlightRecorder;
+import se.bjurr.prnfb.settings.HasUuid;
 import se.bjurr.prnfb.settings.PrnfbButton;
+import se.bjurr.prnfb.settings.PrnfbCompiledNotification;
 import se.bjurr.prnfb.settings.PrnfbNotification;
 import se.bjurr.prnfb.settings.PrnfbSettings;
 import se.bjurr.prnfb.settings.PrnfbSettingsData;
 import se.bjurr.prnfb.settings.USER_LEVEL;
 import se.bjurr.prnfb.settings.ValidationException;
 
+/**
+ * The settings, cached on each node. Changes stored on this node are cached when stored. Changes
+ * stored on other nodes are seen within {@link #VERSION_CHECK_MILLIS}, when the stored version is
+ * next read, not right away.
+ */
 public class SettingsService {
 
   public static final String SETTINGS_STORAGE_KEY =
       "se.bjurr.prnfb.pull-request-notifier-for-bitbucket-3";
+  /**
+   * The global settings, and the UUID and version of each notification and button. Settings stored
+   * in {@link #SETTINGS_STORAGE_KEY}, by earlier versions, are migrated to it when read. They are
+   * left there, but not read again.
+   */
+  public static final String SETTINGS_MANIFEST_KEY = SETTINGS_STORAGE_KEY + ".manifest";
+  /** Followed by the UUID. Kept short, keys of {@link PluginSettings} are limited to 100 chars. */
+  public static final String SETTINGS_NOTIFICATION_KEY = SETTINGS_STORAGE_KEY + ".n.";
+
+  public static final String SETTINGS_BUTTON_KEY = SETTINGS_STORAGE_KEY + ".b.";
+  /**
+   * A hash of the stored manifest. Nodes compare it to the version of their cached settings, at
+   * most once every {@link #VERSION_CHECK_MILLIS}, and only read the settings again when it
+   * differs.
+   */
+  public static final String SETTINGS_VERSION_KEY = SETTINGS_STORAGE_KEY + ".version";
   private static ObjectMapper objectMapper = new ObjectMapper();
 
   static {
@@ -49,11 +82,25 @@ public class SettingsService {
   private final TransactionTemplate transactionTemplate;
 
   private static final Object lock = new Object();
-  static volatile PrnfbSettings cachedSettings = null;
+  /** The cached settings. Never changed, replaced when settings are read or stored. */
+  static volatile SettingsSnapshot snapshot = null;
+
+  /**
+   * How long cached settings are read before the stored version is read again. Settings stored on
+   * this node are cached when stored, so this only delays changes made on other nodes. Changes
+   * always read the stored version first, so they never start from stale settings.
+   */
+  static final long VERSION_CHECK_MILLIS = 1000L;
+
+  /** When the stored version is read again. */
+  static volatile long nextVersionCheck = 0;
 
   static volatile PrnfbSettingsData lastSeenGlobalSettings = null;
 
-  static volatile long nextCacheExpiry = 0;
+  private static final AtomicLong reloads = new AtomicLong();
+  private static final AtomicLong reloadMillis = new AtomicLong();
+  private static volatile long lastReloadMillis = 0;
+  private static final AtomicLong unchangedVersions = new AtomicLong();
 
   public SettingsService(
       PluginSettingsFactory pluginSettingsFactory,
@@ -65,23 +112,34 @@ public class SettingsService {
   }
 
   public PrnfbButton addOrUpdateButton(PrnfbButton prnfbButton) {
+    return addOrUpdateButtons(Collections.singletonList(prnfbButton)).get(0);
+  }
+
+  /** Adds, or updates, all buttons in one transaction. */
+  public List<PrnfbButton> addOrUpdateButtons(List<PrnfbButton> prnfbButtons) {
     return inSynchronizedTransaction(
-        new TransactionCallback<PrnfbButton>() {
+        new TransactionCallback<List<PrnfbButton>>() {
           @Override
-          public PrnfbButton doInTransaction() {
-            return doAddOrUpdateButton(prnfbButton);
+          public List<PrnfbButton> doInTransaction() {
+            return doAddOrUpdateButtons(prnfbButtons);
           }
         });
   }
 
   public PrnfbNotification addOrUpdateNotification(PrnfbNotification prnfbNotification)
       throws ValidationException {
+    return addOrUpdateNotifications(Collections.singletonList(prnfbNotification)).get(0);
+  }
+
+  /** Adds, or updates, all notifications in one transaction. */
+  public List<PrnfbNotification> addOrUpdateNotifications(
+      List<PrnfbNotification> prnfbNotifications) throws ValidationException {
     return inSynchronizedTransaction(
-        new TransactionCallback<PrnfbNotification>() {
+        new TransactionCallback<List<PrnfbNotification>>() {
           @Override
-          public PrnfbNotification doInTransaction() {
+          public List<PrnfbNotification> doInTransaction() {
             try {
-              return doAddOrUpdateNotification(prnfbNotification);
+              return doAddOrUpdateNotifications(prnfbNotifications);
             } catch (final ValidationException e) {
               throw new RuntimeException(e);
             }
@@ -112,11 +170,11 @@ public class SettingsService {
   }
 
   public Optional<PrnfbButton> findButton(UUID uuid) {
-    return findUuidMatch(getPrnfbSettings().getButtons(), uuid);
+    return doGetSnapshot().findButton(uuid);
   }
 
   public Optional<PrnfbNotification> findNotification(UUID notificationUuid) {
-    return findUuidMatch(getPrnfbSettings().getNotifications(), notificationUuid);
+    return doGetSnapshot().findNotification(notificationUuid);
   }
 
   public PrnfbButton getButton(UUID buttionUuid) {
@@ -133,67 +191,75 @@ public class SettingsService {
   }
 
   public List<PrnfbButton> getButtons(Project p) {
-    String projectKey = p.getKey();
-    final List<PrnfbButton> found = new ArrayList<>();
-    for (final PrnfbButton candidate : getPrnfbSettings().getButtons()) {
-      if (candidate.getProjectKey().isPresent()
-          && candidate.getProjectKey().get().equals(projectKey)) {
-        found.add(candidate);
-      }
-    }
-    return found;
+    return doGetSnapshot().getButtons(p.getKey());
   }
 
   public List<PrnfbButton> getButtons(Repository r) {
-    String projectKey = r.getProject().getKey();
-    String repositorySlug = r.getSlug();
-
-    final List<PrnfbButton> found = new ArrayList<>();
-    for (final PrnfbButton candidate : getPrnfbSettings().getButtons()) {
-      if (candidate.getProjectKey().isPresent()
-          && candidate.getProjectKey().get().equals(projectKey) //
-          && candidate.getRepositorySlug().isPresent()
-          && candidate.getRepositorySlug().get().equals(repositorySlug)) {
-        found.add(candidate);
-      }
-    }
-    return found;
+    return doGetSnapshot().getButtons(r.getProject().getKey(), r.getSlug());
   }
 
   public PrnfbNotification getNotification(UUID notificationUuid) {
-    return findUuidMatch(getPrnfbSettings().getNotifications(), notificationUuid).orElse(null);
+    return findNotification(notificationUuid).orElse(null);
   }
 
   public List<PrnfbNotification> getNotifications() {
     return getPrnfbSettings().getNotifications();
   }
 
-  public List<PrnfbNotification> getNotifications(String projectKey) {
-    final List<PrnfbNotification> found = new ArrayList<>();
-    for (final PrnfbNotification candidate : getPrnfbSettings().getNotifications()) {
-      if (candidate.getProjectKey().isPresent()
-          && candidate.getProjectKey().get().equals(projectKey)) {
-        found.add(candidate);
+  /** The notifications, compiled for matching events. */
+  public List<PrnfbCompiledNotification> getCompiledNotifications() {
+    return doGetSnapshot().getCompiledNotifications();
+  }
+
+  /**
+   * The notification, as compiled when it was cached. A notification that is not cached, like one
+   * that is not yet saved, is compiled again.
+   */
+  public static PrnfbCompiledNotification getCompiledNotification(PrnfbNotification notification) {
+    final SettingsSnapshot current = snapshot;
+    if (current != null) {
+      final Optional<PrnfbCompiledNotification> compiled =
+          current.findCompiledNotification(notification);
+      if (compiled.isPresent()) {
+        return compiled.get();
       }
     }
-    return found;
+    return PrnfbCompiledNotification.compile(notification);
+  }
+
+  public List<PrnfbNotification> getNotifications(String projectKey) {
+    return doGetSnapshot().getNotifications(projectKey);
   }
 
   public List<PrnfbNotification> getNotifications(String projectKey, String repositorySlug) {
-    final List<PrnfbNotification> found = new ArrayList<>();
-    for (final PrnfbNotification candidate : getPrnfbSettings().getNotifications()) {
-      if (candidate.getProjectKey().isPresent()
-          && candidate.getProjectKey().get().equals(projectKey) //
-          && candidate.getRepositorySlug().isPresent()
-          && candidate.getRepositorySlug().get().equals(repositorySlug)) {
-        found.add(candidate);
-      }
-    }
-    return found;
+    return doGetSnapshot().getNotifications(projectKey, repositorySlug);
+  }
+
+  /** @see PrnfbCompiledNotification#getUsedVariables() */
+  public static Set<PrnfbVariable> findUsedVariables(PrnfbNotification notification) {
+    return getCompiledNotification(notification).getUsedVariables();
   }
 
   public PrnfbSettings getPrnfbSettings() {
-    return doGetPrnfbSettings(false);
+    return doGetPrnfbSettings();
+  }
+
+  /** Number of times the stored settings were read and deserialized on this node. */
+  public static long getReloads() {
+    return reloads.get();
+  }
+
+  public static long getReloadMillis() {
+    return reloadMillis.get();
+  }
+
+  public static long getLastReloadMillis() {
+    return lastReloadMillis;
+  }
+
+  /** Number of times the cached settings were used because the stored version was unchanged. */
+  public static long getUnchangedVersions() {
+    return unchangedVersions.get();
   }
 
   public PrnfbSettingsData getPrnfbSettingsData() {
@@ -205,73 +271,144 @@ public class SettingsService {
         new TransactionCallback<Void>() {
           @Override
           public Void doInTransaction() {
-            final PrnfbSettings oldSettings = doGetPrnfbSettings(true);
-            final PrnfbSettings newPrnfbSettings =
-                prnfbSettingsBuilder(oldSettings) //
-                    .setPrnfbSettingsData(prnfbSettingsData) //
-                    .build();
-            doSetPrnfbSettings(newPrnfbSettings);
+            final PrnfbSettings oldSettings = doGetStoredSettings();
+            final String keyStorePassword =
+                keepIfUnchanged(
+                    prnfbSettingsData.getKeyStorePassword(),
+                    oldSettings.getPrnfbSettingsData().getKeyStorePassword());
+            final SettingsManifest manifest = getManifest(oldSettings);
+            manifest.setPrnfbSettingsData(
+                prnfbSettingsDataBuilder(prnfbSettingsData) //
+                    .setKeyStorePassword(keyStorePassword) //
+                    .build());
+            if (SettingsCodec.of(manifest.getPrnfbSettingsData())
+                != SettingsCodec.of(oldSettings.getPrnfbSettingsData())) {
+              storeWithCodec(oldSettings, manifest.getPrnfbSettingsData());
+            }
+            storeManifest(manifest, oldSettings);
             return null;
           }
         });
   }
 
-  private PrnfbButton doAddOrUpdateButton(PrnfbButton prnfbButton) {
-    if (findButton(prnfbButton.getUuid()).isPresent()) {
-      doDeleteButton(prnfbButton.getUuid());
+  /** Stores all notifications and buttons again, when the codec is changed. */
+  private void storeWithCodec(PrnfbSettings settings, PrnfbSettingsData prnfbSettingsData) {
+    for (final PrnfbNotification notification : settings.getNotifications()) {
+      store(
+          SETTINGS_NOTIFICATION_KEY + notification.getUuid(),
+          toJson(notification),
+          prnfbSettingsData,
+          notification);
     }
+    for (final PrnfbButton button : settings.getButtons()) {
+      store(SETTINGS_BUTTON_KEY + button.getUuid(), toJson(button), prnfbSettingsData, button);
+    }
+  }
 
-    final PrnfbSettings originalSettings = doGetPrnfbSettings(true);
-    final PrnfbSettings updated =
-        prnfbSettingsBuilder(originalSettings) //
-            .withButton(prnfbButton) //
-            .build();
+  private List<PrnfbButton> doAddOrUpdateButtons(List<PrnfbButton> prnfbButtons) {
+    final PrnfbSettings originalSettings = doGetStoredSettings();
+    final SettingsManifest manifest = getManifest(originalSettings);
+    final Map<UUID, PrnfbButton> buttons = byUuid(originalSettings.getButtons());
+    boolean changed = false;
+    for (final PrnfbButton prnfbButton : prnfbButtons) {
+      final UUID uuid = prnfbButton.getUuid();
+      final String data = toJson(prnfbButton);
+      final String version = versionOf(data);
+      if (version.equals(manifest.getButtons().get(uuid.toString()))) {
+        continue;
+      }
 
-    doSetPrnfbSettings(updated);
-    return prnfbButton;
+      store(SETTINGS_BUTTON_KEY + uuid, data, manifest.getPrnfbSettingsData(), prnfbButton);
+      manifest.getButtons().remove(uuid.toString());
+      manifest.getButtons().put(uuid.toString(), version);
+      buttons.remove(uuid);
+      buttons.put(uuid, prnfbButton);
+      changed = true;
+    }
+    if (changed) {
+      storeManifest(
+          manifest,
+          prnfbSettingsBuilder(originalSettings) //
+              .setButtons(new ArrayList<>(buttons.values())) //
+              .build());
+    }
+    return prnfbButtons;
   }
 
-  private PrnfbNotification doAddOrUpdateNotification(PrnfbNotification newNotification)
-      throws ValidationException {
-    final UUID notificationUuid = newNotification.getUuid();
-
-    Optional<String> oldUser = Optional.empty();
-    Optional<String> oldPassword = Optional.empty();
-    Optional<String> oldProxyUser = Optional.empty();
-    Optional<String> oldProxyPassword = Optional.empty();
-    final Optional<PrnfbNotification> oldNotification = findNotification(notificationUuid);
-    if (oldNotification.isPresent()) {
-      oldUser = oldNotification.get().getUser();
-      oldPassword = oldNotification.get().getPassword();
-      oldProxyUser = oldNotification.get().getProxyUser();
-      oldProxyPassword = oldNotification.get().getProxyPassword();
-    }
+  private List<PrnfbNotification> doAddOrUpdateNotifications(
+      List<PrnfbNotification> newNotifications) throws ValidationException {
+    final PrnfbSettings originalSettings = doGetStoredSettings();
+    final SettingsManifest manifest = getManifest(originalSettings);
+    final Map<UUID, PrnfbNotification> notifications =
+        byUuid(originalSettings.getNotifications());
+    final List<PrnfbNotification> stored = new ArrayList<>(newNotifications.size());
+    boolean changed = false;
+    for (PrnfbNotification newNotification : newNotifications) {
+      final UUID notificationUuid = newNotification.getUuid();
+
+      Optional<String> oldUser = Optional.empty();
+      Optional<String> oldPassword = Optional.empty();
+      Optional<String> oldProxyUser = Optional.empty();
+      Optional<String> oldProxyPassword = Optional.empty();
+      final PrnfbNotification oldNotification = notifications.get(notificationUuid);
+      if (oldNotification != null) {
+        oldUser = oldNotification.getUser();
+        oldPassword = oldNotification.getPassword();
+        oldProxyUser = oldNotification.getProxyUser();
+        oldProxyPassword = oldNotification.getProxyPassword();
+      }
 
-    final String user = keepIfUnchanged(newNotification.getUser(), oldUser);
-    final String password = keepIfUnchanged(newNotification.getPassword(), oldPassword);
-    final String proxyUser = keepIfUnchanged(newNotification.getProxyUser(), oldProxyUser);
-    final String proxyPassword =
-        keepIfUnchanged(newNotification.getProxyPassword(), oldProxyPassword);
-    newNotification =
-        prnfbNotificationBuilder(newNotification) //
-            .withUser(user) //
-            .withPassword(password) //
-            .withProxyUser(proxyUser) //
-            .withProxyPassword(proxyPassword) //
-            .build();
+      final String user = keepIfUnchanged(newNotification.getUser(), oldUser);
+      final String password = keepIfUnchanged(newNotification.getPassword(), oldPassword);
+      final String proxyUser = keepIfUnchanged(newNotification.getProxyUser(), oldProxyUser);
+      final String proxyPassword =
+          keepIfUnchanged(newNotification.getProxyPassword(), oldProxyPassword);
+      newNotification =
+          prnfbNotificationBuilder(newNotification) //
+              .withUser(user) //
+              .withPassword(password) //
+              .withProxyUser(proxyUser) //
+              .withProxyPassword(proxyPassword) //
+              .build();
+      stored.add(newNotification);
+
+      final String data = toJson(newNotification);
+      final String version = versionOf(data);
+      if (version.equals(manifest.getNotifications().get(notificationUuid.toString()))) {
+        continue;
+      }
 
-    if (oldNotification.isPresent()) {
-      doDeleteNotification(notificationUuid);
+      if (oldNotification != null) {
+        InjectionUrlCache.invalidate(notificationUuid);
+      }
+      store(
+          SETTINGS_NOTIFICATION_KEY + notificationUuid,
+          data,
+          manifest.getPrnfbSettingsData(),
+          newNotification);
+      manifest.getNotifications().remove(notificationUuid.toString());
+      manifest.getNotifications().put(notificationUuid.toString(), version);
+      notifications.remove(notificationUuid);
+      notifications.put(notificationUuid, newNotification);
+      changed = true;
     }
+    if (changed) {
+      storeManifest(
+          manifest,
+          prnfbSettingsBuilder(originalSettings) //
+              .setNotifications(new ArrayList<>(notifications.values())) //
+              .build());
+    }
+    return stored;
+  }
 
-    final PrnfbSettings originalSettings = doGetPrnfbSettings(true);
-    final PrnfbSettings updated =
-        prnfbSettingsBuilder(originalSettings) //
-            .withNotification(newNotification) //
-            .build();
-
-    doSetPrnfbSettings(updated);
-    return newNotification;
+  /** A map, that can be changed, of the notifications or buttons, in order. */
+  private static <T extends HasUuid> Map<UUID, T> byUuid(List<T> list) {
+    final Map<UUID, T> byUuid = new LinkedHashMap<>();
+    for (final T t : list) {
+      byUuid.putIfAbsent(t.getUuid(), t);
+    }
+    return byUuid;
   }
 
   private String keepIfUnchanged(Optional<String> newValue, Optional<String> oldValue) {
@@ -283,112 +420,353 @@ public class SettingsService {
   }
 
   private void doDeleteButton(UUID uuid) {
-    final PrnfbSettings originalSettings = doGetPrnfbSettings(true);
-    final List<PrnfbButton> keep = newListWithoutUuid(originalSettings.getButtons(), uuid);
-    final PrnfbSettings withoutDeleted =
+    final PrnfbSettings originalSettings = doGetStoredSettings();
+    final SettingsManifest manifest = getManifest(originalSettings);
+    manifest.getButtons().remove(uuid.toString());
+    this.pluginSettings.remove(SETTINGS_BUTTON_KEY + uuid);
+    storeManifest(
+        manifest,
         prnfbSettingsBuilder(originalSettings) //
-            .setButtons(keep) //
-            .build();
-    doSetPrnfbSettings(withoutDeleted);
+            .setButtons(newListWithoutUuid(originalSettings.getButtons(), uuid)) //
+            .build());
   }
 
   private void doDeleteNotification(UUID uuid) {
-    final PrnfbSettings originalSettings = doGetPrnfbSettings(true);
-    final List<PrnfbNotification> keep =
-        newListWithoutUuid(originalSettings.getNotifications(), uuid);
-    final PrnfbSettings withoutDeleted =
+    InjectionUrlCache.invalidate(uuid);
+    final PrnfbSettings originalSettings = doGetStoredSettings();
+    final SettingsManifest manifest = getManifest(originalSettings);
+    manifest.getNotifications().remove(uuid.toString());
+    this.pluginSettings.remove(SETTINGS_NOTIFICATION_KEY + uuid);
+    storeManifest(
+        manifest,
         prnfbSettingsBuilder(originalSettings) //
-            .setNotifications(keep) //
-            .build();
-    doSetPrnfbSettings(withoutDeleted);
+            .setNotifications(newListWithoutUuid(originalSettings.getNotifications(), uuid)) //
+            .build());
   }
 
-  private PrnfbSettings doGetPrnfbSettings(boolean forceRead) {
-    long now = System.currentTimeMillis();
-    if (now >= nextCacheExpiry || forceRead) {
-      synchronized (lock) {
-        if (now >= nextCacheExpiry || forceRead) {
+  private PrnfbSettings doGetPrnfbSettings() {
+    return doGetSnapshot().getSettings();
+  }
 
-          // Cache expired... re-read value from database and re-cache it
-          String s = (String) this.pluginSettings.get(SETTINGS_STORAGE_KEY);
+  /**
+   * The settings as stored, always checking the stored version. Changes start from these, so that
+   * changes stored by other nodes since the version was last read are not overwritten.
+   */
+  private PrnfbSettings doGetStoredSettings() {
+    return doGetSnapshot(true).getSettings();
+  }
 
-          if (s != null) {
-            // Successfully retrieved a real value... use it as our cache for next 33 seconds!
-            nextCacheExpiry = System.currentTimeMillis() + 33333L;
+  private SettingsSnapshot doGetSnapshot() {
+    return doGetSnapshot(false);
+  }
 
-            try {
-              cachedSettings = objectMapper.readValue(s, PrnfbSettings.class);
-            } catch (Exception e) {
-              throw new RuntimeException(
-                  "failed to deserialize JSON into PrnfbSettings object: " + e, e);
-            }
+  /**
+   * @param checkVersion if the stored version should be read even if it was read less than {@link
+   *     #VERSION_CHECK_MILLIS} ago.
+   */
+  private SettingsSnapshot doGetSnapshot(boolean checkVersion) {
+    final SettingsSnapshot current = snapshot;
+    if (!checkVersion && current != null && System.currentTimeMillis() < nextVersionCheck) {
+      return current;
+    }
+    synchronized (lock) {
+      final long now = System.currentTimeMillis();
+      if (!checkVersion && snapshot != null && now < nextVersionCheck) {
+        return snapshot;
+      }
+      // Read before the settings, so that a concurrent store is detected the next time
+      final Object storedVersion = this.pluginSettings.get(SETTINGS_VERSION_KEY);
+      if (!isCached(storedVersion)) {
+        final long start = System.currentTimeMillis();
+        final String manifest = (String) this.pluginSettings.get(SETTINGS_MANIFEST_KEY);
+        final String legacy =
+            manifest == null ? (String) this.pluginSettings.get(SETTINGS_STORAGE_KEY) : null;
+
+        if (manifest != null) {
+          readSettings(fromJson(manifest, SettingsManifest.class), storedVersion);
+        } else if (legacy != null) {
+          migrateSettings();
+        } else {
+          this.logger.info("Creating new default settings.");
+          snapshot =
+              SettingsSnapshot.of(
+                  prnfbSettingsBuilder() //
+                      .setPrnfbSettingsData( //
+                          prnfbSettingsDataBuilder() //
+                              .setAdminRestriction(USER_LEVEL.ADMIN) //
+                              .build()) //
+                      .build(),
+                  null,
+                  storedVersion,
+                  snapshot);
+        }
+        lastReloadMillis = System.currentTimeMillis() - start;
+        reloadMillis.addAndGet(lastReloadMillis);
+        reloads.incrementAndGet();
+      } else {
+        unchangedVersions.incrementAndGet();
+      }
+      nextVersionCheck = now + VERSION_CHECK_MILLIS;
+      return snapshot;
+    }
+  }
 
-            // If the keystore or "accept-all-certificates" value changed, we need
-            // to reset HttpUtil's connection-managers.
-            PrnfbSettingsData latestData = cachedSettings.getPrnfbSettingsData();
-            if (latestData != null && !latestData.equals(lastSeenGlobalSettings)) {
-              HttpUtil.reset();
-              lastSeenGlobalSettings = latestData;
-            }
+  /**
+   * Assembles the settings of the manifest. Only notifications and buttons with a version that is
+   * not cached are read, so a change made by another node is read without reading all settings.
+   */
+  private void readSettings(SettingsManifest manifest, Object version) {
+    final SettingsSnapshot oldSnapshot = snapshot;
+    final SettingsManifest oldManifest =
+        oldSnapshot != null && oldSnapshot.getManifest() != null
+            ? oldSnapshot.getManifest()
+            : new SettingsManifest();
+    final PrnfbSettings oldSettings =
+        oldSnapshot != null ? oldSnapshot.getSettings() : prnfbSettingsBuilder().build();
+    final PrnfbSettings settings =
+        prnfbSettingsBuilder() //
+            .setNotifications(
+                readShards(
+                    SETTINGS_NOTIFICATION_KEY,
+                    manifest.getNotifications(),
+                    oldManifest.getNotifications(),
+                    oldSettings.getNotifications(),
+                    PrnfbNotification.class)) //
+            .setButtons(
+                readShards(
+                    SETTINGS_BUTTON_KEY,
+                    manifest.getButtons(),
+                    oldManifest.getButtons(),
+                    oldSettings.getButtons(),
+                    PrnfbButton.class)) //
+            .setPrnfbSettingsData(manifest.getPrnfbSettingsData()) //
+            .build();
+    snapshot = SettingsSnapshot.of(settings, manifest, version, oldSnapshot);
+    applyGlobalSettings(settings.getPrnfbSettingsData());
+    invalidateInjectionUrls(oldManifest.getNotifications(), manifest.getNotifications());
+  }
 
-          } else {
-            cachedSettings = null;
-          }
+  /**
+   * Notifications changed, or deleted, by another node may have cached injection URL responses on
+   * this node. The node that stored them invalidated its own when storing.
+   */
+  private static void invalidateInjectionUrls(
+      Map<String, String> oldVersions, Map<String, String> versions) {
+    for (final Map.Entry<String, String> oldVersion : oldVersions.entrySet()) {
+      if (!oldVersion.getValue().equals(versions.get(oldVersion.getKey()))) {
+        InjectionUrlCache.invalidate(UUID.fromString(oldVersion.getKey()));
+      }
+    }
+  }
+
+  private <T extends HasUuid> List<T> readShards(
+      String keyPrefix,
+      Map<String, String> versions,
+      Map<String, String> oldVersions,
+      List<T> oldShards,
+      Class<T> type) {
+    final Map<String, T> oldShardsByUuid = new HashMap<>();
+    for (final T shard : oldShards) {
+      oldShardsByUuid.put(shard.getUuid().toString(), shard);
+    }
+    final List<T> shards = new ArrayList<>(versions.size());
+    for (final Map.Entry<String, String> version : versions.entrySet()) {
+      final String uuid = version.getKey();
+      T shard = null;
+      if (version.getValue().equals(oldVersions.get(uuid))) {
+        shard = oldShardsByUuid.get(uuid);
+      }
+      if (shard == null) {
+        final String data = (String) this.pluginSettings.get(keyPrefix + uuid);
+        if (data == null) {
+          this.logger.warn("Settings not found for " + uuid + ", it is ignored.");
+          continue;
         }
+        shard = fromJson(data, type);
       }
+      shards.add(shard);
     }
+    return shards;
+  }
 
-    if (cachedSettings == null) {
-      // Empty initialization case (rare):  don't bother setting any cache.
-      this.logger.info("Creating new default settings.");
-      return prnfbSettingsBuilder() //
-          .setPrnfbSettingsData( //
-              prnfbSettingsDataBuilder() //
-                  .setAdminRestriction(USER_LEVEL.ADMIN) //
-                  .build()) //
-          .build();
-    } else {
-      return cachedSettings;
+  /**
+   * Stores settings, from the single key used before, with one key per notification and button.
+   * Another node may have migrated them since the manifest was read, that is checked again in the
+   * transaction. The single key is kept, so that the settings are not lost if the plugin is
+   * downgraded.
+   */
+  private void migrateSettings() {
+    inSynchronizedTransaction(
+        new TransactionCallback<Void>() {
+          @Override
+          public Void doInTransaction() {
+            doMigrateSettings();
+            return null;
+          }
+        });
+  }
+
+  private void doMigrateSettings() {
+    final Object storedVersion = this.pluginSettings.get(SETTINGS_VERSION_KEY);
+    final String storedManifest = (String) this.pluginSettings.get(SETTINGS_MANIFEST_KEY);
+    if (storedManifest != null) {
+      readSettings(fromJson(storedManifest, SettingsManifest.class), storedVersion);
+      return;
+    }
+    this.logger.info("Migrating settings to one key per notification and button.");
+    final PrnfbSettings settings =
+        fromJson((String) this.pluginSettings.get(SETTINGS_STORAGE_KEY), PrnfbSettings.class);
+    final SettingsManifest manifest = new SettingsManifest(settings.getPrnfbSettingsData());
+    for (final PrnfbNotification notification : settings.getNotifications()) {
+      final String data = toJson(notification);
+      store(
+          SETTINGS_NOTIFICATION_KEY + notification.getUuid(),
+          data,
+          settings.getPrnfbSettingsData(),
+          notification);
+      manifest.getNotifications().put(notification.getUuid().toString(), versionOf(data));
+    }
+    for (final PrnfbButton button : settings.getButtons()) {
+      final String data = toJson(button);
+      store(SETTINGS_BUTTON_KEY + button.getUuid(), data, settings.getPrnfbSettingsData(), button);
+      manifest.getButtons().put(button.getUuid().toString(), versionOf(data));
     }
+    storeManifest(manifest, settings);
   }
 
-  private void doSetPrnfbSettings(PrnfbSettings newSettings) {
-    final PrnfbSettingsData oldSettingsData = doGetPrnfbSettings(false).getPrnfbSettingsData();
-    final PrnfbSettingsData newSettingsData = newSettings.getPrnfbSettingsData();
-    final String keyStorePassword =
-        keepIfUnchanged(
-            newSettingsData.getKeyStorePassword(), oldSettingsData.getKeyStorePassword());
+  /** A copy of the manifest of the settings, that can be changed and stored. */
+  private static SettingsManifest getManifest(PrnfbSettings settings) {
+    final SettingsSnapshot current = snapshot;
+    if (current == null || current.getManifest() == null) {
+      return new SettingsManifest(settings.getPrnfbSettingsData());
+    }
+    return new SettingsManifest(current.getManifest());
+  }
 
-    final PrnfbSettingsData adjustedSettingsData =
-        prnfbSettingsDataBuilder(newSettingsData) //
-            .setKeyStorePassword(keyStorePassword) //
-            .build();
+  /**
+   * Stores the manifest, the notifications and buttons in it must already be stored. The settings
+   * are cached as they are, with the global settings of the manifest, they are not read back.
+   */
+  private void storeManifest(SettingsManifest manifest, PrnfbSettings settings) {
+    final String data = toJson(manifest);
+    final String version = versionOf(data);
+    if (!version.equals(this.pluginSettings.get(SETTINGS_VERSION_KEY))) {
+      store(SETTINGS_MANIFEST_KEY, data, manifest.getPrnfbSettingsData(), manifest);
+      this.pluginSettings.put(SETTINGS_VERSION_KEY, version);
+    }
+    synchronized (lock) {
+      snapshot =
+          SettingsSnapshot.of(
+              prnfbSettingsBuilder(settings) //
+                  .setPrnfbSettingsData(manifest.getPrnfbSettingsData()) //
+                  .build(),
+              manifest,
+              version,
+              snapshot);
+    }
+    applyGlobalSettings(manifest.getPrnfbSettingsData());
+  }
 
-    final PrnfbSettings adjustedSettings =
-        prnfbSettingsBuilder(newSettings) //
-            .setPrnfbSettingsData(adjustedSettingsData) //
-            .build();
+  /**
+   * Stores the JSON with the {@link SettingsCodec} chosen in the global settings. Versions are
+   * always of the JSON, so changing codec does not change them.
+   */
+  private void store(String key, String data, PrnfbSettingsData prnfbSettingsData, Object cached) {
+    final String stored = SettingsCodec.of(prnfbSettingsData).encode(data);
+    this.pluginSettings.put(key, stored);
+    verifyStored(stored, data, cached);
+  }
+
+  /**
+   * With debug logging enabled, stored data is read back and compared to what is cached. A
+   * difference means that the cache is not what other nodes will read.
+   */
+  private void verifyStored(String stored, String data, Object cached) {
+    if (!this.logger.isDebugEnabled()) {
+      return;
+    }
+    final String reparsed = toJson(fromJson(stored, cached.getClass()));
+    if (!reparsed.equals(data)) {
+      this.logger.warn(
+          "Stored "
+              + cached.getClass().getSimpleName()
+              + " differs when read back:\n"
+              + data
+              + "\n"
+              + reparsed);
+    }
+  }
+
+  private static String toJson(Object value) {
+    try {
+      return objectMapper.writeValueAsString(value);
+    } catch (final Exception e) {
+      throw new RuntimeException("failed to serialize " + value.getClass().getSimpleName(), e);
+    }
+  }
+
+  private static <T> T fromJson(String data, Class<T> type) {
+    try {
+      return SettingsCodec.read(objectMapper, data, type);
+    } catch (final Exception e) {
+      throw new RuntimeException(
+          "failed to deserialize JSON into " + type.getSimpleName() + " object: " + e, e);
+    }
+  }
 
+  /** The same settings always get the same version, so storing them again changes nothing. */
+  static String versionOf(String data) {
     try {
-      final String data = objectMapper.writeValueAsString(adjustedSettings);
-      final PrnfbSettings adjustedSettingsReparsed =
-          objectMapper.readValue(data, PrnfbSettings.class);
-      this.pluginSettings.put(SETTINGS_STORAGE_KEY, data);
-      cachedSettings = adjustedSettingsReparsed;
-    } catch (Exception e) {
-      throw new RuntimeException("failed to reparse JSON into PrnfbSettings object: " + e, e);
+      final byte[] hash = MessageDigest.getInstance("SHA-256").digest(data.getBytes(UTF_8));
+      final StringBuilder sb = new StringBuilder(hash.length * 2);
+      for (final byte b : hash) {
+        sb.append(String.format("%02x", b));
+      }
+      return sb.toString();
+    } catch (final NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static boolean isCached(Object storedVersion) {
+    final SettingsSnapshot current = snapshot;
+    return current != null && Objects.equals(storedVersion, current.getVersion());
+  }
+
+  /**
+   * If the keystore or "accept-all-certificates" value changed, we need to replace HttpUtil's
+   * connection-managers. Other changes keep the clients, and their pooled connections.
+   */
+  private static void applyGlobalSettings(PrnfbSettingsData latestData) {
+    if (latestData != null && !latestData.equals(lastSeenGlobalSettings)) {
+      if (isTransportChanged(lastSeenGlobalSettings, latestData)) {
+        HttpUtil.reset();
+      }
+      PrnfbFlightRecorder.setEnabled(latestData.isFlightRecorderEnabled());
+      lastSeenGlobalSettings = latestData;
     }
   }
 
-  private synchronized <T> T inSynchronizedTransaction(TransactionCallback<T> transactionCallback) {
-    return this.securityService //
-        .withPermission(ADMIN, "Getting config") //
-        .call(
-            new Operation<T, RuntimeException>() {
-              @Override
-              public T perform() throws RuntimeException {
-                return SettingsService.this.transactionTemplate.execute(transactionCallback);
-              }
-            });
+  static boolean isTransportChanged(PrnfbSettingsData before, PrnfbSettingsData after) {
+    return before == null
+        || before.isShouldAcceptAnyCertificate() != after.isShouldAcceptAnyCertificate()
+        || !Objects.equals(before.getKeyStore(), after.getKeyStore())
+        || !Objects.equals(before.getKeyStoreType(), after.getKeyStoreType())
+        || !Objects.equals(before.getKeyStorePassword(), after.getKeyStorePassword());
+  }
+
+  /** Synchronized on the same lock as the cached settings, they are shared by all instances. */
+  private <T> T inSynchronizedTransaction(TransactionCallback<T> transactionCallback) {
+    synchronized (lock) {
+      return this.securityService //
+          .withPermission(ADMIN, "Getting config") //
+          .call(
+              new Operation<T, RuntimeException>() {
+                @Override
+                public T perform() throws RuntimeException {
+                  return SettingsService.this.transactionTemplate.execute(transactionCallback);
+                }
+              });
+    }
   }
 }
@@ -0,0 +1,179 @@
+package se.bjurr.prnfb.service;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.unmodifiableList;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+import se.bjurr.prnfb.settings.HasUuid;
+import se.bjurr.prnfb.settings.PrnfbButton;
+import se.bjurr.prnfb.settings.PrnfbCompiledNotification;
+import se.bjurr.prnfb.settings.PrnfbNotification;
+import se.bjurr.prnfb.settings.PrnfbSettings;
+
+/**
+ * Cached settings, with the manifest and version they were stored with, the notifications compiled
+ * and the notifications and buttons indexed by UUID, project and repository. It is created when
+ * settings are cached and never changed, so it is replaced as a whole and lookups need no locking.
+ */
+class SettingsSnapshot {
+
+  private static class Index<T extends HasUuid> {
+    private final Map<String, List<T>> byProject = new HashMap<>();
+    private final Map<String, Map<String, List<T>>> byRepository = new HashMap<>();
+    private final Map<UUID, T> byUuid = new HashMap<>();
+
+    private Index(
+        final List<T> list,
+        final Function<T, Optional<String>> projectKey,
+        final Function<T, Optional<String>> repositorySlug) {
+      for (final T t : list) {
+        this.byUuid.putIfAbsent(t.getUuid(), t);
+        if (projectKey.apply(t).isPresent()) {
+          this.byProject.computeIfAbsent(projectKey.apply(t).get(), k -> new ArrayList<>()).add(t);
+          if (repositorySlug.apply(t).isPresent()) {
+            this.byRepository
+                .computeIfAbsent(projectKey.apply(t).get(), k -> new HashMap<>())
+                .computeIfAbsent(repositorySlug.apply(t).get(), k -> new ArrayList<>())
+                .add(t);
+          }
+        }
+      }
+      this.byProject.replaceAll((k, v) -> unmodifiableList(v));
+      for (final Map<String, List<T>> bySlug : this.byRepository.values()) {
+        bySlug.replaceAll((k, v) -> unmodifiableList(v));
+      }
+    }
+
+    private Optional<T> find(final UUID uuid) {
+      return Optional.ofNullable(this.byUuid.get(uuid));
+    }
+
+    private List<T> get(final String projectKey) {
+      return this.byProject.getOrDefault(projectKey, emptyList());
+    }
+
+    private List<T> get(final String projectKey, final String repositorySlug) {
+      final Map<String, List<T>> bySlug = this.byRepository.get(projectKey);
+      if (bySlug == null) {
+        return emptyList();
+      }
+      return bySlug.getOrDefault(repositorySlug, emptyList());
+    }
+  }
+
+  static SettingsSnapshot of(final PrnfbSettings settings) {
+    return new SettingsSnapshot(settings, null, null, null);
+  }
+
+  /**
+   * @param manifest <code>null</code> if no settings are stored.
+   * @param previous compiled notifications are reused from it, if they are for the same
+   *     notification object.
+   */
+  static SettingsSnapshot of(
+      final PrnfbSettings settings,
+      final SettingsManifest manifest,
+      final Object version,
+      final SettingsSnapshot previous) {
+    return new SettingsSnapshot(settings, manifest, version, previous);
+  }
+
+  private final Index<PrnfbButton> buttons;
+  private final List<PrnfbCompiledNotification> compiledNotifications;
+  private final Map<UUID, PrnfbCompiledNotification> compiledNotificationsByUuid = new HashMap<>();
+  private final SettingsManifest manifest;
+  private final Index<PrnfbNotification> notifications;
+  private final PrnfbSettings settings;
+  private final Object version;
+
+  private SettingsSnapshot(
+      final PrnfbSettings settings,
+      final SettingsManifest manifest,
+      final Object version,
+      final SettingsSnapshot previous) {
+    this.settings = settings;
+    this.manifest = manifest;
+    this.version = version;
+    final List<PrnfbCompiledNotification> compiled = new ArrayList<>();
+    for (final PrnfbNotification notification : settings.getNotifications()) {
+      PrnfbCompiledNotification c = null;
+      if (previous != null) {
+        c = previous.compiledNotificationsByUuid.get(notification.getUuid());
+      }
+      if (c == null || c.getNotification() != notification) {
+        c = PrnfbCompiledNotification.compile(notification);
+      }
+      compiled.add(c);
+      this.compiledNotificationsByUuid.putIfAbsent(notification.getUuid(), c);
+    }
+    this.compiledNotifications = unmodifiableList(compiled);
+    this.buttons =
+        new Index<>(
+            settings.getButtons(), PrnfbButton::getProjectKey, PrnfbButton::getRepositorySlug);
+    this.notifications =
+        new Index<>(
+            settings.getNotifications(),
+            PrnfbNotification::getProjectKey,
+            PrnfbNotification::getRepositorySlug);
+  }
+
+  Optional<PrnfbButton> findButton(final UUID uuid) {
+    return this.buttons.find(uuid);
+  }
+
+  /** The compiled notification, if it is compiled from the given notification object. */
+  Optional<PrnfbCompiledNotification> findCompiledNotification(
+      final PrnfbNotification notification) {
+    final PrnfbCompiledNotification compiled =
+        this.compiledNotificationsByUuid.get(notification.getUuid());
+    if (compiled == null || compiled.getNotification() != notification) {
+      return Optional.empty();
+    }
+    return Optional.of(compiled);
+  }
+
+  Optional<PrnfbNotification> findNotification(final UUID uuid) {
+    return this.notifications.find(uuid);
+  }
+
+  List<PrnfbButton> getButtons(final String projectKey) {
+    return this.buttons.get(projectKey);
+  }
+
+  List<PrnfbButton> getButtons(final String projectKey, final String repositorySlug) {
+    return this.buttons.get(projectKey, repositorySlug);
+  }
+
+  List<PrnfbCompiledNotification> getCompiledNotifications() {
+    return this.compiledNotifications;
+  }
+
+  /** @return <code>null</code> if no settings are stored. */
+  SettingsManifest getManifest() {
+    return this.manifest;
+  }
+
+  List<PrnfbNotification> getNotifications(final String projectKey) {
+    return this.notifications.get(projectKey);
+  }
+
+  List<PrnfbNotification> getNotifications(
+      final String projectKey, final String repositorySlug) {
+    return this.notifications.get(projectKey, repositorySlug);
+  }
+
+  PrnfbSettings getSettings() {
+    return this.settings;
+  }
+
+  /** The {@link SettingsService#SETTINGS_VERSION_KEY} the settings were read, or stored, with. */
+  Object getVersion() {
+    return this.version;
+  }
+}
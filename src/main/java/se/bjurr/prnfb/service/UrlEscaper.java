@@ -0,0 +1,94 @@
+package se.bjurr.prnfb.service;
+
+/**
+ * Encodes like {@link java.net.URLEncoder#encode(String, String)} with UTF-8, but appends to a
+ * {@link StringBuilder} and returns values that need no encoding as they are.
+ */
+public class UrlEscaper {
+  private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+  private static final boolean[] DONT_NEED_ENCODING = new boolean[128];
+
+  static {
+    for (char c = 'a'; c <= 'z'; c++) {
+      DONT_NEED_ENCODING[c] = true;
+    }
+    for (char c = 'A'; c <= 'Z'; c++) {
+      DONT_NEED_ENCODING[c] = true;
+    }
+    for (char c = '0'; c <= '9'; c++) {
+      DONT_NEED_ENCODING[c] = true;
+    }
+    DONT_NEED_ENCODING['-'] = true;
+    DONT_NEED_ENCODING['_'] = true;
+    DONT_NEED_ENCODING['.'] = true;
+    DONT_NEED_ENCODING['*'] = true;
+  }
+
+  /** @return the value itself, if nothing needs to be encoded. */
+  public static String urlEncode(String value) {
+    final int first = firstToEncode(value);
+    if (first == -1) {
+      return value;
+    }
+    final StringBuilder out = new StringBuilder(value.length() + 16);
+    urlEncode(value, first, out);
+    return out.toString();
+  }
+
+  public static void urlEncode(String value, StringBuilder out) {
+    final int first = firstToEncode(value);
+    if (first == -1) {
+      out.append(value);
+      return;
+    }
+    urlEncode(value, first, out);
+  }
+
+  private static void urlEncode(String value, int first, StringBuilder out) {
+    out.append(value, 0, first);
+    final int length = value.length();
+    for (int i = first; i < length; i++) {
+      final char c = value.charAt(i);
+      if (c < 128 && DONT_NEED_ENCODING[c]) {
+        out.append(c);
+      } else if (c == ' ') {
+        out.append('+');
+      } else if (c < 0x80) {
+        appendByte(out, c);
+      } else if (c < 0x800) {
+        appendByte(out, 0xC0 | c >> 6);
+        appendByte(out, 0x80 | c & 0x3F);
+      } else if (Character.isHighSurrogate(c)
+          && i + 1 < length
+          && Character.isLowSurrogate(value.charAt(i + 1))) {
+        final int codePoint = Character.toCodePoint(c, value.charAt(++i));
+        appendByte(out, 0xF0 | codePoint >> 18);
+        appendByte(out, 0x80 | codePoint >> 12 & 0x3F);
+        appendByte(out, 0x80 | codePoint >> 6 & 0x3F);
+        appendByte(out, 0x80 | codePoint & 0x3F);
+      } else if (Character.isSurrogate(c)) {
+        // Unpaired surrogates are replaced, like String.getBytes does
+        appendByte(out, '?');
+      } else {
+        appendByte(out, 0xE0 | c >> 12);
+        appendByte(out, 0x80 | c >> 6 & 0x3F);
+        appendByte(out, 0x80 | c & 0x3F);
+      }
+    }
+  }
+
+  private static void appendByte(StringBuilder out, int b) {
+    out.append('%').append(HEX[b >> 4 & 0xF]).append(HEX[b & 0xF]);
+  }
+
+  private static int firstToEncode(String value) {
+    final int length = value.length();
+    for (int i = 0; i < length; i++) {
+      final char c = value.charAt(i);
+      if (c >= 128 || !DONT_NEED_ENCODING[c]) {
+        return i;
+      }
+    }
+    return -1;
+  }
+}
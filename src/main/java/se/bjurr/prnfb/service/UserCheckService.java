@@ -2,11 +2,13 @@ package se.bjurr.prnfb.service;
 
 import static com.atlassian.bitbucket.permission.Permission.PROJECT_ADMIN;
 import static com.atlassian.bitbucket.permission.Permission.REPO_ADMIN;
+import static com.atlassian.bitbucket.permission.Permission.REPO_READ;
 import static com.atlassian.bitbucket.permission.Permission.SYS_ADMIN;
 import static org.slf4j.LoggerFactory.getLogger;
 import static se.bjurr.prnfb.Util.emptyToNull;
 import static se.bjurr.prnfb.settings.USER_LEVEL.ADMIN;
 import static se.bjurr.prnfb.settings.USER_LEVEL.EVERYONE;
+import static se.bjurr.prnfb.settings.USER_LEVEL.SYSTEM_ADMIN;
 
 import com.atlassian.bitbucket.permission.PermissionService;
 import com.atlassian.bitbucket.project.Project;
@@ -19,6 +21,7 @@ import com.atlassian.sal.api.user.UserKey;
 import com.atlassian.sal.api.user.UserManager;
 import com.atlassian.sal.api.user.UserProfile;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import org.slf4j.Logger;
@@ -137,6 +140,38 @@ public class UserCheckService {
     return isAllowed(adminRestriction, projectKey, repositorySlug);
   }
 
+  /**
+   * The highest {@link USER_LEVEL} of the current user in the repository. Users with the same level
+   * are allowed the same things by {@link #isAllowed(USER_LEVEL, String, String)}.
+   */
+  public USER_LEVEL getUserLevel(@Nullable String projectKey, @Nullable String repositorySlug) {
+    final UserKey userKey = userManager.getRemoteUser().getUserKey();
+    if (isSystemAdmin(userKey)) {
+      return SYSTEM_ADMIN;
+    }
+    if (isAdmin(userKey, projectKey, repositorySlug)) {
+      return ADMIN;
+    }
+    return EVERYONE;
+  }
+
+  /** The key of the current user, empty if anonymous. */
+  public Optional<UserKey> getUserKey() {
+    final UserProfile user = userManager.getRemoteUser();
+    if (user == null) {
+      return Optional.empty();
+    }
+    return Optional.of(user.getUserKey());
+  }
+
+  /** If the current user pressed the button of the job, and can still read its repository. */
+  public boolean isJobAllowed(ButtonPressJob job) {
+    final Optional<UserKey> userKey = getUserKey();
+    return userKey.isPresent()
+        && userKey.equals(job.getUserKey())
+        && permissionService.hasRepositoryPermission(job.getRepository(), REPO_READ);
+  }
+
   public boolean isAllowed(
       USER_LEVEL userLevel, @Nullable String projectKey, @Nullable String repositorySlug) {
     final UserKey userKey = userManager.getRemoteUser().getUserKey();
@@ -31,6 +31,7 @@ public class VariablesContext {
     public PullRequestEvent pullRequestEvent;
     public String formData;
     public List<String> groups;
+    public PrnfbVariableCache variableCache;
 
     public VariablesContextBuilder setButton(PrnfbButton button) {
       this.button = button;
@@ -52,6 +53,12 @@ public class VariablesContext {
       return this;
     }
 
+    /** Shares resolved variables with other contexts, like those of other buttons. */
+    public VariablesContextBuilder setVariableCache(PrnfbVariableCache variableCache) {
+      this.variableCache = variableCache;
+      return this;
+    }
+
     public VariablesContextBuilder() {}
 
     public VariablesContext build() {
@@ -63,18 +70,24 @@ public class VariablesContext {
   private final PullRequestEvent pullRequestEvent;
   private final String formData;
   private final List<String> groups;
+  private final PrnfbVariableCache variableCache;
 
   public VariablesContext(VariablesContextBuilder b) {
     this.button = b.button;
     this.pullRequestEvent = b.pullRequestEvent;
     this.formData = b.formData;
     this.groups = b.groups;
+    this.variableCache = b.variableCache != null ? b.variableCache : new PrnfbVariableCache();
   }
 
   public List<String> getGroups() {
     return groups;
   }
 
+  public PrnfbVariableCache getVariableCache() {
+    return variableCache;
+  }
+
   public Map<PrnfbVariable, String> getVariables() {
     final Map<PrnfbVariable, String> variables = new HashMap<>();
 
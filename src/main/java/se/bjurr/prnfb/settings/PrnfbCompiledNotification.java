@@ -0,0 +1,201 @@
+package se.bjurr.prnfb.settings;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.unmodifiableMap;
+import static java.util.Collections.unmodifiableSet;
+import static javax.xml.bind.DatatypeConverter.printBase64Binary;
+import static se.bjurr.prnfb.service.PrnfbVariable.VARIABLE_REGEX_MATCH;
+
+import com.atlassian.bitbucket.pull.PullRequestState;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import org.apache.http.HttpHost;
+import se.bjurr.prnfb.listener.PrnfbPullRequestAction;
+import se.bjurr.prnfb.service.PrnfbTemplate;
+import se.bjurr.prnfb.service.PrnfbVariable;
+
+/**
+ * A {@link PrnfbNotification} compiled for matching events and invoking its URL. It is created
+ * when settings are cached, so that sets, patterns, templates, the proxy and the authorization
+ * header are not created again for every event. Never changed after it is created.
+ */
+public class PrnfbCompiledNotification {
+
+  public static PrnfbCompiledNotification compile(final PrnfbNotification notification) {
+    return new PrnfbCompiledNotification(notification);
+  }
+
+  private final Optional<String> basicAuth;
+  private final Optional<Pattern> filterRegexp;
+  private final Optional<String> filterString;
+  private final Optional<Pattern> injectionUrlRegexp;
+  private final PrnfbNotification notification;
+  private final Optional<String> projectKey;
+  private final Optional<HttpHost> proxy;
+  private final Optional<String> repositorySlug;
+  private final Map<String, PrnfbTemplate> templates;
+  private final TRIGGER_IF_MERGE triggerIfCanMerge;
+  private final Set<PullRequestState> triggerIgnoreStates;
+  private final Set<PrnfbPullRequestAction> triggers;
+  private final Set<PrnfbVariable> usedVariables;
+  private final Optional<Pattern> variableRegex;
+
+  private PrnfbCompiledNotification(final PrnfbNotification notification) {
+    this.notification = notification;
+    this.triggers = toEnumSet(PrnfbPullRequestAction.class, notification.getTriggers());
+    this.triggerIfCanMerge = notification.getTriggerIfCanMerge();
+    this.triggerIgnoreStates =
+        toEnumSet(PullRequestState.class, notification.getTriggerIgnoreStateList());
+    this.projectKey = notification.getProjectKey();
+    this.repositorySlug = notification.getRepositorySlug();
+    this.filterRegexp = compilePattern(notification.getFilterRegexp());
+    this.filterString = notification.getFilterString();
+    this.injectionUrlRegexp = compilePattern(notification.getInjectionUrlRegexp());
+    this.variableRegex = compilePattern(notification.getVariableRegex());
+
+    final Map<String, PrnfbTemplate> templates = new HashMap<>();
+    addTemplate(templates, notification.getUrl());
+    addTemplate(templates, notification.getPostContent().orElse(null));
+    for (final PrnfbHeader header : notification.getHeaders()) {
+      addTemplate(templates, header.getValue());
+    }
+    addTemplate(templates, notification.getFilterString().orElse(null));
+    addTemplate(templates, notification.getInjectionUrl().orElse(null));
+    this.templates = unmodifiableMap(templates);
+
+    final Set<PrnfbVariable> used = EnumSet.noneOf(PrnfbVariable.class);
+    for (final PrnfbTemplate template : templates.values()) {
+      used.addAll(template.getUsedVariables());
+    }
+    if (used.contains(VARIABLE_REGEX_MATCH) && notification.getVariableName().isPresent()) {
+      PrnfbVariable.byName(notification.getVariableName().get()).ifPresent(used::add);
+    }
+    this.usedVariables = unmodifiableSet(used);
+
+    if (notification.getProxyServer().isPresent()
+        && notification.getProxyPort() != null
+        && notification.getProxyPort() > 0) {
+      this.proxy =
+          Optional.of(
+              new HttpHost(
+                  notification.getProxyServer().get(),
+                  notification.getProxyPort(),
+                  notification.getProxySchema().orElse(null)));
+    } else {
+      this.proxy = Optional.empty();
+    }
+
+    if (notification.getUser().isPresent() && notification.getPassword().isPresent()) {
+      final String userpass = notification.getUser().get() + ":" + notification.getPassword().get();
+      this.basicAuth = Optional.of("Basic " + printBase64Binary(userpass.getBytes(UTF_8)));
+    } else {
+      this.basicAuth = Optional.empty();
+    }
+  }
+
+  /** The value of the authorization header, if a user and password is configured. */
+  public Optional<String> getBasicAuth() {
+    return this.basicAuth;
+  }
+
+  public Optional<Pattern> getFilterRegexp() {
+    return patternOf(this.filterRegexp, this.notification.getFilterRegexp());
+  }
+
+  public Optional<String> getFilterString() {
+    return this.filterString;
+  }
+
+  public Optional<Pattern> getInjectionUrlRegexp() {
+    return patternOf(this.injectionUrlRegexp, this.notification.getInjectionUrlRegexp());
+  }
+
+  public PrnfbNotification getNotification() {
+    return this.notification;
+  }
+
+  public Optional<String> getProjectKey() {
+    return this.projectKey;
+  }
+
+  /** The proxy, if a server and port is configured. */
+  public Optional<HttpHost> getProxy() {
+    return this.proxy;
+  }
+
+  public Optional<String> getRepositorySlug() {
+    return this.repositorySlug;
+  }
+
+  /**
+   * The parsed template, if the string is the URL, post content, a header value, the filter string
+   * or the injection URL of the notification.
+   */
+  public Optional<PrnfbTemplate> findTemplate(final String template) {
+    return Optional.ofNullable(this.templates.get(template));
+  }
+
+  public TRIGGER_IF_MERGE getTriggerIfCanMerge() {
+    return this.triggerIfCanMerge;
+  }
+
+  public Set<PullRequestState> getTriggerIgnoreStates() {
+    return this.triggerIgnoreStates;
+  }
+
+  public Set<PrnfbPullRequestAction> getTriggers() {
+    return this.triggers;
+  }
+
+  public Optional<Pattern> getVariableRegex() {
+    return patternOf(this.variableRegex, this.notification.getVariableRegex());
+  }
+
+  /**
+   * The variables used in the URL, post content, headers, filter string and injection URL. Also the
+   * variable matched by {@link PrnfbVariable#VARIABLE_REGEX_MATCH}. Values of variables are not
+   * known until rendered, so variables in them are not included.
+   */
+  public Set<PrnfbVariable> getUsedVariables() {
+    return this.usedVariables;
+  }
+
+  private static void addTemplate(
+      final Map<String, PrnfbTemplate> templates, final String template) {
+    if (template != null && !templates.containsKey(template)) {
+      templates.put(template, PrnfbTemplate.parse(template));
+    }
+  }
+
+  private static <E extends Enum<E>> Set<E> toEnumSet(final Class<E> type, final List<E> list) {
+    final EnumSet<E> set = EnumSet.noneOf(type);
+    if (list != null) {
+      set.addAll(list);
+    }
+    return unmodifiableSet(set);
+  }
+
+  /** @return <code>null</code> if the regexp is not valid. */
+  private static Optional<Pattern> compilePattern(final Optional<String> regexp) {
+    try {
+      return regexp.map(Pattern::compile);
+    } catch (final PatternSyntaxException e) {
+      return null;
+    }
+  }
+
+  private static Optional<Pattern> patternOf(
+      final Optional<Pattern> compiled, final Optional<String> regexp) {
+    if (compiled == null) {
+      // Compiled again, so that the error is reported where the regexp is used
+      return Optional.of(Pattern.compile(regexp.get()));
+    }
+    return compiled;
+  }
+}
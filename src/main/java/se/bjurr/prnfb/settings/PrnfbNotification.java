@@ -23,11 +23,14 @@ import se.bjurr.prnfb.service.PrnfbRenderer.ENCODE_FOR;
 public class PrnfbNotification implements HasUuid, Restricted {
 
   private static final String DEFAULT_NAME = "Notification";
+  /** Injection URL responses are not cached longer than a day. */
+  public static final int MAX_INJECTION_URL_CACHE_SECONDS = 24 * 60 * 60;
   private String filterRegexp;
   private String filterString;
   private List<PrnfbHeader> headers;
   private String injectionUrl;
   private String injectionUrlRegexp;
+  private Integer injectionUrlCacheSeconds;
   private String variableName;
   private String variableRegex;
   private HTTP_METHOD method;
@@ -96,6 +99,7 @@ public class PrnfbNotification implements HasUuid, Restricted {
     this.name = firstNotNull(emptyToNull(nullToEmpty(builder.getName()).trim()), DEFAULT_NAME);
     this.injectionUrl = emptyToNull(nullToEmpty(builder.getInjectionUrl()).trim());
     this.injectionUrlRegexp = emptyToNull(nullToEmpty(builder.getInjectionUrlRegexp()).trim());
+    this.injectionUrlCacheSeconds = clampCacheSeconds(builder.getInjectionUrlCacheSeconds());
     this.variableName = emptyToNull(nullToEmpty(builder.getVariableName()).trim());
     this.variableRegex = emptyToNull(nullToEmpty(builder.getVariableRegex()).trim());
     this.triggerIgnoreStateList = builder.getTriggerIgnoreStateList();
@@ -103,6 +107,13 @@ public class PrnfbNotification implements HasUuid, Restricted {
     this.httpVersion = builder.getHttpVersion();
   }
 
+  private static Integer clampCacheSeconds(final Integer cacheSeconds) {
+    if (cacheSeconds == null) {
+      return null;
+    }
+    return Math.max(0, Math.min(cacheSeconds, MAX_INJECTION_URL_CACHE_SECONDS));
+  }
+
   @Override
   public boolean equals(final Object obj) {
     if (this == obj) {
@@ -157,6 +168,13 @@ public class PrnfbNotification implements HasUuid, Restricted {
     } else if (!injectionUrlRegexp.equals(other.injectionUrlRegexp)) {
       return false;
     }
+    if (injectionUrlCacheSeconds == null) {
+      if (other.injectionUrlCacheSeconds != null) {
+        return false;
+      }
+    } else if (!injectionUrlCacheSeconds.equals(other.injectionUrlCacheSeconds)) {
+      return false;
+    }
     if (variableName == null) {
       if (other.variableName != null) {
         return false;
@@ -311,6 +329,10 @@ public class PrnfbNotification implements HasUuid, Restricted {
     return ofNullable(this.injectionUrlRegexp);
   }
 
+  public Integer getInjectionUrlCacheSeconds() {
+    return this.injectionUrlCacheSeconds;
+  }
+
   public Optional<String> getVariableName() {
     return ofNullable(this.variableName);
   }
@@ -404,6 +426,9 @@ public class PrnfbNotification implements HasUuid, Restricted {
     result = prime * result + (httpVersion == null ? 0 : httpVersion.hashCode());
     result = prime * result + (injectionUrl == null ? 0 : injectionUrl.hashCode());
     result = prime * result + (injectionUrlRegexp == null ? 0 : injectionUrlRegexp.hashCode());
+    result =
+        prime * result
+            + (injectionUrlCacheSeconds == null ? 0 : injectionUrlCacheSeconds.hashCode());
     result = prime * result + (variableName == null ? 0 : variableName.hashCode());
     result = prime * result + (variableRegex == null ? 0 : variableRegex.hashCode());
     result = prime * result + (method == null ? 0 : method.hashCode());
@@ -441,6 +466,8 @@ public class PrnfbNotification implements HasUuid, Restricted {
         + injectionUrl
         + ", injectionUrlRegexp="
         + injectionUrlRegexp
+        + ", injectionUrlCacheSeconds="
+        + injectionUrlCacheSeconds
         + ", variableName="
         + variableName
         + ", variableRegex="
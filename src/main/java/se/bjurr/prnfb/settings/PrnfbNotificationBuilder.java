@@ -24,6 +24,7 @@ public class PrnfbNotificationBuilder {
       final List<PrnfbHeader> headers,
       final String injectionUrl,
       final String injectionUrlRegexp,
+      final Integer injectionUrlCacheSeconds,
       final String variableName,
       final String variableRegex,
       final HTTP_METHOD method,
@@ -51,6 +52,7 @@ public class PrnfbNotificationBuilder {
     this.headers = headers;
     this.injectionUrl = injectionUrl;
     this.injectionUrlRegexp = injectionUrlRegexp;
+    this.injectionUrlCacheSeconds = injectionUrlCacheSeconds;
     this.variableName = variableName;
     this.variableRegex = variableRegex;
     this.method = method;
@@ -100,6 +102,7 @@ public class PrnfbNotificationBuilder {
     b.name = from.getName();
     b.injectionUrl = from.getInjectionUrl().orElse(null);
     b.injectionUrlRegexp = from.getInjectionUrlRegexp().orElse(null);
+    b.injectionUrlCacheSeconds = from.getInjectionUrlCacheSeconds();
     b.variableName = from.getVariableName().orElse(null);
     b.variableRegex = from.getVariableRegex().orElse(null);
     b.triggerIfCanMerge = from.getTriggerIfCanMerge();
@@ -113,6 +116,7 @@ public class PrnfbNotificationBuilder {
   private List<PrnfbHeader> headers = new ArrayList<>();
   private String injectionUrl;
   private String injectionUrlRegexp;
+  private Integer injectionUrlCacheSeconds;
   private String variableName;
   private String variableRegex;
   private HTTP_METHOD method;
@@ -168,6 +172,10 @@ public class PrnfbNotificationBuilder {
     return this.injectionUrlRegexp;
   }
 
+  public Integer getInjectionUrlCacheSeconds() {
+    return this.injectionUrlCacheSeconds;
+  }
+
   public String getVariableName() {
     return this.variableName;
   }
@@ -298,6 +306,12 @@ public class PrnfbNotificationBuilder {
     return this;
   }
 
+  public PrnfbNotificationBuilder withInjectionUrlCacheSeconds(
+      final Integer injectionUrlCacheSeconds) {
+    this.injectionUrlCacheSeconds = injectionUrlCacheSeconds;
+    return this;
+  }
+
   public PrnfbNotificationBuilder withVariableName(final String variableName) {
     this.variableName = emptyToNull(variableName);
     return this;
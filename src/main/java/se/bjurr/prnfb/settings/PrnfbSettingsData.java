@@ -7,9 +7,11 @@ import java.util.Optional;
 
 public class PrnfbSettingsData {
   private final USER_LEVEL adminRestriction;
+  private final boolean flightRecorderEnabled;
   private final String keyStore;
   private final String keyStorePassword;
   private final String keyStoreType;
+  private final boolean settingsCompressed;
   private final boolean shouldAcceptAnyCertificate;
 
   public PrnfbSettingsData() {
@@ -18,6 +20,8 @@ public class PrnfbSettingsData {
     this.keyStorePassword = null;
     this.shouldAcceptAnyCertificate = false;
     this.adminRestriction = null;
+    this.flightRecorderEnabled = false;
+    this.settingsCompressed = false;
   }
 
   public PrnfbSettingsData(PrnfbSettingsDataBuilder builder) {
@@ -26,6 +30,8 @@ public class PrnfbSettingsData {
     this.keyStorePassword = emptyToNull(builder.getKeyStorePassword());
     this.shouldAcceptAnyCertificate = builder.shouldAcceptAnyCertificate();
     this.adminRestriction = builder.getAdminRestriction();
+    this.flightRecorderEnabled = builder.isFlightRecorderEnabled();
+    this.settingsCompressed = builder.isSettingsCompressed();
   }
 
   @Override
@@ -43,6 +49,12 @@ public class PrnfbSettingsData {
     if (this.adminRestriction != other.adminRestriction) {
       return false;
     }
+    if (this.flightRecorderEnabled != other.flightRecorderEnabled) {
+      return false;
+    }
+    if (this.settingsCompressed != other.settingsCompressed) {
+      return false;
+    }
     if (this.keyStore == null) {
       if (other.keyStore != null) {
         return false;
@@ -92,6 +104,8 @@ public class PrnfbSettingsData {
     int result = 1;
     result =
         prime * result + ((this.adminRestriction == null) ? 0 : this.adminRestriction.hashCode());
+    result = prime * result + (this.flightRecorderEnabled ? 1231 : 1237);
+    result = prime * result + (this.settingsCompressed ? 1231 : 1237);
     result = prime * result + ((this.keyStore == null) ? 0 : this.keyStore.hashCode());
     result =
         prime * result + ((this.keyStorePassword == null) ? 0 : this.keyStorePassword.hashCode());
@@ -100,6 +114,15 @@ public class PrnfbSettingsData {
     return result;
   }
 
+  public boolean isFlightRecorderEnabled() {
+    return this.flightRecorderEnabled;
+  }
+
+  /** If notifications and buttons are stored compressed. */
+  public boolean isSettingsCompressed() {
+    return this.settingsCompressed;
+  }
+
   public boolean isShouldAcceptAnyCertificate() {
     return this.shouldAcceptAnyCertificate;
   }
@@ -116,6 +139,10 @@ public class PrnfbSettingsData {
         + this.shouldAcceptAnyCertificate
         + ", adminRestriction="
         + this.adminRestriction
+        + ", flightRecorderEnabled="
+        + this.flightRecorderEnabled
+        + ", settingsCompressed="
+        + this.settingsCompressed
         + "]";
   }
 }
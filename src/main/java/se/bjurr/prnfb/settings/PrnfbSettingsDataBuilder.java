@@ -10,9 +10,11 @@ public class PrnfbSettingsDataBuilder {
   }
 
   private USER_LEVEL adminRestriction;
+  private boolean flightRecorderEnabled;
   private String keyStore;
   private String keyStorePassword;
   private String keyStoreType;
+  private boolean settingsCompressed;
   private boolean shouldAcceptAnyCertificate;
 
   private PrnfbSettingsDataBuilder() {}
@@ -23,6 +25,8 @@ public class PrnfbSettingsDataBuilder {
     this.keyStoreType = settings.getKeyStoreType();
     this.keyStorePassword = settings.getKeyStorePassword().orElse(null);
     this.adminRestriction = settings.getAdminRestriction();
+    this.flightRecorderEnabled = settings.isFlightRecorderEnabled();
+    this.settingsCompressed = settings.isSettingsCompressed();
   }
 
   public PrnfbSettingsData build() {
@@ -45,11 +49,24 @@ public class PrnfbSettingsDataBuilder {
     return this.keyStoreType;
   }
 
+  public boolean isFlightRecorderEnabled() {
+    return this.flightRecorderEnabled;
+  }
+
+  public boolean isSettingsCompressed() {
+    return this.settingsCompressed;
+  }
+
   public PrnfbSettingsDataBuilder setAdminRestriction(USER_LEVEL adminRestriction) {
     this.adminRestriction = adminRestriction;
     return this;
   }
 
+  public PrnfbSettingsDataBuilder setFlightRecorderEnabled(boolean flightRecorderEnabled) {
+    this.flightRecorderEnabled = flightRecorderEnabled;
+    return this;
+  }
+
   public PrnfbSettingsDataBuilder setKeyStore(String keyStore) {
     this.keyStore = keyStore;
     return this;
@@ -65,6 +82,11 @@ public class PrnfbSettingsDataBuilder {
     return this;
   }
 
+  public PrnfbSettingsDataBuilder setSettingsCompressed(boolean settingsCompressed) {
+    this.settingsCompressed = settingsCompressed;
+    return this;
+  }
+
   public PrnfbSettingsDataBuilder setShouldAcceptAnyCertificate(
       boolean shouldAcceptAnyCertificate) {
     this.shouldAcceptAnyCertificate = shouldAcceptAnyCertificate;
@@ -17,6 +17,7 @@ import se.bjurr.prnfb.presentation.dto.ButtonFormElementDTO;
 import se.bjurr.prnfb.presentation.dto.ButtonFormElementOptionDTO;
 import se.bjurr.prnfb.presentation.dto.ButtonPressDTO;
 import se.bjurr.prnfb.presentation.dto.NotificationResponseDTO;
+import se.bjurr.prnfb.service.ButtonPressJob;
 import se.bjurr.prnfb.settings.PrnfbButton;
 import se.bjurr.prnfb.settings.PrnfbButtonFormElement;
 import se.bjurr.prnfb.settings.PrnfbButtonFormElementOption;
@@ -189,6 +190,21 @@ public class ButtonTransformer {
 
   public static ButtonPressDTO toTriggerResultDto(
       PrnfbButton button, List<NotificationResponse> results) {
+    return new ButtonPressDTO(button.getConfirmation(), toNotificationResponseDtos(results));
+  }
+
+  public static ButtonPressDTO toTriggerResultDto(ButtonPressJob job) {
+    // Done before responses, so that a job that is done has all its responses
+    final boolean done = job.isDone();
+    return new ButtonPressDTO(
+        job.getButton().getConfirmation(),
+        toNotificationResponseDtos(job.getResponses()),
+        job.getId(),
+        done);
+  }
+
+  private static List<NotificationResponseDTO> toNotificationResponseDtos(
+      List<NotificationResponse> results) {
     List<NotificationResponseDTO> notificationResponses = new ArrayList<>();
     for (NotificationResponse from : results) {
       String content = null;
@@ -204,6 +220,6 @@ public class ButtonTransformer {
       notificationResponses.add(
           new NotificationResponseDTO(uri, content, status, notification, notificationName));
     }
-    return new ButtonPressDTO(button.getConfirmation(), notificationResponses);
+    return notificationResponses;
   }
 }
@@ -1,15 +1,18 @@
 package se.bjurr.prnfb.transformer;
 
 import static se.bjurr.prnfb.Util.isNullOrEmpty;
+import static se.bjurr.prnfb.service.SettingsService.findUsedVariables;
 import static se.bjurr.prnfb.settings.PrnfbNotificationBuilder.prnfbNotificationBuilder;
 import static se.bjurr.prnfb.settings.PrnfbSettings.UNCHANGED;
 
 import com.atlassian.bitbucket.pull.PullRequestState;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import se.bjurr.prnfb.listener.PrnfbPullRequestAction;
 import se.bjurr.prnfb.presentation.dto.HeaderDTO;
 import se.bjurr.prnfb.presentation.dto.NotificationDTO;
+import se.bjurr.prnfb.service.PrnfbVariable;
 import se.bjurr.prnfb.settings.PrnfbHeader;
 import se.bjurr.prnfb.settings.PrnfbNotification;
 import se.bjurr.prnfb.settings.ValidationException;
@@ -24,6 +27,7 @@ public class NotificationTransformer {
     to.setFilterString(from.getFilterString().orElse(null));
     to.setInjectionUrl(from.getInjectionUrl().orElse(null));
     to.setInjectionUrlRegexp(from.getInjectionUrlRegexp().orElse(null));
+    to.setInjectionUrlCacheSeconds(from.getInjectionUrlCacheSeconds());
     to.setVariableName(from.getVariableName().orElse(null));
     to.setVariableRegex(from.getVariableRegex().orElse(null));
     to.setMethod(from.getMethod());
@@ -45,6 +49,7 @@ public class NotificationTransformer {
     to.setPassword(UNCHANGED);
     to.setUuid(from.getUuid());
     to.setHttpVersion(from.getHttpVersion());
+    to.setExpensiveVariables(toExpensiveVariables(findUsedVariables(from)));
     return to;
   }
 
@@ -67,6 +72,7 @@ public class NotificationTransformer {
         .setHeaders(toHeaders(from)) //
         .withInjectionUrl(from.getInjectionUrl()) //
         .withInjectionUrlRegexp(from.getInjectionUrlRegexp()) //
+        .withInjectionUrlCacheSeconds(from.getInjectionUrlCacheSeconds()) //
         .withVariableName(from.getVariableName()) //
         .withVariableRegex(from.getVariableRegex()) //
         .withMethod(from.getMethod()) //
@@ -92,6 +98,16 @@ public class NotificationTransformer {
         .build();
   }
 
+  private static List<String> toExpensiveVariables(final Set<PrnfbVariable> usedVariables) {
+    final List<String> to = new ArrayList<>();
+    for (final PrnfbVariable variable : usedVariables) {
+      if (variable.isExpensive()) {
+        to.add(variable.name());
+      }
+    }
+    return to;
+  }
+
   private static List<HeaderDTO> toHeaders(final List<PrnfbHeader> headers) {
     final List<HeaderDTO> to = new ArrayList<>();
     if (headers != null) {
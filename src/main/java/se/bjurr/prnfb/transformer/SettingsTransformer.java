@@ -11,9 +11,11 @@ public class SettingsTransformer {
   public static SettingsDataDTO toDto(PrnfbSettingsData settingsData) {
     SettingsDataDTO dto = new SettingsDataDTO();
     dto.setAdminRestriction(settingsData.getAdminRestriction());
+    dto.setFlightRecorderEnabled(settingsData.isFlightRecorderEnabled());
     dto.setKeyStore(settingsData.getKeyStore().orElse(null));
     dto.setKeyStorePassword(UNCHANGED);
     dto.setKeyStoreType(settingsData.getKeyStoreType());
+    dto.setSettingsCompressed(settingsData.isSettingsCompressed());
     dto.setShouldAcceptAnyCertificate(settingsData.isShouldAcceptAnyCertificate());
     return dto;
   }
@@ -21,9 +23,11 @@ public class SettingsTransformer {
   public static PrnfbSettingsData toPrnfbSettingsData(SettingsDataDTO settingsDataDto) {
     return prnfbSettingsDataBuilder() //
         .setAdminRestriction(settingsDataDto.getAdminRestriction()) //
+        .setFlightRecorderEnabled(settingsDataDto.isFlightRecorderEnabled()) //
         .setKeyStore(settingsDataDto.getKeyStore()) //
         .setKeyStorePassword(settingsDataDto.getKeyStorePassword()) //
         .setKeyStoreType(settingsDataDto.getKeyStoreType()) //
+        .setSettingsCompressed(settingsDataDto.isSettingsCompressed()) //
         .setShouldAcceptAnyCertificate(settingsDataDto.isShouldAcceptAnyCertificate()) //
         .build();
   }
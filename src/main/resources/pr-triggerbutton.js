@@ -213,9 +213,7 @@ window.addEventListener("load", function load(event) {
             return form;
         };
 
-        var presentResult = function (response) {
-            var successTriggers = [];
-            var failTriggers = [];
+        var presentResponses = function (response) {
             if (response) {
                 for (var i = 0; i < response.length; i++) {
                     var notificationResponse = response[i];
@@ -237,15 +235,74 @@ window.addEventListener("load", function load(event) {
                     }
                 }
             }
+        };
+
+        var presentNoTriggers = function () {
+            AJS.flag({
+                close: 'auto',
+                type: 'warning',
+                title: 'No triggers were invoked',
+                body: '<p>No triggers were invoked when buttons was pressed.</p>'
+            });
+        };
 
+        var presentResult = function (response) {
+            presentResponses(response);
             if (!response || response.length === 0) {
-                AJS.flag({
-                    close: 'auto',
-                    type: 'warning',
-                    title: 'No triggers were invoked',
-                    body: '<p>No triggers were invoked when buttons was pressed.</p>'
-                });
+                presentNoTriggers();
+            }
+        };
+
+        var presentError = function (content) {
+            AJS.flag({
+                close: 'auto',
+                type: 'error',
+                title: "Unknown error",
+                body: '<p>' + content.status + '</p>' + '<p>Check the Bitbucket Server log for more details.</p>'
+            });
+        };
+
+        var presentJobNotFound = function () {
+            AJS.flag({
+                close: 'auto',
+                type: 'warning',
+                title: "Responses unavailable",
+                body: '<p>The notifications were triggered, but their responses could not be found.</p>'
+            });
+        };
+
+        // Presents the responses of a button pressed asynchronously as they complete
+        var pollJob = function (job, shown, done) {
+            var confirm = job.confirmation === "on";
+            var responses = job.notificationResponses || [];
+            if (confirm) {
+                presentResponses(responses.slice(shown));
+            }
+            if (job.done) {
+                if (confirm && responses.length === 0) {
+                    presentNoTriggers();
+                }
+                done();
+                return;
             }
+            setTimeout(function () {
+                $.ajax({
+                    "type": "GET",
+                    "url": buttonsAdminUrl + '/job/' + job.jobId,
+                    "success": function (content) {
+                        pollJob(content, responses.length, done);
+                    },
+                    "error": function (content) {
+                        done();
+                        if (content.status === 404) {
+                            // Jobs are only kept on the node where the button was pressed
+                            presentJobNotFound();
+                        } else {
+                            presentError(content);
+                        }
+                    }
+                });
+            }, 1000);
         };
 
         function loadSettingsAndShowButtons() {
@@ -276,24 +333,15 @@ window.addEventListener("load", function load(event) {
                                 "type": "POST",
                                 "url": buttonsAdminUrl + '/fromUUID' + window.location.pathname + '/uuid/' + item.uuid,
                                 "data": {
-                                    "form": formResult
+                                    "form": formResult,
+                                    "async": true
                                 },
                                 "success": function (content) {
-                                    setTimeout(function () {
-                                        enableButton();
-                                        if (content.confirmation === "on") {
-                                            presentResult(content.notificationResponses);
-                                        }
-                                    }, 500);
+                                    pollJob(content, 0, enableButton);
                                 },
                                 "error": function (content) {
                                     enableButton();
-                                    AJS.flag({
-                                        close: 'auto',
-                                        type: 'error',
-                                        title: "Unknown error",
-                                        body: '<p>' + content.status + '</p>' + '<p>Check the Bitbucket Server log for more details.</p>'
-                                    });
+                                    presentError(content);
                                 }
                             });
 
@@ -159,6 +159,13 @@ define('plugin/prnfb/utils', [
   }
   $(formSelector).populate(data);
 
+  var expensiveVariables = data.expensiveVariables || [];
+  if (expensiveVariables.length > 0) {
+   $(formSelector).find('.expensive-variables').text('Uses variables that are slow to resolve: ' + expensiveVariables.join(', '));
+  } else {
+   $(formSelector).find('.expensive-variables').text('');
+  }
+
   $(formSelector).find('.template').each(function(index, el) {
    var template = $(el).data('template');
    var field = $(el).data('field');
@@ -180,6 +187,7 @@ define('plugin/prnfb/utils', [
   $(formSelector).find('input[type=text], textarea, select').val('');
   $(formSelector).find('input[type=checkbox]').removeAttr('checked');
   $(formSelector).find('input[type=radio]').prop('checked', false);
+  $(formSelector).find('.expensive-variables').text('');
  }
 
  function setupForm(formSelector, url, postUrl) {
@@ -219,6 +227,9 @@ define('plugin/prnfb/utils', [
     for (var i = 0; i < data.length; i++) {
      var name = data[i].name;
      name = name.replace(/<script>/g, 'script');
+     if (data[i].expensiveVariables && data[i].expensiveVariables.length > 0) {
+      name += ' (slow variables)';
+     }
      $(formSelector + ' [name=uuid]').append('<option value="' + data[i].uuid + '">' + (data[i].projectKey || '') + ' ' + (data[i].repositorySlug || '') + ' ' + name + '</option>');
     }
     if (whenDone) {
@@ -0,0 +1,89 @@
+package se.bjurr.prnfb.http;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+import org.junit.Test;
+
+public class PooledHttpClientTest {
+  private int closed;
+
+  private final PooledHttpClient sut =
+      new PooledHttpClient(
+          new CloseableHttpClient() {
+            @Override
+            public void close() {
+              PooledHttpClientTest.this.closed++;
+            }
+
+            @Override
+            protected CloseableHttpResponse doExecute(
+                HttpHost target, HttpRequest request, HttpContext context) {
+              throw new UnsupportedOperationException();
+            }
+
+            @SuppressWarnings("deprecation")
+            @Override
+            public ClientConnectionManager getConnectionManager() {
+              throw new UnsupportedOperationException();
+            }
+
+            @SuppressWarnings("deprecation")
+            @Override
+            public HttpParams getParams() {
+              throw new UnsupportedOperationException();
+            }
+          });
+
+  @Test
+  public void testThatIdleClientIsClosedWhenRetired() {
+    this.sut.retire();
+
+    assertThat(this.closed) //
+        .isEqualTo(1);
+    assertThat(this.sut.acquire()) //
+        .isFalse();
+  }
+
+  @Test
+  public void testThatRetiredClientIsClosedWhenLastRequestIsDone() {
+    assertThat(this.sut.acquire()) //
+        .isTrue();
+    assertThat(this.sut.acquire()) //
+        .isTrue();
+
+    this.sut.retire();
+    this.sut.release();
+
+    assertThat(this.closed) //
+        .isEqualTo(0);
+    assertThat(this.sut.isClosed()) //
+        .isFalse();
+
+    this.sut.release();
+
+    assertThat(this.closed) //
+        .isEqualTo(1);
+    assertThat(this.sut.isClosed()) //
+        .isTrue();
+    assertThat(this.sut.acquire()) //
+        .isFalse();
+  }
+
+  @Test
+  public void testThatClientInUseIsKeptWhenNotRetired() {
+    this.sut.acquire();
+    this.sut.release();
+
+    assertThat(this.closed) //
+        .isEqualTo(0);
+    assertThat(this.sut.acquire()) //
+        .isTrue();
+  }
+}
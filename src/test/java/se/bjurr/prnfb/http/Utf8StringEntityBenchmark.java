@@ -0,0 +1,89 @@
+package se.bjurr.prnfb.http;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares writing post content through {@link ByteArrayEntity}, as done before, with {@link
+ * Utf8StringEntity}. Run {@link #main(String[])} to see allocation per request, as
+ * <code>gc.alloc.rate.norm</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Utf8StringEntityBenchmark {
+  @Param({"1024", "65536", "1048576"})
+  public int size;
+
+  private String content;
+
+  @Setup
+  public void setup() {
+    final StringBuilder sb = new StringBuilder(this.size);
+    while (sb.length() < this.size) {
+      sb.append("{\"title\":\"Pull request \u00e5\u00e4\u00f6\",\"id\":\"123\"},");
+    }
+    this.content = sb.substring(0, this.size);
+  }
+
+  @Benchmark
+  public void byteArrayEntity(final Blackhole blackhole) throws IOException {
+    write(new ByteArrayEntity(this.content.getBytes(UTF_8)), blackhole);
+  }
+
+  @Benchmark
+  public void utf8StringEntity(final Blackhole blackhole) throws IOException {
+    write(new Utf8StringEntity(this.content), blackhole);
+  }
+
+  private static void write(final HttpEntity entity, final Blackhole blackhole)
+      throws IOException {
+    blackhole.consume(entity.getContentLength());
+    entity.writeTo(
+        new OutputStream() {
+          @Override
+          public void write(final byte[] b, final int off, final int len) {
+            blackhole.consume(b);
+            blackhole.consume(len);
+          }
+
+          @Override
+          public void write(final int b) {
+            blackhole.consume(b);
+          }
+        });
+  }
+
+  public static void main(final String[] args) throws RunnerException {
+    new Runner(
+            new OptionsBuilder() //
+                .include(Utf8StringEntityBenchmark.class.getSimpleName()) //
+                .addProfiler(GCProfiler.class) //
+                .build()) //
+        .run();
+  }
+}
@@ -0,0 +1,53 @@
+package se.bjurr.prnfb.http;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import org.junit.Test;
+
+public class Utf8StringEntityTest {
+
+  @Test
+  public void testThatContentIsWrittenAsUtf8() throws IOException {
+    assertWrittenAsUtf8("");
+    assertWrittenAsUtf8("{\"title\":\"abc\"}");
+    assertWrittenAsUtf8("\u00e5\u00e4\u00f6 \u20ac \ud83d\ude00");
+    assertWrittenAsUtf8("unpaired \ud83d and \ude00 surrogates \ud83d");
+  }
+
+  @Test
+  public void testThatContentLargerThanBufferIsWritten() throws IOException {
+    final StringBuilder sb = new StringBuilder();
+    while (sb.length() < Utf8StringEntity.BUFFER_SIZE * 3) {
+      sb.append("abc \u00e5\u00e4\u00f6 \u20ac \ud83d\ude00 ");
+    }
+    assertWrittenAsUtf8(sb.toString());
+  }
+
+  @Test
+  public void testThatEntityIsRepeatable() throws IOException {
+    final Utf8StringEntity entity = new Utf8StringEntity("\u00e5\u00e4\u00f6");
+    final ByteArrayOutputStream first = new ByteArrayOutputStream();
+    entity.writeTo(first);
+    final ByteArrayOutputStream second = new ByteArrayOutputStream();
+    entity.writeTo(second);
+
+    assertThat(entity.isRepeatable()) //
+        .isTrue();
+    assertThat(second.toByteArray()) //
+        .isEqualTo(first.toByteArray());
+  }
+
+  private void assertWrittenAsUtf8(final String content) throws IOException {
+    final Utf8StringEntity entity = new Utf8StringEntity(content);
+    final ByteArrayOutputStream written = new ByteArrayOutputStream();
+    entity.writeTo(written);
+
+    assertThat(written.toByteArray()) //
+        .isEqualTo(content.getBytes(UTF_8));
+    assertThat(entity.getContentLength()) //
+        .isEqualTo((long) content.getBytes(UTF_8).length);
+  }
+}
@@ -0,0 +1,50 @@
+package se.bjurr.prnfb.jfr;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static se.bjurr.prnfb.jfr.PrnfbFlightRecorder.beginHttpInvoke;
+import static se.bjurr.prnfb.jfr.PrnfbFlightRecorder.beginRender;
+import static se.bjurr.prnfb.jfr.PrnfbFlightRecorder.endHttpInvoke;
+
+import java.net.URI;
+import java.util.UUID;
+import org.junit.After;
+import org.junit.Test;
+
+public class PrnfbFlightRecorderTest {
+
+  @After
+  public void after() {
+    PrnfbFlightRecorder.setEnabled(false);
+  }
+
+  @Test
+  public void testThatNothingIsRecordedWhenDisabled() {
+    PrnfbFlightRecorder.setEnabled(false);
+
+    assertThat(beginRender()) //
+        .isNull();
+    assertThat(beginHttpInvoke()) //
+        .isNull();
+  }
+
+  @Test
+  public void testThatEventsAreRecordedWhenEnabled() {
+    PrnfbFlightRecorder.setEnabled(true);
+
+    final PrnfbRecording recording = beginHttpInvoke();
+    assertThat(recording) //
+        .isInstanceOf(HttpInvokeEvent.class);
+
+    endHttpInvoke(
+        recording,
+        UUID.randomUUID(),
+        1L,
+        "POST",
+        URI.create("http://bjurr.se/"),
+        null,
+        3,
+        200,
+        "\u00e5\u00e4\u00f6",
+        null);
+  }
+}
@@ -0,0 +1,118 @@
+package se.bjurr.prnfb.listener;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static se.bjurr.prnfb.listener.PrnfbPullRequestAction.MERGED;
+import static se.bjurr.prnfb.listener.PrnfbPullRequestAction.OPENED;
+import static se.bjurr.prnfb.settings.PrnfbCompiledNotification.compile;
+import static se.bjurr.prnfb.settings.TRIGGER_IF_MERGE.ALWAYS;
+import static se.bjurr.prnfb.test.MockedPullRequest.PROJECT_KEY;
+import static se.bjurr.prnfb.test.MockedPullRequest.REPOSITORY_SLUG;
+import static se.bjurr.prnfb.test.MockedPullRequest.mockedPullRequest;
+import static se.bjurr.prnfb.test.MockedPullRequest.mockedUser;
+import static se.bjurr.prnfb.test.Podam.populatedInstanceOf;
+
+import com.atlassian.bitbucket.pull.PullRequest;
+import com.atlassian.bitbucket.repository.RepositoryService;
+import com.atlassian.bitbucket.server.ApplicationPropertiesService;
+import com.atlassian.bitbucket.user.ApplicationUser;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import se.bjurr.prnfb.service.PrnfbRenderer;
+import se.bjurr.prnfb.service.PrnfbRendererFactory;
+import se.bjurr.prnfb.service.VariablesContext;
+import se.bjurr.prnfb.service.VariablesContext.VariablesContextBuilder;
+import se.bjurr.prnfb.settings.PrnfbCompiledNotification;
+import se.bjurr.prnfb.settings.PrnfbNotificationBuilder;
+import se.bjurr.prnfb.settings.ValidationException;
+
+/**
+ * Matches an event against all notifications, as done when an event is handled. The notifications
+ * are a mix of those rejected by trigger, by project, by repository and those that render a
+ * filter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NotificationMatchBenchmark {
+  @Param({"10", "100", "1000"})
+  public int notifications;
+
+  private PrnfbRendererFactory factory;
+  private PrnfbPullRequestEventListener listener;
+  private final List<PrnfbCompiledNotification> notificationList = new ArrayList<>();
+  private PullRequest pullRequest;
+  private ApplicationUser user;
+
+  @Setup
+  public void setup() throws ValidationException {
+    final ApplicationPropertiesService propertiesService = mock(ApplicationPropertiesService.class);
+    when(propertiesService.getBaseUrl()).thenReturn(URI.create("http://bitbucket.example.com"));
+    this.factory =
+        new PrnfbRendererFactory(mock(RepositoryService.class), propertiesService, null, null);
+    this.listener = new PrnfbPullRequestEventListener(null, null, null, null, null, null);
+    this.pullRequest = mockedPullRequest();
+    this.user = mockedUser("admin");
+
+    this.notificationList.clear();
+    for (int i = 0; i < this.notifications; i++) {
+      final PrnfbNotificationBuilder builder =
+          populatedInstanceOf(PrnfbNotificationBuilder.class) //
+              .withUrl("http://ci.example.com/job/" + i) //
+              .withProjectKey(i % 4 == 1 ? "OTHER" : PROJECT_KEY) //
+              .withRepositorySlug(i % 4 == 2 ? "other-repo" : REPOSITORY_SLUG) //
+              .withFilterString("${PULL_REQUEST_TO_BRANCH}") //
+              .withFilterRegexp(i % 8 == 3 ? "^release/.*" : "^master$") //
+              .withTriggerIfCanMerge(ALWAYS) //
+              .setTriggerIgnoreState(new ArrayList<>()) //
+              .setTriggers(Arrays.asList(i % 4 == 0 ? MERGED : OPENED));
+      this.notificationList.add(compile(builder.build()));
+    }
+  }
+
+  @Benchmark
+  public int match() {
+    final VariablesContext variables = new VariablesContextBuilder().build();
+    int triggered = 0;
+    for (final PrnfbCompiledNotification notification : this.notificationList) {
+      final PrnfbRenderer renderer =
+          this.factory.create(
+              this.pullRequest, OPENED, notification.getNotification(), variables, this.user);
+      if (this.listener.isTriggeredByAction(
+          notification, OPENED, renderer, this.pullRequest, null, false)) {
+        triggered++;
+      }
+    }
+    return triggered;
+  }
+
+  public static void main(final String[] args) throws RunnerException {
+    new Runner(
+            new OptionsBuilder() //
+                .include(NotificationMatchBenchmark.class.getSimpleName()) //
+                .addProfiler(GCProfiler.class) //
+                .build()) //
+        .run();
+  }
+}
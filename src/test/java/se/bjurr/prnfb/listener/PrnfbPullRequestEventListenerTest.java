@@ -12,6 +12,7 @@ import static org.mockito.MockitoAnnotations.initMocks;
 import static se.bjurr.prnfb.listener.PrnfbPullRequestAction.APPROVED;
 import static se.bjurr.prnfb.listener.PrnfbPullRequestAction.RESCOPED_FROM;
 import static se.bjurr.prnfb.listener.PrnfbPullRequestEventListener.setInvoker;
+import static se.bjurr.prnfb.settings.PrnfbCompiledNotification.compile;
 import static se.bjurr.prnfb.settings.PrnfbNotificationBuilder.prnfbNotificationBuilder;
 import static se.bjurr.prnfb.settings.PrnfbSettingsDataBuilder.prnfbSettingsDataBuilder;
 import static se.bjurr.prnfb.settings.TRIGGER_IF_MERGE.ALWAYS;
@@ -51,6 +52,7 @@ import se.bjurr.prnfb.service.PrnfbRenderer;
 import se.bjurr.prnfb.service.PrnfbRendererFactory;
 import se.bjurr.prnfb.service.SettingsService;
 import se.bjurr.prnfb.service.VariablesContext;
+import se.bjurr.prnfb.settings.PrnfbCompiledNotification;
 import se.bjurr.prnfb.settings.PrnfbNotification;
 import se.bjurr.prnfb.settings.PrnfbSettingsData;
 import se.bjurr.prnfb.settings.ValidationException;
@@ -174,9 +176,9 @@ public class PrnfbPullRequestEventListenerTest {
             .withTrigger(PrnfbPullRequestAction.RESCOPED_FROM) //
             .withUpdatePullRequestRefs(true) //
             .build();
-    List<PrnfbNotification> notifications =
-        newArrayList(notification1, notification2, notification3);
-    when(settingsService.getNotifications()) //
+    List<PrnfbCompiledNotification> notifications =
+        newArrayList(compile(notification1), compile(notification2), compile(notification3));
+    when(settingsService.getCompiledNotifications()) //
         .thenReturn(notifications);
 
     when(prnfbRendererFactory.create(
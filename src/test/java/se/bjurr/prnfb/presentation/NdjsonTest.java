@@ -0,0 +1,92 @@
+package se.bjurr.prnfb.presentation;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.function.Function.identity;
+import static org.assertj.core.api.Assertions.assertThat;
+import static se.bjurr.prnfb.presentation.Ndjson.readEach;
+import static se.bjurr.prnfb.presentation.Ndjson.writeEach;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.Test;
+import se.bjurr.prnfb.presentation.dto.BulkResultDTO;
+import se.bjurr.prnfb.presentation.dto.HeaderDTO;
+import se.bjurr.prnfb.settings.ValidationException;
+
+public class NdjsonTest {
+  private final List<HeaderDTO> imported = new ArrayList<>();
+  private final UUID uuid = UUID.randomUUID();
+
+  @Test
+  public void testThatEachLineIsImported() {
+    final List<BulkResultDTO> results =
+        read("{\"name\":\"a\",\"value\":\"1\"}\n{\"value\":\"2\"}\n{\"name\":\"c\"}\n");
+
+    assertThat(this.imported) //
+        .hasSize(2);
+    assertThat(this.imported.get(1).getName()) //
+        .isEqualTo("c");
+    assertThat(results) //
+        .hasSize(3);
+    assertThat(results.get(0).getUuid()) //
+        .isEqualTo(this.uuid);
+    assertThat(results.get(0).getError()) //
+        .isNull();
+    assertThat(results.get(1).getLine()) //
+        .isEqualTo(2);
+    assertThat(results.get(1).getUuid()) //
+        .isNull();
+    assertThat(results.get(1).getError()) //
+        .isEqualTo("name=Name not set.");
+  }
+
+  @Test
+  public void testThatLineThatIsNotJsonEndsReading() {
+    final List<BulkResultDTO> results =
+        read("{\"name\":\"a\"}\n[1]\n{\"name\":\n{\"name\":\"d\"}\n");
+
+    assertThat(this.imported) //
+        .hasSize(1);
+    assertThat(results) //
+        .hasSize(3);
+    assertThat(results.get(1).getError()) //
+        .isEqualTo("line=Not a JSON object.");
+    assertThat(results.get(2).getError()) //
+        .startsWith("Not valid JSON");
+  }
+
+  @Test
+  public void testThatObjectsAreWrittenOnePerLine() throws Exception {
+    final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+    writeEach(newArrayList(header("a", "1"), header("b", null)), identity()) //
+        .write(outputStream);
+
+    assertThat(new String(outputStream.toByteArray(), UTF_8)) //
+        .isEqualTo("{\"name\":\"a\",\"value\":\"1\"}\n{\"name\":\"b\",\"value\":null}\n");
+  }
+
+  private HeaderDTO header(String name, String value) {
+    final HeaderDTO header = new HeaderDTO();
+    header.setName(name);
+    header.setValue(value);
+    return header;
+  }
+
+  private List<BulkResultDTO> read(String ndjson) {
+    return readEach(
+        new ByteArrayInputStream(ndjson.getBytes(UTF_8)),
+        HeaderDTO.class,
+        header -> {
+          if (header.getName() == null) {
+            throw new ValidationException("name", "Name not set.");
+          }
+          this.imported.add(header);
+          return this.uuid;
+        });
+  }
+}
@@ -2,6 +2,8 @@ package se.bjurr.prnfb.presentation;
 
 import static com.atlassian.bitbucket.pull.PullRequestState.DECLINED;
 import static com.google.common.collect.Lists.newArrayList;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.function.Function.identity;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
@@ -15,8 +17,11 @@ import static se.bjurr.prnfb.test.Podam.populatedInstanceOf;
 import static se.bjurr.prnfb.transformer.NotificationTransformer.toPrnfbNotification;
 
 import com.google.common.collect.Lists;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.util.List;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
@@ -76,6 +81,30 @@ public class NotificationServletTest {
         .addOrUpdateNotification(eq(expectedSavedSettings));
   }
 
+  @Test
+  public void testNotificationsCanBeCreatedInBulk() throws Exception {
+    final PrnfbSettingsData prnfbSettingsData = mock(PrnfbSettingsData.class);
+    when(settingsService.getPrnfbSettingsData()).thenReturn(prnfbSettingsData);
+    when(settingsService.getPrnfbSettingsData().getAdminRestriction()).thenReturn(ADMIN);
+    final ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+    Ndjson.writeEach(newArrayList(this.notificationDto1), identity()).write(ndjson);
+    ndjson.write("{\"url\":\"not a url\"}\n".getBytes(UTF_8));
+
+    final Response actual =
+        this.sut.createBulk(new ByteArrayInputStream(ndjson.toByteArray()));
+
+    verify(this.settingsService) //
+        .addOrUpdateNotifications(newArrayList(this.notification1));
+    final ByteArrayOutputStream results = new ByteArrayOutputStream();
+    ((StreamingOutput) actual.getEntity()).write(results);
+    assertThat(new String(results.toByteArray(), UTF_8)) //
+        .isEqualTo(
+            "{\"error\":null,\"line\":1,\"uuid\":\""
+                + this.notification1.getUuid()
+                + "\"}\n"
+                + "{\"error\":\"url=URL not valid!\",\"line\":2,\"uuid\":null}\n");
+  }
+
   @Test
   public void testNotificationCanBeDeleted() throws Exception {
     when(this.settingsService.getNotification(this.notification1.getUuid())) //
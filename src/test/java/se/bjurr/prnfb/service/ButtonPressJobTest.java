@@ -0,0 +1,64 @@
+package se.bjurr.prnfb.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static se.bjurr.prnfb.test.Podam.populatedInstanceOf;
+
+import com.atlassian.bitbucket.repository.Repository;
+import com.atlassian.sal.api.user.UserKey;
+import java.util.UUID;
+import org.junit.Test;
+import se.bjurr.prnfb.http.NotificationResponse;
+import se.bjurr.prnfb.settings.PrnfbButton;
+
+public class ButtonPressJobTest {
+  private final PrnfbButton button = populatedInstanceOf(PrnfbButton.class);
+  private final Repository repository = mock(Repository.class);
+  private final UserKey userKey = new UserKey("userkey");
+
+  @Test
+  public void testThatJobIsDoneWhenAllNotificationsAreCompleted() {
+    final ButtonPressJob sut = ButtonPressJob.start(this.button, this.userKey, this.repository, 2);
+    final NotificationResponse response =
+        new NotificationResponse(UUID.randomUUID(), "name", null);
+
+    assertThat(sut.isDone()) //
+        .isFalse();
+
+    sut.complete(response);
+
+    assertThat(sut.isDone()) //
+        .isFalse();
+    assertThat(sut.getResponses()) //
+        .containsExactly(response);
+
+    sut.complete(null);
+
+    assertThat(sut.isDone()) //
+        .isTrue();
+    assertThat(sut.getResponses()) //
+        .containsExactly(response);
+  }
+
+  @Test
+  public void testThatJobCanBeFound() {
+    final ButtonPressJob sut = ButtonPressJob.start(this.button, this.userKey, this.repository, 1);
+
+    assertThat(ButtonPressJob.find(sut.getId()).get()) //
+        .isSameAs(sut);
+    assertThat(sut.getButton()) //
+        .isSameAs(this.button);
+    assertThat(sut.getUserKey().get()) //
+        .isEqualTo(this.userKey);
+    assertThat(sut.getRepository()) //
+        .isSameAs(this.repository);
+    assertThat(ButtonPressJob.find(UUID.randomUUID()).isPresent()) //
+        .isFalse();
+  }
+
+  @Test
+  public void testThatJobWithoutNotificationsIsDone() {
+    assertThat(ButtonPressJob.start(this.button, this.userKey, this.repository, 0).isDone()) //
+        .isTrue();
+  }
+}
@@ -0,0 +1,83 @@
+package se.bjurr.prnfb.service;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static se.bjurr.prnfb.settings.PrnfbSettingsBuilder.prnfbSettingsBuilder;
+import static se.bjurr.prnfb.settings.USER_LEVEL.ADMIN;
+import static se.bjurr.prnfb.settings.USER_LEVEL.EVERYONE;
+import static se.bjurr.prnfb.test.Podam.populatedInstanceOf;
+
+import com.atlassian.sal.api.user.UserKey;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import se.bjurr.prnfb.settings.PrnfbButton;
+import se.bjurr.prnfb.settings.PrnfbSettings;
+
+public class ButtonVisibilityCacheTest {
+  private final PrnfbButton button = populatedInstanceOf(PrnfbButton.class);
+  private final List<PrnfbButton> buttons = newArrayList(this.button);
+  private final PrnfbSettings settings = prnfbSettingsBuilder().build();
+  private final UserKey userKey = new UserKey("userkey");
+
+  @Before
+  public void before() {
+    ButtonVisibilityCache.get(this.settings, 0, 0L, 0, this.userKey, EVERYONE);
+    ButtonVisibilityCache.invalidateAll();
+  }
+
+  @Test
+  public void testThatButtonsAreCachedPerVersionAndUserLevel() {
+    final List<PrnfbButton> stored =
+        ButtonVisibilityCache.put(this.settings, 1, 2L, 3, this.userKey, EVERYONE, this.buttons);
+
+    assertThat(ButtonVisibilityCache.get(this.settings, 1, 2L, 3, this.userKey, EVERYONE)) //
+        .isSameAs(stored) //
+        .containsExactly(this.button);
+    assertThat(ButtonVisibilityCache.get(this.settings, 1, 2L, 4, this.userKey, EVERYONE)) //
+        .isNull();
+    assertThat(ButtonVisibilityCache.get(this.settings, 1, 2L, 3, this.userKey, ADMIN)) //
+        .isNull();
+    assertThat(ButtonVisibilityCache.get(this.settings, 1, 3L, 3, this.userKey, EVERYONE)) //
+        .isNull();
+  }
+
+  @Test
+  public void testThatButtonsAreCachedPerUser() {
+    final UserKey other = new UserKey("other");
+    ButtonVisibilityCache.put(this.settings, 1, 2L, 3, this.userKey, EVERYONE, this.buttons);
+
+    assertThat(ButtonVisibilityCache.get(this.settings, 1, 2L, 3, other, EVERYONE)) //
+        .isNull();
+    assertThat(ButtonVisibilityCache.get(this.settings, 1, 2L, 3, null, EVERYONE)) //
+        .isNull();
+  }
+
+  @Test
+  public void testThatButtonsAreInvalidatedByPullRequest() {
+    ButtonVisibilityCache.put(this.settings, 1, 2L, 3, this.userKey, EVERYONE, this.buttons);
+    ButtonVisibilityCache.put(this.settings, 1, 2L, 3, this.userKey, ADMIN, this.buttons);
+    ButtonVisibilityCache.put(this.settings, 1, 5L, 3, this.userKey, EVERYONE, this.buttons);
+
+    ButtonVisibilityCache.invalidate(1, 2L);
+
+    assertThat(ButtonVisibilityCache.getSize()) //
+        .isEqualTo(1);
+    assertThat(ButtonVisibilityCache.get(this.settings, 1, 5L, 3, this.userKey, EVERYONE)) //
+        .containsExactly(this.button);
+  }
+
+  @Test
+  public void testThatButtonsAreInvalidatedWhenSettingsChange() {
+    final PrnfbSettings changed = prnfbSettingsBuilder().build();
+    ButtonVisibilityCache.put(this.settings, 1, 2L, 3, this.userKey, EVERYONE, this.buttons);
+
+    assertThat(ButtonVisibilityCache.get(changed, 1, 2L, 3, this.userKey, EVERYONE)) //
+        .isNull();
+
+    ButtonVisibilityCache.put(this.settings, 1, 2L, 3, this.userKey, EVERYONE, this.buttons);
+
+    assertThat(ButtonVisibilityCache.getSize()) //
+        .isEqualTo(0);
+  }
+}
@@ -10,6 +10,9 @@ import static org.mockito.MockitoAnnotations.initMocks;
 import static org.mockito.internal.verification.VerificationModeFactory.times;
 import static se.bjurr.prnfb.listener.PrnfbPullRequestAction.BUTTON_TRIGGER;
 import static se.bjurr.prnfb.listener.PrnfbPullRequestAction.MERGED;
+import static se.bjurr.prnfb.service.PrnfbVariable.PULL_REQUEST_USER_SLUG;
+import static se.bjurr.prnfb.settings.PrnfbSettingsBuilder.prnfbSettingsBuilder;
+import static se.bjurr.prnfb.settings.PrnfbSettingsDataBuilder.prnfbSettingsDataBuilder;
 import static se.bjurr.prnfb.test.Podam.populatedInstanceOf;
 import static se.bjurr.prnfb.transformer.ButtonTransformer.toPrnfbButton;
 import static se.bjurr.prnfb.transformer.NotificationTransformer.toPrnfbNotification;
@@ -22,13 +25,17 @@ import com.atlassian.bitbucket.pull.PullRequestService;
 import com.atlassian.bitbucket.repository.Repository;
 import com.atlassian.bitbucket.repository.RepositoryService;
 import com.atlassian.bitbucket.server.ApplicationPropertiesService;
+import com.atlassian.sal.api.user.UserKey;
 import com.google.common.collect.Lists;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
 import se.bjurr.prnfb.http.ClientKeyStore;
+import se.bjurr.prnfb.http.NotificationResponse;
 import se.bjurr.prnfb.listener.PrnfbPullRequestAction;
 import se.bjurr.prnfb.listener.PrnfbPullRequestEventListener;
 import se.bjurr.prnfb.presentation.dto.ButtonDTO;
@@ -36,6 +43,7 @@ import se.bjurr.prnfb.presentation.dto.NotificationDTO;
 import se.bjurr.prnfb.presentation.dto.ON_OR_OFF;
 import se.bjurr.prnfb.settings.PrnfbButton;
 import se.bjurr.prnfb.settings.PrnfbNotification;
+import se.bjurr.prnfb.settings.PrnfbSettings;
 import se.bjurr.prnfb.settings.USER_LEVEL;
 import se.bjurr.prnfb.settings.ValidationException;
 
@@ -72,6 +80,7 @@ public class ButtonsServiceTest {
   private final Boolean shouldAcceptAnyCertificate = true;
   private ButtonsService sut;
   @Mock private UserCheckService userCheckService;
+  private final UserKey userKey = new UserKey("userkey");
   private final USER_LEVEL userLevel = USER_LEVEL.ADMIN;
   private final UUID uuid = UUID.randomUUID();
 
@@ -135,6 +144,8 @@ public class ButtonsServiceTest {
     when(this.repository.getSlug()).thenReturn(this.button3.getRepositorySlug().get());
     when(this.repository.getProject()).thenReturn(this.project);
     when(this.project.getKey()).thenReturn(this.button3.getProjectKey().get());
+    when(this.userCheckService.getUserKey()) //
+        .thenReturn(Optional.of(this.userKey));
   }
 
   @Test
@@ -236,6 +247,74 @@ public class ButtonsServiceTest {
         .isEmpty();
   }
 
+  @Test
+  public void testThatVisibleButtonsAreCachedPerPullRequestVersion() {
+    ButtonVisibilityCache.invalidateAll();
+    final PrnfbSettings settings =
+        prnfbSettingsBuilder() //
+            .setPrnfbSettingsData(prnfbSettingsDataBuilder().build()) //
+            .setNotifications(this.notifications) //
+            .build();
+    when(this.settingsService.getPrnfbSettings()) //
+        .thenReturn(settings);
+    when(this.settingsService.getButtons()) //
+        .thenReturn(newArrayList(this.button1));
+    when(this.pullRequestService.getById(1, 2L)) //
+        .thenReturn(this.pullRequest);
+    when(this.userCheckService.getUserLevel(any(), any())) //
+        .thenReturn(USER_LEVEL.EVERYONE);
+
+    this.sut.getButtons(1, 2L);
+    this.sut.getButtons(1, 2L);
+
+    verify(this.settingsService, times(1)) //
+        .getButtons();
+
+    when(this.pullRequest.getVersion()) //
+        .thenReturn(1);
+    this.sut.getButtons(1, 2L);
+
+    verify(this.settingsService, times(2)) //
+        .getButtons();
+  }
+
+  @Test
+  public void testThatVisibleButtonsAreCachedPerUser() throws ValidationException {
+    ButtonVisibilityCache.invalidateAll();
+    this.notificationDto1.setFilterString("${" + PULL_REQUEST_USER_SLUG.name() + "}");
+    this.notificationDto1.setFilterRegexp("^user1$");
+    final PrnfbSettings settings =
+        prnfbSettingsBuilder() //
+            .setPrnfbSettingsData(prnfbSettingsDataBuilder().build()) //
+            .setNotifications(newArrayList(toPrnfbNotification(this.notificationDto1))) //
+            .build();
+    when(this.settingsService.getPrnfbSettings()) //
+        .thenReturn(settings);
+    when(this.settingsService.getButtons()) //
+        .thenReturn(newArrayList(this.button1));
+    when(this.userCheckService.getUserLevel(any(), any())) //
+        .thenReturn(USER_LEVEL.EVERYONE);
+    when(this.userCheckService.isAllowed(any(), any(), any())) //
+        .thenReturn(true);
+    final UserKey user1 = new UserKey("user1");
+    final UserKey user2 = new UserKey("user2");
+    final UserKey[] currentUser = {user1};
+    when(this.userCheckService.getUserKey()) //
+        .thenAnswer(invocation -> Optional.of(currentUser[0]));
+    // The filter renders the slug of the current user
+    when(this.prnfbPullRequestEventListener.isNotificationTriggeredByAction(
+            any(), any(), any(), any(), any(), any())) //
+        .thenAnswer(invocation -> currentUser[0] == user1);
+
+    assertThat(this.sut.getButtons(this.pullRequest)) //
+        .containsExactly(this.button1);
+
+    currentUser[0] = user2;
+
+    assertThat(this.sut.getButtons(this.pullRequest)) //
+        .isEmpty();
+  }
+
   @Test
   public void testThatPressedButtonDoesNotDoAnythingIfNoMatchingNotification() {
     UUID buttonUuid = this.button1.getUuid();
@@ -261,6 +340,139 @@ public class ButtonsServiceTest {
         .notify(any(), any(), any(), any(), any(), any());
   }
 
+  @Test
+  public void testThatEachNotificationIsEvaluatedOnceWhenPressed() {
+    when(this.settingsService.getPrnfbSettingsData()) //
+        .thenReturn(prnfbSettingsDataBuilder().build());
+    when(this.prnfbPullRequestEventListener.isNotificationTriggeredByAction(
+            any(), any(), any(), any(), any(), any())) //
+        .thenReturn(true);
+
+    assertThat(this.sut.handlePressed(this.pullRequest, this.button1, "")) //
+        .hasSize(2);
+
+    verify(this.prnfbPullRequestEventListener, times(2)) //
+        .isNotificationTriggeredByAction(any(), any(), any(), any(), any(), any());
+    verify(this.prnfbPullRequestEventListener, times(2)) //
+        .notify(any(), any(), any(), any(), any(), any());
+  }
+
+  @Test
+  public void testThatButtonCanBePressedAsynchronously() {
+    when(this.settingsService.getPrnfbSettingsData()) //
+        .thenReturn(prnfbSettingsDataBuilder().build());
+    when(this.prnfbPullRequestEventListener.isNotificationTriggeredByAction(
+            any(), any(), any(), any(), any(), any())) //
+        .thenReturn(true);
+    final NotificationResponse response =
+        new NotificationResponse(UUID.randomUUID(), "name", null);
+    when(this.prnfbPullRequestEventListener.notifyAsync(
+            any(), any(), any(), any(), any(), any())) //
+        .thenReturn(CompletableFuture.completedFuture(response));
+
+    final ButtonPressJob job = this.sut.handlePressedAsync(this.pullRequest, this.button1, "");
+
+    assertThat(ButtonPressJob.find(job.getId()).get()) //
+        .isSameAs(job);
+    assertThat(job.isDone()) //
+        .isTrue();
+    assertThat(job.getResponses()) //
+        .containsExactly(response, response);
+    verify(this.prnfbPullRequestEventListener, times(2)) //
+        .isNotificationTriggeredByAction(any(), any(), any(), any(), any(), any());
+  }
+
+  @Test
+  public void testThatNothingIsInvokedIfNoNotificationIsTriggeredWhenPressed() {
+    when(this.settingsService.getPrnfbSettingsData()) //
+        .thenReturn(prnfbSettingsDataBuilder().build());
+
+    assertThat(this.sut.handlePressed(this.pullRequest, this.button1, "")) //
+        .isEmpty();
+
+    verify(this.prnfbPullRequestEventListener, times(2)) //
+        .isNotificationTriggeredByAction(any(), any(), any(), any(), any(), any());
+    verify(this.prnfbPullRequestEventListener, times(0)) //
+        .notify(any(), any(), any(), any(), any(), any());
+  }
+
+  @Test
+  public void testThatOnlyVisibleButtonCanBePressed() {
+    ButtonVisibilityCache.invalidateAll();
+    final PrnfbSettings settings =
+        prnfbSettingsBuilder() //
+            .setPrnfbSettingsData(prnfbSettingsDataBuilder().build()) //
+            .setNotifications(this.notifications) //
+            .build();
+    when(this.settingsService.getPrnfbSettings()) //
+        .thenReturn(settings);
+    when(this.settingsService.getButtons()) //
+        .thenReturn(newArrayList(this.button1));
+    when(this.userCheckService.getUserLevel(any(), any())) //
+        .thenReturn(USER_LEVEL.EVERYONE);
+    when(this.userCheckService.isAllowed(any(), any(), any())) //
+        .thenReturn(true);
+
+    assertThat(this.sut.findAllowedButton(this.pullRequest, this.button1.getUuid()).isPresent()) //
+        .isFalse();
+
+    ButtonVisibilityCache.invalidateAll();
+    when(this.prnfbPullRequestEventListener.isNotificationTriggeredByAction(
+            any(), any(), any(), any(), any(), any())) //
+        .thenReturn(true);
+
+    assertThat(this.sut.findAllowedButton(this.pullRequest, this.button1.getUuid()).get()) //
+        .isEqualTo(this.button1);
+    assertThat(this.sut.findAllowedButton(this.pullRequest, UUID.randomUUID()).isPresent()) //
+        .isFalse();
+    assertThat(this.sut.findAllowedButton(null, this.button1.getUuid()).isPresent()) //
+        .isFalse();
+
+    ButtonVisibilityCache.invalidateAll();
+    when(this.userCheckService.isAllowed(any(), any(), any())) //
+        .thenReturn(false);
+
+    assertThat(this.sut.findAllowedButton(this.pullRequest, this.button1.getUuid()).isPresent()) //
+        .isFalse();
+  }
+
+  @Test
+  public void testThatButtonFilteredOutForUserCanNotBePressed() throws ValidationException {
+    ButtonVisibilityCache.invalidateAll();
+    this.notificationDto1.setFilterString("${" + PULL_REQUEST_USER_SLUG.name() + "}");
+    this.notificationDto1.setFilterRegexp("^user1$");
+    final PrnfbSettings settings =
+        prnfbSettingsBuilder() //
+            .setPrnfbSettingsData(prnfbSettingsDataBuilder().build()) //
+            .setNotifications(newArrayList(toPrnfbNotification(this.notificationDto1))) //
+            .build();
+    when(this.settingsService.getPrnfbSettings()) //
+        .thenReturn(settings);
+    when(this.settingsService.getButtons()) //
+        .thenReturn(newArrayList(this.button1));
+    when(this.userCheckService.getUserLevel(any(), any())) //
+        .thenReturn(USER_LEVEL.EVERYONE);
+    when(this.userCheckService.isAllowed(any(), any(), any())) //
+        .thenReturn(true);
+    final UserKey user1 = new UserKey("user1");
+    final UserKey user2 = new UserKey("user2");
+    final UserKey[] currentUser = {user1};
+    when(this.userCheckService.getUserKey()) //
+        .thenAnswer(invocation -> Optional.of(currentUser[0]));
+    // The filter renders the slug of the current user
+    when(this.prnfbPullRequestEventListener.isNotificationTriggeredByAction(
+            any(), any(), any(), any(), any(), any())) //
+        .thenAnswer(invocation -> currentUser[0] == user1);
+
+    assertThat(this.sut.findAllowedButton(this.pullRequest, this.button1.getUuid()).get()) //
+        .isEqualTo(this.button1);
+
+    currentUser[0] = user2;
+
+    assertThat(this.sut.findAllowedButton(this.pullRequest, this.button1.getUuid()).isPresent()) //
+        .isFalse();
+  }
+
   @Test
   public void testVisibilityOnPullRequest() {
     String buttonProjectKey = "proj";
@@ -0,0 +1,68 @@
+package se.bjurr.prnfb.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static se.bjurr.prnfb.service.RepoProtocol.http;
+import static se.bjurr.prnfb.service.RepoProtocol.ssh;
+
+import java.net.URI;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CloneUrlCacheTest {
+  private final URI baseUrl = URI.create("http://bitbucket/");
+
+  @Before
+  public void before() {
+    CloneUrlCache.invalidateAll();
+  }
+
+  @Test
+  public void testThatCloneUrlsAreCachedPerProtocolAndStripUserInfo() {
+    CloneUrlCache.put(1, http, true, baseUrl, "http://bitbucket/scm/p/r.git");
+    CloneUrlCache.put(1, ssh, false, baseUrl, "ssh://git@bitbucket:7999/p/r.git");
+
+    assertThat(CloneUrlCache.get(1, http, true, baseUrl)) //
+        .isEqualTo("http://bitbucket/scm/p/r.git");
+    assertThat(CloneUrlCache.get(1, ssh, false, baseUrl)) //
+        .isEqualTo("ssh://git@bitbucket:7999/p/r.git");
+    assertThat(CloneUrlCache.get(1, http, false, baseUrl)) //
+        .isNull();
+    assertThat(CloneUrlCache.get(2, http, true, baseUrl)) //
+        .isNull();
+  }
+
+  @Test
+  public void testThatCloneUrlsAreInvalidatedByRepository() {
+    CloneUrlCache.put(1, http, true, baseUrl, "http://bitbucket/scm/p/r.git");
+    CloneUrlCache.put(2, http, true, baseUrl, "http://bitbucket/scm/p/r2.git");
+
+    CloneUrlCache.invalidate(1);
+
+    assertThat(CloneUrlCache.get(1, http, true, baseUrl)) //
+        .isNull();
+    assertThat(CloneUrlCache.get(2, http, true, baseUrl)) //
+        .isEqualTo("http://bitbucket/scm/p/r2.git");
+  }
+
+  @Test
+  public void testThatCloneUrlsAreInvalidatedWhenBaseUrlChanges() {
+    CloneUrlCache.put(1, http, true, baseUrl, "http://bitbucket/scm/p/r.git");
+
+    assertThat(CloneUrlCache.get(1, http, true, URI.create("https://bitbucket/"))) //
+        .isNull();
+  }
+
+  @Test
+  public void testThatCloneUrlCreatedWithOldBaseUrlIsNotUsed() {
+    final URI newBaseUrl = URI.create("https://bitbucket/");
+    assertThat(CloneUrlCache.get(1, http, true, newBaseUrl)) //
+        .isNull();
+
+    CloneUrlCache.put(1, http, true, baseUrl, "http://bitbucket/scm/p/r.git");
+
+    assertThat(CloneUrlCache.get(1, http, true, newBaseUrl)) //
+        .isNull();
+    assertThat(CloneUrlCache.get(1, http, true, baseUrl)) //
+        .isEqualTo("http://bitbucket/scm/p/r.git");
+  }
+}
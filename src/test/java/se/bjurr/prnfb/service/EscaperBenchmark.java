@@ -0,0 +1,110 @@
+package se.bjurr.prnfb.service;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import org.apache.commons.lang3.StringEscapeUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the escapers used when rendering with the library calls used before. Run {@link
+ * #main(String[])} to also see allocation per operation, as <code>gc.alloc.rate.norm</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EscaperBenchmark {
+  private static final String TITLE = "Fix NPE when repository has no default branch";
+  private static final String COMMENT =
+      "Looks good to me, but could you add a test for the empty case?\n"
+          + "Also `foo & bar` should probably be <code>final</code>.";
+  private static final String DESCRIPTION =
+      "## Summary\n"
+          + "Reads the \"default branch\" lazily & caches it per repository.\r\n"
+          + "\r\n"
+          + "* Adds `RepositoryCache` <internal>\n"
+          + "* Handles repos with \u00e5\u00e4\u00f6 and \u20ac in names\n"
+          + "\n"
+          + "Fixes #123, see https://bitbucket/projects/P/repos/r?at=refs/heads/master\n";
+
+  @Param({"title", "comment", "description"})
+  public String text;
+
+  private final StringBuilder buffer = new StringBuilder();
+  private String value;
+
+  @Setup
+  public void setup() {
+    if (this.text.equals("title")) {
+      this.value = TITLE;
+    } else if (this.text.equals("comment")) {
+      this.value = COMMENT;
+    } else {
+      this.value = DESCRIPTION;
+    }
+  }
+
+  @Benchmark
+  public String urlEncoder() throws UnsupportedEncodingException {
+    return URLEncoder.encode(this.value, UTF_8.name());
+  }
+
+  @Benchmark
+  public StringBuilder urlEscaper() {
+    this.buffer.setLength(0);
+    UrlEscaper.urlEncode(this.value, this.buffer);
+    return this.buffer;
+  }
+
+  @Benchmark
+  public String escapeHtml4() {
+    return StringEscapeUtils.escapeHtml4(this.value).replaceAll("(\r\n|\n)", "<br />");
+  }
+
+  @Benchmark
+  public StringBuilder htmlEscaper() {
+    this.buffer.setLength(0);
+    HtmlEscaper.htmlEscape(this.value, this.buffer);
+    return this.buffer;
+  }
+
+  @Benchmark
+  public String jsonEscapeToString() {
+    return JsonEscaper.jsonEscape(this.value);
+  }
+
+  @Benchmark
+  public StringBuilder jsonEscaper() {
+    this.buffer.setLength(0);
+    JsonEscaper.jsonEscape(this.value, this.buffer);
+    return this.buffer;
+  }
+
+  public static void main(final String[] args) throws RunnerException {
+    new Runner(
+            new OptionsBuilder() //
+                .include(EscaperBenchmark.class.getSimpleName()) //
+                .addProfiler(GCProfiler.class) //
+                .build()) //
+        .run();
+  }
+}
@@ -0,0 +1,35 @@
+package se.bjurr.prnfb.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class HtmlEscaperTest {
+
+  @Test
+  public void testThatStringIsEscaped() {
+    assertThat(HtmlEscaper.htmlEscape("<a href=\"x\">&</a> \u00e5 \u20ac \u2666")) //
+        .isEqualTo("&lt;a href=&quot;x&quot;&gt;&amp;&lt;/a&gt; &aring; &euro; &diams;");
+  }
+
+  @Test
+  public void testThatNewLinesAreReplaced() {
+    assertThat(HtmlEscaper.htmlEscape("a\r\nb\nc\rd")) //
+        .isEqualTo("a<br />b<br />c\rd");
+  }
+
+  @Test
+  public void testThatStringIsAppended() {
+    final StringBuilder sb = new StringBuilder("<p>");
+    HtmlEscaper.htmlEscape("a & b", sb);
+    assertThat(sb.toString()) //
+        .isEqualTo("<p>a &amp; b");
+  }
+
+  @Test
+  public void testThatStringNotNeedingEscapingIsReturned() {
+    final String value = "Some title";
+    assertThat(HtmlEscaper.htmlEscape(value)) //
+        .isSameAs(value);
+  }
+}
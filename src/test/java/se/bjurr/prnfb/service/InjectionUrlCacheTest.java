@@ -0,0 +1,144 @@
+package se.bjurr.prnfb.service;
+
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.Before;
+import org.junit.Test;
+import se.bjurr.prnfb.http.HttpResponse;
+
+public class InjectionUrlCacheTest {
+  private final AtomicInteger fetches = new AtomicInteger();
+  private final UUID notification = randomUUID();
+
+  @Before
+  public void before() {
+    InjectionUrlCache.invalidateAll();
+    this.fetches.set(0);
+  }
+
+  @Test
+  public void testThatResponsesAreCachedPerRenderedUrl() {
+    assertThat(get("http://a/1", 200, "one").getContent()) //
+        .isEqualTo("one");
+    assertThat(get("http://a/1", 200, "other").getContent()) //
+        .isEqualTo("one");
+    assertThat(get("http://a/2", 200, "two").getContent()) //
+        .isEqualTo("two");
+    assertThat(InjectionUrlCache.get(randomUUID(), "http://a/1", 60, fetcher(200, "three")) //
+            .getContent()) //
+        .isEqualTo("three");
+    assertThat(this.fetches.get()) //
+        .isEqualTo(3);
+  }
+
+  @Test
+  public void testThatFailedResponsesAreNotCached() {
+    assertThat(get("http://a/1", 500, "error").getContent()) //
+        .isEqualTo("error");
+    assertThat(get("http://a/1", 200, "ok").getContent()) //
+        .isEqualTo("ok");
+    assertThat(this.fetches.get()) //
+        .isEqualTo(2);
+  }
+
+  @Test
+  public void testThatResponsesAreInvalidatedByNotification() {
+    get("http://a/1", 200, "one");
+
+    InjectionUrlCache.invalidate(this.notification);
+
+    assertThat(get("http://a/1", 200, "two").getContent()) //
+        .isEqualTo("two");
+  }
+
+  @Test
+  public void testThatResponseInFlightWhenInvalidatedIsNotCached() throws Exception {
+    final CountDownLatch fetching = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final Supplier<HttpResponse> slowFetcher =
+        () -> {
+          fetching.countDown();
+          try {
+            release.await();
+          } catch (final InterruptedException e) {
+            throw new RuntimeException(e);
+          }
+          return fetcher(200, "old").get();
+        };
+    final Thread thread =
+        new Thread(() -> InjectionUrlCache.get(this.notification, "http://a/1", 60, slowFetcher));
+    thread.start();
+    fetching.await();
+
+    InjectionUrlCache.invalidate(this.notification);
+    release.countDown();
+    thread.join();
+
+    assertThat(get("http://a/1", 200, "new").getContent()) //
+        .isEqualTo("new");
+  }
+
+  @Test
+  public void testThatConcurrentLookupsShareOneRequest() throws Exception {
+    final CountDownLatch fetching = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final Supplier<HttpResponse> slowFetcher =
+        () -> {
+          fetching.countDown();
+          try {
+            release.await();
+          } catch (final InterruptedException e) {
+            throw new RuntimeException(e);
+          }
+          return fetcher(200, "slow").get();
+        };
+    final List<String> responses = new ArrayList<>();
+    final List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      final Thread thread =
+          new Thread(
+              () -> {
+                final String content =
+                    InjectionUrlCache.get(this.notification, "http://a/1", 60, slowFetcher)
+                        .getContent();
+                synchronized (responses) {
+                  responses.add(content);
+                }
+              });
+      threads.add(thread);
+      thread.start();
+      if (i == 0) {
+        fetching.await();
+      }
+    }
+    Thread.sleep(100);
+    release.countDown();
+    for (final Thread thread : threads) {
+      thread.join();
+    }
+
+    assertThat(responses) //
+        .containsExactly("slow", "slow", "slow", "slow", "slow");
+    assertThat(this.fetches.get()) //
+        .isEqualTo(1);
+  }
+
+  private HttpResponse get(final String url, final int status, final String content) {
+    return InjectionUrlCache.get(this.notification, url, 60, fetcher(status, content));
+  }
+
+  private Supplier<HttpResponse> fetcher(final int status, final String content) {
+    return () -> {
+      this.fetches.incrementAndGet();
+      return new HttpResponse(URI.create("http://a/"), status, content);
+    };
+  }
+}
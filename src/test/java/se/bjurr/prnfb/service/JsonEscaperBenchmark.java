@@ -0,0 +1,49 @@
+package se.bjurr.prnfb.service;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** {@link JsonEscaper#jsonEscape(String)} on ASCII and non-ASCII text, with and without escapes. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonEscaperBenchmark {
+  @Param({"ascii", "asciiEscaped", "nonAscii", "nonAsciiEscaped"})
+  public String text;
+
+  private String value;
+
+  @Setup
+  public void setup() {
+    if (this.text.equals("ascii")) {
+      this.value = "Fix NPE when repository has no default branch, see issue 123";
+    } else if (this.text.equals("asciiEscaped")) {
+      this.value = "Fix \"NPE\" when repository has no default branch.\nSee issue\t123";
+    } else if (this.text.equals("nonAscii")) {
+      this.value =
+          "R\u00e4tta NPE n\u00e4r f\u00f6rr\u00e5det saknar standardgren \u20ac \u4e2d\u6587";
+    } else {
+      this.value =
+          "R\u00e4tta \"NPE\" n\u00e4r f\u00f6rr\u00e5det saknar standardgren.\n\u2028\u4e2d\u6587";
+    }
+  }
+
+  @Benchmark
+  public String jsonEscape() {
+    return JsonEscaper.jsonEscape(this.value);
+  }
+}
@@ -11,4 +11,19 @@ public class JsonEscaperTest {
     assertThat(JsonEscaper.jsonEscape("some'string")) //
         .isEqualTo("some\\u0027string");
   }
+
+  @Test
+  public void testThatStringIsAppended() {
+    final StringBuilder sb = new StringBuilder("{\"a\":\"");
+    JsonEscaper.jsonEscape("b\"\n\u2028", sb);
+    assertThat(sb.toString()) //
+        .isEqualTo("{\"a\":\"b\\\"\\n\\u2028");
+  }
+
+  @Test
+  public void testThatStringNotNeedingEscapingIsReturned() {
+    final String value = "Some title";
+    assertThat(JsonEscaper.jsonEscape(value)) //
+        .isSameAs(value);
+  }
 }
@@ -0,0 +1,87 @@
+package se.bjurr.prnfb.service;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static se.bjurr.prnfb.service.PrnfbVariable.INJECTION_URL_VALUE;
+import static se.bjurr.prnfb.service.PrnfbVariable.PULL_REQUEST_FROM_HTTP_CLONE_URL;
+import static se.bjurr.prnfb.service.PrnfbVariable.PULL_REQUEST_TO_HTTP_CLONE_URL;
+
+import java.util.Map;
+import org.junit.Test;
+
+public class ParallelResolverTest {
+
+  @Test
+  public void testThatVariablesAreResolvedInParallel() {
+    final long start = System.currentTimeMillis();
+    final Map<PrnfbVariable, String> resolved =
+        ParallelResolver.resolveAll(
+            asList(
+                INJECTION_URL_VALUE,
+                PULL_REQUEST_FROM_HTTP_CLONE_URL,
+                PULL_REQUEST_TO_HTTP_CLONE_URL),
+            variable -> {
+              sleep(300);
+              return variable.name();
+            },
+            10000);
+
+    assertThat(System.currentTimeMillis() - start) //
+        .isLessThan(800L);
+    assertThat(resolved.get(INJECTION_URL_VALUE)) //
+        .isEqualTo("INJECTION_URL_VALUE");
+    assertThat(resolved.get(PULL_REQUEST_FROM_HTTP_CLONE_URL)) //
+        .isEqualTo("PULL_REQUEST_FROM_HTTP_CLONE_URL");
+    assertThat(resolved.get(PULL_REQUEST_TO_HTTP_CLONE_URL)) //
+        .isEqualTo("PULL_REQUEST_TO_HTTP_CLONE_URL");
+  }
+
+  @Test
+  public void testThatVariablesNotResolvedBeforeDeadlineAreEmpty() {
+    final long start = System.currentTimeMillis();
+    final Map<PrnfbVariable, String> resolved =
+        ParallelResolver.resolveAll(
+            asList(INJECTION_URL_VALUE, PULL_REQUEST_FROM_HTTP_CLONE_URL),
+            variable -> {
+              if (variable == INJECTION_URL_VALUE) {
+                sleep(5000);
+              }
+              return variable.name();
+            },
+            200);
+
+    assertThat(System.currentTimeMillis() - start) //
+        .isLessThan(2000L);
+    assertThat(resolved.get(INJECTION_URL_VALUE)) //
+        .isEqualTo("");
+    assertThat(resolved.get(PULL_REQUEST_FROM_HTTP_CLONE_URL)) //
+        .isEqualTo("PULL_REQUEST_FROM_HTTP_CLONE_URL");
+  }
+
+  @Test
+  public void testThatFailingVariablesAreEmpty() {
+    final Map<PrnfbVariable, String> resolved =
+        ParallelResolver.resolveAll(
+            asList(INJECTION_URL_VALUE, PULL_REQUEST_FROM_HTTP_CLONE_URL),
+            variable -> {
+              if (variable == INJECTION_URL_VALUE) {
+                throw new RuntimeException("failing");
+              }
+              return variable.name();
+            },
+            10000);
+
+    assertThat(resolved.get(INJECTION_URL_VALUE)) //
+        .isEqualTo("");
+    assertThat(resolved.get(PULL_REQUEST_FROM_HTTP_CLONE_URL)) //
+        .isEqualTo("PULL_REQUEST_FROM_HTTP_CLONE_URL");
+  }
+
+  private static void sleep(final long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (final InterruptedException e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
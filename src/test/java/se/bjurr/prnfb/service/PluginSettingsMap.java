@@ -8,6 +8,7 @@ import java.util.Map;
 public class PluginSettingsMap implements PluginSettings {
 
   private final Map<String, String> pluginSettingsMap;
+  private int puts = 0;
 
   public PluginSettingsMap() {
     this.pluginSettingsMap = newHashMap();
@@ -22,8 +23,13 @@ public class PluginSettingsMap implements PluginSettings {
     return this.pluginSettingsMap;
   }
 
+  public int getPuts() {
+    return this.puts;
+  }
+
   @Override
   public Object put(String key, Object value) {
+    this.puts++;
     this.pluginSettingsMap.put(key, (String) value);
     return value;
   }
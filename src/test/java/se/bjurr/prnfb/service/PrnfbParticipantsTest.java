@@ -0,0 +1,107 @@
+package se.bjurr.prnfb.service;
+
+import static com.atlassian.bitbucket.pull.PullRequestParticipantStatus.APPROVED;
+import static com.atlassian.bitbucket.pull.PullRequestParticipantStatus.NEEDS_WORK;
+import static com.atlassian.bitbucket.pull.PullRequestParticipantStatus.UNAPPROVED;
+import static com.google.common.collect.Sets.newHashSet;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static se.bjurr.prnfb.service.PrnfbVariable.PULL_REQUEST_PARTICIPANTS_APPROVED_COUNT;
+import static se.bjurr.prnfb.service.PrnfbVariable.PULL_REQUEST_REVIEWERS_NEEDS_WORK_COUNT;
+import static se.bjurr.prnfb.service.PrnfbVariable.PULL_REQUEST_REVIEWERS_SLUG;
+import static se.bjurr.prnfb.test.MockedPullRequest.mockedUser;
+
+import com.atlassian.bitbucket.pull.PullRequest;
+import com.atlassian.bitbucket.pull.PullRequestParticipant;
+import com.atlassian.bitbucket.pull.PullRequestParticipantStatus;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PrnfbParticipantsTest {
+  private PullRequest pullRequest;
+  private PrnfbParticipants sut;
+
+  @Before
+  public void before() {
+    pullRequest = mock(PullRequest.class);
+    when(pullRequest.getReviewers())
+        .thenReturn(
+            newHashSet(
+                participant("carl", APPROVED),
+                participant("anna", NEEDS_WORK),
+                participant("bert", APPROVED),
+                participant("dave", UNAPPROVED)));
+    when(pullRequest.getParticipants())
+        .thenReturn(newHashSet(participant("erik", APPROVED), participant("fred", UNAPPROVED)));
+    sut = PrnfbParticipants.of(pullRequest);
+  }
+
+  @Test
+  public void testThatReviewersAreSortedAndJoined() {
+    assertThat(sut.getReviewers().getSlugs()) //
+        .isEqualTo("anna,bert,carl,dave");
+    assertThat(sut.getReviewers().getDisplayNames()) //
+        .isEqualTo("User anna,User bert,User carl,User dave");
+    assertThat(sut.getReviewers().getCount()) //
+        .isEqualTo(4);
+    assertThat(sut.getReviewersApprovedCount()) //
+        .isEqualTo(2);
+  }
+
+  @Test
+  public void testThatReviewersAreGroupedByStatus() {
+    assertThat(sut.getReviewers(APPROVED).getEmails()) //
+        .isEqualTo("bert@example.com,carl@example.com");
+    assertThat(sut.getReviewers(APPROVED).getNames()) //
+        .isEqualTo("bert,carl");
+    assertThat(sut.getReviewers(NEEDS_WORK).getCount()) //
+        .isEqualTo(1);
+    assertThat(sut.getReviewers(UNAPPROVED).getSlugs()) //
+        .isEqualTo("dave");
+  }
+
+  @Test
+  public void testThatMissingStatusIsEmpty() {
+    when(pullRequest.getReviewers()).thenReturn(newHashSet(participant("anna", APPROVED)));
+    sut = PrnfbParticipants.of(pullRequest);
+
+    assertThat(sut.getReviewers(NEEDS_WORK).getSlugs()) //
+        .isEmpty();
+    assertThat(sut.getReviewers(NEEDS_WORK).getCount()) //
+        .isEqualTo(0);
+  }
+
+  @Test
+  public void testThatParticipantsAreNotReviewers() {
+    assertThat(sut.getParticipants().getEmails()) //
+        .isEqualTo("erik@example.com,fred@example.com");
+    assertThat(sut.getParticipantsApprovedCount()) //
+        .isEqualTo(1);
+  }
+
+  @Test
+  public void testThatVariablesAreResolvedFromParticipants() {
+    final PrnfbResolveContext context =
+        new PrnfbRenderer(pullRequest, null, null, null, null, null, null, null)
+            .createContext(null, false);
+
+    assertThat(PULL_REQUEST_REVIEWERS_SLUG.resolve(context)) //
+        .isEqualTo("anna,bert,carl,dave");
+    assertThat(PULL_REQUEST_REVIEWERS_NEEDS_WORK_COUNT.resolve(context)) //
+        .isEqualTo("1");
+    assertThat(PULL_REQUEST_PARTICIPANTS_APPROVED_COUNT.resolve(context)) //
+        .isEqualTo("1");
+    assertThat(context.getParticipants()) //
+        .isSameAs(context.getParticipants());
+  }
+
+  private PullRequestParticipant participant(
+      final String name, final PullRequestParticipantStatus status) {
+    final PullRequestParticipant participant = mock(PullRequestParticipant.class);
+    when(participant.getUser()).thenReturn(mockedUser(name));
+    when(participant.getStatus()).thenReturn(status);
+    when(participant.isApproved()).thenReturn(status == APPROVED);
+    return participant;
+  }
+}
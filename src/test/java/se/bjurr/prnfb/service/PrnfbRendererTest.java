@@ -1,11 +1,14 @@
 package se.bjurr.prnfb.service;
 
+import static com.atlassian.bitbucket.comment.CommentAction.ADDED;
 import static com.google.common.collect.Maps.newHashMap;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 import static se.bjurr.prnfb.listener.PrnfbPullRequestAction.APPROVED;
 import static se.bjurr.prnfb.service.PrnfbRenderer.ENCODE_FOR.NONE;
+import static se.bjurr.prnfb.service.PrnfbVariable.BUTTON_TRIGGER_TITLE;
 import static se.bjurr.prnfb.service.PrnfbVariable.EVERYTHING_URL;
 import static se.bjurr.prnfb.service.PrnfbVariable.INJECTION_URL_VALUE;
 import static se.bjurr.prnfb.service.PrnfbVariable.PULL_REQUEST_AUTHOR_EMAIL;
@@ -17,6 +20,8 @@ import static se.bjurr.prnfb.service.PrnfbVariable.PULL_REQUEST_TITLE;
 import static se.bjurr.prnfb.service.PrnfbVariable.VARIABLE_REGEX_MATCH;
 import static se.bjurr.prnfb.settings.PrnfbNotificationBuilder.prnfbNotificationBuilder;
 
+import com.atlassian.bitbucket.comment.Comment;
+import com.atlassian.bitbucket.event.pull.PullRequestCommentAddedEvent;
 import com.atlassian.bitbucket.pull.PullRequest;
 import com.atlassian.bitbucket.pull.PullRequestParticipant;
 import com.atlassian.bitbucket.pull.PullRequestRef;
@@ -37,6 +42,7 @@ import se.bjurr.prnfb.http.Invoker;
 import se.bjurr.prnfb.http.UrlInvoker;
 import se.bjurr.prnfb.listener.PrnfbPullRequestAction;
 import se.bjurr.prnfb.service.PrnfbRenderer.ENCODE_FOR;
+import se.bjurr.prnfb.service.VariablesContext.VariablesContextBuilder;
 import se.bjurr.prnfb.settings.PrnfbNotification;
 import se.bjurr.prnfb.settings.ValidationException;
 
@@ -100,17 +106,7 @@ public class PrnfbRendererTest {
             "asd ${" + EVERYTHING_URL.name() + "} asd",
             encodeFor,
             sut.regexp(EVERYTHING_URL),
-            EVERYTHING_URL.resolve(
-                pullRequest,
-                pullRequestAction,
-                applicationUser,
-                repositoryService,
-                propertiesService,
-                prnfbNotification,
-                variables,
-                clientKeyStore,
-                shouldAcceptAnyCertificate,
-                securityService));
+            EVERYTHING_URL.resolve(sut.createContext(clientKeyStore, shouldAcceptAnyCertificate)));
 
     for (final PrnfbVariable v : PrnfbVariable.values()) {
       if (v != EVERYTHING_URL && v != PULL_REQUEST_DESCRIPTION) {
@@ -276,4 +272,81 @@ public class PrnfbRendererTest {
             shouldAcceptAnyCertificate);
     assertThat(actual).isEqualTo("my the<br />comment &quot; string");
   }
+
+  @Test
+  public void testThatVariablesInValuesAreRenderedIfDeclaredAfter() {
+    variables.put(PULL_REQUEST_COMMENT_TEXT, "${" + PULL_REQUEST_MERGE_COMMIT + "}");
+    variables.put(PULL_REQUEST_MERGE_COMMIT, "${" + PULL_REQUEST_COMMENT_TEXT + "}");
+    final String actual =
+        sut.render(
+            "${" + PULL_REQUEST_COMMENT_TEXT + "} ${" + PULL_REQUEST_MERGE_COMMIT + "}",
+            encodeFor,
+            clientKeyStore,
+            shouldAcceptAnyCertificate);
+    assertThat(actual)
+        .isEqualTo("${" + PULL_REQUEST_COMMENT_TEXT + "} ${" + PULL_REQUEST_COMMENT_TEXT + "}");
+  }
+
+  @Test
+  public void testThatEverythingUrlIsRenderedWithEncoding() {
+    variables.put(BUTTON_TRIGGER_TITLE, "the title");
+    final String actual =
+        sut.render(
+            "http://hej.com/?${" + EVERYTHING_URL + "}",
+            ENCODE_FOR.URL,
+            clientKeyStore,
+            shouldAcceptAnyCertificate);
+    assertThat(actual)
+        .startsWith("http://hej.com/?BUTTON_FORM_DATA=&BUTTON_TRIGGER_TITLE=the+title&")
+        .doesNotContain("${");
+  }
+
+  @Test
+  public void testThatUnknownVariablesAreKept() {
+    final String actual =
+        sut.render(
+            "${UNKNOWN} ${" + PULL_REQUEST_FROM_HASH + "} ${",
+            encodeFor,
+            clientKeyStore,
+            shouldAcceptAnyCertificate);
+    assertThat(actual).isEqualTo("${UNKNOWN} latestCommitHash ${");
+  }
+
+  @Test
+  public void testThatPlaceholderJoinedFromLiteralAndValueIsRendered() {
+    variables.put(BUTTON_TRIGGER_TITLE, "FROM_HASH");
+    final String actual =
+        sut.render(
+            "${PULL_REQUEST_${" + BUTTON_TRIGGER_TITLE + "}} ${UNKNOWN}",
+            encodeFor,
+            clientKeyStore,
+            shouldAcceptAnyCertificate);
+    assertThat(actual).isEqualTo("latestCommitHash ${UNKNOWN}");
+  }
+
+  @Test
+  public void testThatPlaceholderInNotificationTemplateIsRendered() {
+    assertThat(sut.render("${" + PULL_REQUEST_FROM_HASH + "}", encodeFor, null, true))
+        .isEqualTo("latestCommitHash");
+    assertThat(sut.render(prnfbNotification.getUrl(), encodeFor, null, true))
+        .isEqualTo("http://hej.com");
+  }
+
+  @Test
+  public void testThatPlaceholderInPullRequestTitleIsRenderedWithContextVariable() {
+    final PullRequestCommentAddedEvent pullRequestEvent = mock(PullRequestCommentAddedEvent.class);
+    final Comment comment = mock(Comment.class);
+    when(pullRequestEvent.getComment()).thenReturn(comment);
+    when(comment.getText()).thenReturn("The comment");
+    when(pullRequestEvent.getCommentAction()).thenReturn(ADDED);
+    when(pullRequest.getTitle()).thenReturn("Title ${" + PULL_REQUEST_COMMENT_TEXT + "}");
+    variables.putAll(
+        new VariablesContextBuilder().setPullRequestEvent(pullRequestEvent).build().getVariables());
+
+    final String actual =
+        sut.render(
+            "${" + PULL_REQUEST_TITLE + "}", encodeFor, clientKeyStore, shouldAcceptAnyCertificate);
+
+    assertThat(actual).isEqualTo("Title The comment");
+  }
 }
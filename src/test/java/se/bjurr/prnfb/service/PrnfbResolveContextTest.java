@@ -0,0 +1,86 @@
+package se.bjurr.prnfb.service;
+
+import static com.google.common.collect.Maps.newHashMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static se.bjurr.prnfb.listener.PrnfbPullRequestAction.OPENED;
+import static se.bjurr.prnfb.service.PrnfbVariable.BUTTON_TRIGGER_TITLE;
+import static se.bjurr.prnfb.service.PrnfbVariable.PULL_REQUEST_FROM_BRANCH;
+import static se.bjurr.prnfb.service.PrnfbVariable.PULL_REQUEST_ID;
+import static se.bjurr.prnfb.service.PrnfbVariable.VARIABLE_REGEX_MATCH;
+import static se.bjurr.prnfb.settings.PrnfbNotificationBuilder.prnfbNotificationBuilder;
+import static se.bjurr.prnfb.test.MockedPullRequest.mockedPullRequest;
+
+import com.atlassian.bitbucket.pull.PullRequest;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import se.bjurr.prnfb.settings.PrnfbNotification;
+import se.bjurr.prnfb.settings.ValidationException;
+
+public class PrnfbResolveContextTest {
+  private PrnfbNotification notification;
+  private PullRequest pullRequest;
+  private final Map<PrnfbVariable, String> variables = newHashMap();
+
+  @Before
+  public void before() throws ValidationException {
+    pullRequest = mockedPullRequest();
+    notification =
+        prnfbNotificationBuilder() //
+            .withUrl("http://hej.com") //
+            .withTrigger(OPENED) //
+            .withVariableName(PULL_REQUEST_FROM_BRANCH.name()) //
+            .withVariableRegex("feature/(.*)") //
+            .build();
+  }
+
+  @Test
+  public void testThatResolvedVariablesAreMemoized() {
+    final PrnfbResolveContext sut = createContext(pullRequest);
+    variables.put(BUTTON_TRIGGER_TITLE, "first");
+
+    assertThat(sut.getResolved(BUTTON_TRIGGER_TITLE)) //
+        .isEqualTo("first");
+    variables.put(BUTTON_TRIGGER_TITLE, "second");
+    assertThat(sut.getResolved(BUTTON_TRIGGER_TITLE)) //
+        .isEqualTo("first");
+    assertThat(sut.getResolvedCount()) //
+        .isEqualTo(1);
+  }
+
+  @Test
+  public void testThatMissingEventVariableIsEmpty() {
+    assertThat(createContext(pullRequest).getResolved(BUTTON_TRIGGER_TITLE)) //
+        .isEmpty();
+  }
+
+  @Test
+  public void testThatVariableIsMatchedByName() {
+    final PrnfbResolveContext sut = createContext(pullRequest);
+
+    assertThat(sut.getResolved(VARIABLE_REGEX_MATCH)) //
+        .isEqualTo("cache-clone-urls");
+    assertThat(sut.getResolvedIfPresent(PULL_REQUEST_FROM_BRANCH)) //
+        .isEqualTo("feature/cache-clone-urls");
+  }
+
+  @Test
+  public void testThatVariablesCanBeFoundByName() {
+    assertThat(PrnfbVariable.byName(PULL_REQUEST_ID.name()).get()) //
+        .isEqualTo(PULL_REQUEST_ID);
+    assertThat(PrnfbVariable.byName("NOT_A_VARIABLE").isPresent()) //
+        .isFalse();
+  }
+
+  @Test
+  public void testThatFailingVariableIsEmpty() {
+    assertThat(createContext(null).getResolved(PULL_REQUEST_ID)) //
+        .isEmpty();
+  }
+
+  private PrnfbResolveContext createContext(final PullRequest pullRequest) {
+    return new PrnfbRenderer(
+            pullRequest, OPENED, null, null, null, notification, variables, null)
+        .createContext(null, false);
+  }
+}
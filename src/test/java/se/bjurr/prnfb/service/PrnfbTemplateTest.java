@@ -0,0 +1,104 @@
+package se.bjurr.prnfb.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static se.bjurr.prnfb.service.PrnfbVariable.INJECTION_URL_VALUE;
+import static se.bjurr.prnfb.service.PrnfbVariable.PULL_REQUEST_FROM_HASH;
+import static se.bjurr.prnfb.service.PrnfbVariable.PULL_REQUEST_ID;
+import static se.bjurr.prnfb.service.PrnfbVariable.PULL_REQUEST_TITLE;
+import static se.bjurr.prnfb.service.PrnfbVariable.PULL_REQUEST_TO_SSH_CLONE_URL;
+
+import org.junit.Test;
+
+public class PrnfbTemplateTest {
+
+  @Test
+  public void testThatTemplateIsParsedIntoSegments() {
+    final PrnfbTemplate template =
+        PrnfbTemplate.parse("a ${PULL_REQUEST_ID}${UNKNOWN} ${PULL_REQUEST_FROM_HASH}");
+
+    assertThat(template.getVariableCount()) //
+        .isEqualTo(2);
+    assertThat(template.getLiteral(0)) //
+        .isEqualTo("a ");
+    assertThat(template.getVariable(0)) //
+        .isEqualTo(PULL_REQUEST_ID);
+    assertThat(template.getLiteral(1)) //
+        .isEqualTo("${UNKNOWN} ");
+    assertThat(template.getVariable(1)) //
+        .isEqualTo(PULL_REQUEST_FROM_HASH);
+    assertThat(template.getLiteral(2)) //
+        .isEmpty();
+  }
+
+  @Test
+  public void testThatExpensiveVariablesAreFound() {
+    assertThat(
+            PrnfbTemplate.parse("${PULL_REQUEST_ID} ${INJECTION_URL_VALUE}")
+                .getExpensiveVariables()) //
+        .containsOnly(INJECTION_URL_VALUE);
+    assertThat(PrnfbTemplate.parse("${EVERYTHING_URL}").getExpensiveVariables()) //
+        .contains(INJECTION_URL_VALUE, PULL_REQUEST_TO_SSH_CLONE_URL);
+    assertThat(PrnfbTemplate.parse("${PULL_REQUEST_ID}").getExpensiveVariables()) //
+        .isEmpty();
+  }
+
+  @Test
+  public void testThatNestedPlaceholderIsParsed() {
+    final PrnfbTemplate template = PrnfbTemplate.parse("${A${PULL_REQUEST_ID}} ${");
+
+    assertThat(template.getVariableCount()) //
+        .isEqualTo(1);
+    assertThat(template.getLiteral(0)) //
+        .isEqualTo("${A");
+    assertThat(template.getLiteral(1)) //
+        .isEqualTo("} ${");
+  }
+
+  @Test
+  public void testThatTemplateWithoutVariablesIsOneLiteral() {
+    final PrnfbTemplate template = PrnfbTemplate.parse("http://hej.com/");
+
+    assertThat(template.hasVariables()) //
+        .isFalse();
+    assertThat(template.getLiteral(0)) //
+        .isEqualTo("http://hej.com/");
+  }
+
+  @Test
+  public void testThatUsedVariablesAreFound() {
+    final PrnfbTemplate template =
+        PrnfbTemplate.parse("${PULL_REQUEST_ID} ${A} ${PULL_REQUEST_TITLE} ${PULL_REQUEST_ID}");
+
+    assertThat(template.getUsedVariables()) //
+        .containsOnly(PULL_REQUEST_ID, PULL_REQUEST_TITLE);
+    assertThat(PrnfbTemplate.parse("${EVERYTHING_URL}").getUsedVariables()) //
+        .containsOnly(PrnfbVariable.values());
+  }
+
+  @Test
+  public void testThatCompiledTemplatesAreCached() {
+    assertThat(PrnfbTemplate.compile("${PULL_REQUEST_ID}")) //
+        .isSameAs(PrnfbTemplate.compile("${PULL_REQUEST_ID}"));
+
+    for (int i = 0; i < PrnfbTemplate.MAX_CACHED_TEMPLATES * 2; i++) {
+      PrnfbTemplate.compile("${PULL_REQUEST_ID} " + i);
+    }
+    assertThat(PrnfbTemplate.getCacheSize()) //
+        .isEqualTo(PrnfbTemplate.MAX_CACHED_TEMPLATES);
+  }
+
+  @Test
+  public void testThatLeastRecentlyUsedTemplatesAreRemovedFromCache() {
+    final PrnfbTemplate used = PrnfbTemplate.compile("${PULL_REQUEST_TITLE}");
+    final PrnfbTemplate unused = PrnfbTemplate.compile("${PULL_REQUEST_URL}");
+    for (int i = 0; i < PrnfbTemplate.MAX_CACHED_TEMPLATES * 2; i++) {
+      PrnfbTemplate.compile("${PULL_REQUEST_ID} " + i);
+      PrnfbTemplate.compile("${PULL_REQUEST_TITLE}");
+    }
+
+    assertThat(PrnfbTemplate.compile("${PULL_REQUEST_TITLE}")) //
+        .isSameAs(used);
+    assertThat(PrnfbTemplate.compile("${PULL_REQUEST_URL}")) //
+        .isNotSameAs(unused);
+  }
+}
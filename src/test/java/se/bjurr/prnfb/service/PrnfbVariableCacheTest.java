@@ -0,0 +1,76 @@
+package se.bjurr.prnfb.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static se.bjurr.prnfb.listener.PrnfbPullRequestAction.APPROVED;
+import static se.bjurr.prnfb.service.PrnfbVariable.BUTTON_TRIGGER_TITLE;
+import static se.bjurr.prnfb.service.PrnfbVariable.INJECTION_URL_VALUE;
+import static se.bjurr.prnfb.service.PrnfbVariable.PULL_REQUEST_ID;
+import static se.bjurr.prnfb.settings.PrnfbNotificationBuilder.prnfbNotificationBuilder;
+
+import org.junit.Before;
+import org.junit.Test;
+import se.bjurr.prnfb.service.VariablesContext.VariablesContextBuilder;
+import se.bjurr.prnfb.settings.PrnfbNotification;
+import se.bjurr.prnfb.settings.ValidationException;
+
+public class PrnfbVariableCacheTest {
+  private PrnfbNotification notification1;
+  private PrnfbNotification notification2;
+  private PrnfbVariableCache sut;
+
+  @Before
+  public void before() throws ValidationException {
+    notification1 =
+        prnfbNotificationBuilder().withUrl("http://hej.com").withTrigger(APPROVED).build();
+    notification2 =
+        prnfbNotificationBuilder().withUrl("http://hej.com").withTrigger(APPROVED).build();
+    sut = new PrnfbVariableCache();
+  }
+
+  @Test
+  public void testThatValuesAreSharedBetweenNotifications() {
+    assertThat(sut.get(PULL_REQUEST_ID, notification1)) //
+        .isNull();
+    sut.put(PULL_REQUEST_ID, notification1, "1");
+
+    assertThat(sut.get(PULL_REQUEST_ID, notification2)) //
+        .isEqualTo("1");
+    assertThat(sut.getHits()) //
+        .isEqualTo(1);
+    assertThat(sut.getMisses()) //
+        .isEqualTo(1);
+  }
+
+  @Test
+  public void testThatNotificationDependentValuesAreNotShared() {
+    sut.put(INJECTION_URL_VALUE, notification1, "value1");
+
+    assertThat(sut.get(INJECTION_URL_VALUE, notification1)) //
+        .isEqualTo("value1");
+    assertThat(sut.get(INJECTION_URL_VALUE, notification2)) //
+        .isNull();
+    assertThat(sut.get(INJECTION_URL_VALUE, null)) //
+        .isNull();
+  }
+
+  @Test
+  public void testThatValuesFromVariablesContextAreNotCached() {
+    sut.put(BUTTON_TRIGGER_TITLE, null, "button1");
+
+    assertThat(sut.get(BUTTON_TRIGGER_TITLE, null)) //
+        .isNull();
+    assertThat(sut.getMisses()) //
+        .isEqualTo(0);
+  }
+
+  @Test
+  public void testThatCacheCanBeSharedBetweenContexts() {
+    final VariablesContext context1 = new VariablesContextBuilder().setVariableCache(sut).build();
+    final VariablesContext context2 = new VariablesContextBuilder().setVariableCache(sut).build();
+
+    assertThat(context1.getVariableCache()) //
+        .isSameAs(context2.getVariableCache());
+    assertThat(new VariablesContextBuilder().build().getVariableCache()) //
+        .isNotSameAs(sut);
+  }
+}
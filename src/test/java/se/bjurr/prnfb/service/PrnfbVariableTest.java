@@ -63,16 +63,16 @@ public class PrnfbVariableTest {
   public void testThatEverythingVariableIsResolvedToEveryOtherVariable() {
     String actual =
         EVERYTHING_URL.resolve(
-            pullRequest,
-            pullRequestAction,
-            applicationUser,
-            repositoryService,
-            propertiesService,
-            prnfbNotification,
-            variables,
-            clientKeyStore,
-            shouldAcceptAnyCertificate,
-            securityService);
+            new PrnfbRenderer(
+                    pullRequest,
+                    pullRequestAction,
+                    applicationUser,
+                    repositoryService,
+                    propertiesService,
+                    prnfbNotification,
+                    variables,
+                    securityService)
+                .createContext(clientKeyStore, shouldAcceptAnyCertificate));
     for (PrnfbVariable v : PrnfbVariable.values()) {
       if (v != EVERYTHING_URL && v != PULL_REQUEST_DESCRIPTION) {
         assertThat(actual) //
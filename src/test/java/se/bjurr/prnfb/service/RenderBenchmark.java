@@ -0,0 +1,123 @@
+package se.bjurr.prnfb.service;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static se.bjurr.prnfb.listener.PrnfbPullRequestAction.OPENED;
+import static se.bjurr.prnfb.settings.PrnfbNotificationBuilder.prnfbNotificationBuilder;
+import static se.bjurr.prnfb.test.MockedPullRequest.mockedPullRequest;
+import static se.bjurr.prnfb.test.MockedPullRequest.mockedUser;
+
+import com.atlassian.bitbucket.pull.PullRequest;
+import com.atlassian.bitbucket.repository.RepositoryService;
+import com.atlassian.bitbucket.server.ApplicationPropertiesService;
+import com.atlassian.bitbucket.user.ApplicationUser;
+import java.net.URI;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import se.bjurr.prnfb.service.PrnfbRenderer.ENCODE_FOR;
+import se.bjurr.prnfb.service.VariablesContext.VariablesContextBuilder;
+import se.bjurr.prnfb.settings.PrnfbNotification;
+import se.bjurr.prnfb.settings.ValidationException;
+
+/**
+ * Renders typical URL, JSON body and header templates of a notification. Every operation renders
+ * with a new {@link PrnfbRenderer}, and {@link PrnfbVariableCache}, as when an event is handled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+  private static final String URL =
+      "http://ci.example.com/job/build?branch=${PULL_REQUEST_FROM_BRANCH}"
+          + "&hash=${PULL_REQUEST_FROM_HASH}&id=${PULL_REQUEST_ID}"
+          + "&title=${PULL_REQUEST_TITLE}&author=${PULL_REQUEST_AUTHOR_EMAIL}";
+  private static final String JSON_BODY =
+      "{\n"
+          + "  \"id\": \"${PULL_REQUEST_ID}\",\n"
+          + "  \"action\": \"${PULL_REQUEST_ACTION}\",\n"
+          + "  \"title\": \"${PULL_REQUEST_TITLE}\",\n"
+          + "  \"description\": \"${PULL_REQUEST_DESCRIPTION}\",\n"
+          + "  \"url\": \"${PULL_REQUEST_URL}\",\n"
+          + "  \"from\": {\"branch\": \"${PULL_REQUEST_FROM_BRANCH}\","
+          + " \"hash\": \"${PULL_REQUEST_FROM_HASH}\"},\n"
+          + "  \"to\": {\"branch\": \"${PULL_REQUEST_TO_BRANCH}\","
+          + " \"hash\": \"${PULL_REQUEST_TO_HASH}\"},\n"
+          + "  \"project\": \"${PULL_REQUEST_TO_REPO_PROJECT_KEY}\",\n"
+          + "  \"repository\": \"${PULL_REQUEST_TO_REPO_SLUG}\",\n"
+          + "  \"author\": \"${PULL_REQUEST_AUTHOR_DISPLAY_NAME}\",\n"
+          + "  \"user\": \"${PULL_REQUEST_USER_NAME}\"\n"
+          + "}";
+  private static final String HEADER = "Bearer ${PULL_REQUEST_TO_REPO_SLUG}-${PULL_REQUEST_ID}";
+
+  private PrnfbRendererFactory factory;
+  private PrnfbNotification notification;
+  private PullRequest pullRequest;
+  private ApplicationUser user;
+
+  @Setup
+  public void setup() throws ValidationException {
+    final ApplicationPropertiesService propertiesService = mock(ApplicationPropertiesService.class);
+    when(propertiesService.getBaseUrl()).thenReturn(URI.create("http://bitbucket.example.com"));
+    this.factory =
+        new PrnfbRendererFactory(mock(RepositoryService.class), propertiesService, null, null);
+    this.notification =
+        prnfbNotificationBuilder() //
+            .withUrl(URL) //
+            .withPostContent(JSON_BODY) //
+            .withTrigger(OPENED) //
+            .build();
+    this.pullRequest = mockedPullRequest();
+    this.user = mockedUser("admin");
+  }
+
+  @Benchmark
+  public String url() {
+    return render(URL, ENCODE_FOR.URL);
+  }
+
+  @Benchmark
+  public String jsonBody() {
+    return render(JSON_BODY, ENCODE_FOR.JSON);
+  }
+
+  @Benchmark
+  public String header() {
+    return render(HEADER, ENCODE_FOR.NONE);
+  }
+
+  private String render(final String template, final ENCODE_FOR encodeFor) {
+    return this.factory
+        .create(
+            this.pullRequest,
+            OPENED,
+            this.notification,
+            new VariablesContextBuilder().build(),
+            this.user) //
+        .render(template, encodeFor, null, false);
+  }
+
+  public static void main(final String[] args) throws RunnerException {
+    new Runner(
+            new OptionsBuilder() //
+                .include(RenderBenchmark.class.getSimpleName()) //
+                .addProfiler(GCProfiler.class) //
+                .build()) //
+        .run();
+  }
+}
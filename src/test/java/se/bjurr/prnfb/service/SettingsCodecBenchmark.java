@@ -0,0 +1,162 @@
+package se.bjurr.prnfb.service;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static se.bjurr.prnfb.listener.PrnfbPullRequestAction.MERGED;
+import static se.bjurr.prnfb.listener.PrnfbPullRequestAction.OPENED;
+import static se.bjurr.prnfb.listener.PrnfbPullRequestAction.RESCOPED_FROM;
+import static se.bjurr.prnfb.settings.PrnfbNotificationBuilder.prnfbNotificationBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import java.io.IOException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import se.bjurr.prnfb.http.UrlInvoker.HTTP_METHOD;
+import se.bjurr.prnfb.settings.PrnfbNotification;
+import se.bjurr.prnfb.settings.ValidationException;
+
+/**
+ * Compares storing and reading one notification with each {@link SettingsCodec}, as each
+ * notification and button is stored in a key of its own. The stored sizes are printed by {@link
+ * #main(String[])} before the benchmarks run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SettingsCodecBenchmark {
+  private static final String JSON_BODY =
+      "{\n"
+          + "  \"id\": \"${PULL_REQUEST_ID}\",\n"
+          + "  \"action\": \"${PULL_REQUEST_ACTION}\",\n"
+          + "  \"title\": \"${PULL_REQUEST_TITLE}\",\n"
+          + "  \"url\": \"${PULL_REQUEST_URL}\",\n"
+          + "  \"from\": {\"branch\": \"${PULL_REQUEST_FROM_BRANCH}\","
+          + " \"hash\": \"${PULL_REQUEST_FROM_HASH}\"},\n"
+          + "  \"to\": {\"branch\": \"${PULL_REQUEST_TO_BRANCH}\","
+          + " \"hash\": \"${PULL_REQUEST_TO_HASH}\"},\n"
+          + "  \"project\": \"${PULL_REQUEST_TO_REPO_PROJECT_KEY}\",\n"
+          + "  \"repository\": \"${PULL_REQUEST_TO_REPO_SLUG}\",\n"
+          + "  \"author\": \"${PULL_REQUEST_AUTHOR_DISPLAY_NAME}\"\n"
+          + "}";
+
+  private static final ObjectMapper objectMapper = new ObjectMapper();
+
+  static {
+    objectMapper.registerModule(new Jdk8Module());
+  }
+
+  /** A notification with only a URL, one with a JSON body and headers, and one with a big body. */
+  @Param({"minimal", "typical", "large"})
+  public String notification;
+
+  private String gzip;
+  private String json;
+
+  @Setup
+  public void setup() throws ValidationException, IOException {
+    this.json = objectMapper.writeValueAsString(notificationOf(this.notification));
+    this.gzip = SettingsCodec.GZIP.encode(this.json);
+  }
+
+  @Benchmark
+  public String encodeGzip() {
+    return SettingsCodec.GZIP.encode(this.json);
+  }
+
+  @Benchmark
+  public String encodeJson() {
+    return SettingsCodec.JSON.encode(this.json);
+  }
+
+  @Benchmark
+  public PrnfbNotification readGzip() throws IOException {
+    return SettingsCodec.read(objectMapper, this.gzip, PrnfbNotification.class);
+  }
+
+  @Benchmark
+  public PrnfbNotification readJson() throws IOException {
+    return SettingsCodec.read(objectMapper, this.json, PrnfbNotification.class);
+  }
+
+  static PrnfbNotification notificationOf(String kind) throws ValidationException {
+    switch (kind) {
+      case "minimal":
+        return prnfbNotificationBuilder() //
+            .withUrl("http://ci.example.com/job/build?id=${PULL_REQUEST_ID}") //
+            .withTrigger(OPENED) //
+            .build();
+      case "typical":
+        return prnfbNotificationBuilder() //
+            .withName("Build pull request") //
+            .withProjectKey("PROJ") //
+            .withRepositorySlug("repo") //
+            .withUrl("http://ci.example.com/job/build") //
+            .withMethod(HTTP_METHOD.POST) //
+            .withHeader("Content-Type", "application/json") //
+            .withHeader("Authorization", "Bearer abcdef0123456789") //
+            .withPostContent(JSON_BODY) //
+            .withTrigger(OPENED) //
+            .withTrigger(RESCOPED_FROM) //
+            .build();
+      case "large":
+        final StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+          body.append(JSON_BODY).append('\n');
+        }
+        return prnfbNotificationBuilder() //
+            .withName("Report pull request") //
+            .withUrl("http://reports.example.com/pull-requests") //
+            .withMethod(HTTP_METHOD.POST) //
+            .withHeader("Content-Type", "application/json") //
+            .withPostContent(body.toString()) //
+            .withFilterString("${PULL_REQUEST_TO_BRANCH}") //
+            .withFilterRegexp("^(master|release/.*)$") //
+            .withTrigger(OPENED) //
+            .withTrigger(MERGED) //
+            .build();
+      default:
+        throw new IllegalArgumentException(kind);
+    }
+  }
+
+  public static void main(final String[] args) throws Exception {
+    for (final String kind : new String[] {"minimal", "typical", "large"}) {
+      final String json = objectMapper.writeValueAsString(notificationOf(kind));
+      System.out.println(
+          kind
+              + ": json "
+              + json.length()
+              + " chars, compressed "
+              + SettingsCodec.compress(json).length()
+              + " chars, stored with gzip codec "
+              + SettingsCodec.GZIP.encode(json).length()
+              + " chars");
+    }
+    run();
+  }
+
+  private static void run() throws RunnerException {
+    new Runner(
+            new OptionsBuilder() //
+                .include(SettingsCodecBenchmark.class.getSimpleName()) //
+                .addProfiler(GCProfiler.class) //
+                .build()) //
+        .run();
+  }
+}
@@ -0,0 +1,61 @@
+package se.bjurr.prnfb.service;
+
+import static com.google.common.base.Strings.repeat;
+import static org.assertj.core.api.Assertions.assertThat;
+import static se.bjurr.prnfb.service.SettingsCodec.GZIP;
+import static se.bjurr.prnfb.service.SettingsCodec.GZIP_MARKER;
+import static se.bjurr.prnfb.service.SettingsCodec.JSON;
+import static se.bjurr.prnfb.settings.PrnfbSettingsDataBuilder.prnfbSettingsDataBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import se.bjurr.prnfb.presentation.dto.HeaderDTO;
+
+public class SettingsCodecTest {
+  private static final String DATA = "{\"name\":\"X-Header\",\"value\":\"${PULL_REQUEST_ID}\"}";
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @Test
+  public void testThatJsonIsStoredAsIs() throws Exception {
+    assertThat(JSON.encode(DATA)) //
+        .isEqualTo(DATA);
+    assertThat(SettingsCodec.read(this.objectMapper, DATA, HeaderDTO.class).getName()) //
+        .isEqualTo("X-Header");
+  }
+
+  @Test
+  public void testThatCompressedJsonCanBeRead() throws Exception {
+    final String data = DATA.replace("${PULL_REQUEST_ID}", repeat("${PULL_REQUEST_ID}", 20));
+    final String stored = GZIP.encode(data);
+
+    assertThat(stored) //
+        .startsWith(GZIP_MARKER) //
+        .doesNotContain("X-Header");
+    assertThat(stored.length()) //
+        .isLessThan(data.length());
+    assertThat(SettingsCodec.read(this.objectMapper, stored, HeaderDTO.class).getValue()) //
+        .isEqualTo(repeat("${PULL_REQUEST_ID}", 20));
+  }
+
+  @Test
+  public void testThatJsonIsNotCompressedIfThatIsNotSmaller() throws Exception {
+    assertThat(SettingsCodec.compress(DATA).length()) //
+        .isGreaterThanOrEqualTo(DATA.length());
+    final String stored = GZIP.encode(DATA);
+
+    assertThat(stored) //
+        .isEqualTo(DATA);
+    assertThat(SettingsCodec.read(this.objectMapper, stored, HeaderDTO.class).getName()) //
+        .isEqualTo("X-Header");
+  }
+
+  @Test
+  public void testThatCodecIsChosenInGlobalSettings() {
+    assertThat(SettingsCodec.of(null)) //
+        .isEqualTo(JSON);
+    assertThat(SettingsCodec.of(prnfbSettingsDataBuilder().build())) //
+        .isEqualTo(JSON);
+    assertThat(SettingsCodec.of(prnfbSettingsDataBuilder().setSettingsCompressed(true).build())) //
+        .isEqualTo(GZIP);
+  }
+}
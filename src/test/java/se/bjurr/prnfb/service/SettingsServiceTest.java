@@ -1,11 +1,21 @@
 package se.bjurr.prnfb.service;
 
+import static com.google.common.collect.Lists.newArrayList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 import static se.bjurr.prnfb.listener.PrnfbPullRequestAction.APPROVED;
 import static se.bjurr.prnfb.service.PrnfbRenderer.ENCODE_FOR.NONE;
+import static se.bjurr.prnfb.service.PrnfbVariable.PULL_REQUEST_COMMENT_TEXT;
+import static se.bjurr.prnfb.service.PrnfbVariable.PULL_REQUEST_FROM_BRANCH;
+import static se.bjurr.prnfb.service.PrnfbVariable.PULL_REQUEST_TITLE;
+import static se.bjurr.prnfb.service.PrnfbVariable.PULL_REQUEST_TO_HTTP_CLONE_URL;
+import static se.bjurr.prnfb.service.PrnfbVariable.VARIABLE_REGEX_MATCH;
+import static se.bjurr.prnfb.service.SettingsService.SETTINGS_BUTTON_KEY;
+import static se.bjurr.prnfb.service.SettingsService.SETTINGS_MANIFEST_KEY;
+import static se.bjurr.prnfb.service.SettingsService.SETTINGS_NOTIFICATION_KEY;
 import static se.bjurr.prnfb.service.SettingsService.SETTINGS_STORAGE_KEY;
+import static se.bjurr.prnfb.service.SettingsService.SETTINGS_VERSION_KEY;
 import static se.bjurr.prnfb.settings.PrnfbNotificationBuilder.prnfbNotificationBuilder;
 import static se.bjurr.prnfb.settings.PrnfbSettingsBuilder.prnfbSettingsBuilder;
 import static se.bjurr.prnfb.settings.PrnfbSettingsDataBuilder.prnfbSettingsDataBuilder;
@@ -22,14 +32,23 @@ import com.atlassian.sal.api.pluginsettings.PluginSettingsFactory;
 import com.atlassian.sal.api.transaction.TransactionCallback;
 import com.atlassian.sal.api.transaction.TransactionTemplate;
 import com.google.gson.Gson;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
+import se.bjurr.prnfb.http.HttpResponse;
 import se.bjurr.prnfb.presentation.dto.ON_OR_OFF;
 import se.bjurr.prnfb.settings.PrnfbButton;
 import se.bjurr.prnfb.settings.PrnfbNotification;
 import se.bjurr.prnfb.settings.PrnfbSettings;
+import se.bjurr.prnfb.settings.PrnfbSettingsData;
 import se.bjurr.prnfb.settings.ValidationException;
 
 public class SettingsServiceTest {
@@ -61,6 +80,7 @@ public class SettingsServiceTest {
             return action.doInTransaction();
           }
         };
+    SettingsService.snapshot = null;
     this.sut =
         new SettingsService(
             this.pluginSettingsFactory, this.transactionTemplate, this.securityService);
@@ -227,6 +247,46 @@ public class SettingsServiceTest {
         .isEqualTo(this.notification1);
   }
 
+  @Test
+  public void testThatUsedVariablesAreFoundWhenNotificationIsSaved() throws ValidationException {
+    final PrnfbNotification notification =
+        prnfbNotificationBuilder() //
+            .withUrl("http://hej.com/?branch=${PULL_REQUEST_FROM_BRANCH}") //
+            .withPostContent("${VARIABLE_REGEX_MATCH} ${NOT_A_VARIABLE}") //
+            .withVariableName("PULL_REQUEST_TITLE") //
+            .withHeader("name", "${PULL_REQUEST_COMMENT_TEXT}") //
+            .withInjectionUrl("http://hej.com/${PULL_REQUEST_TO_HTTP_CLONE_URL}") //
+            .withTrigger(APPROVED) //
+            .build();
+
+    this.sut.addOrUpdateNotification(notification);
+
+    assertThat(SettingsService.findUsedVariables(this.sut.getNotifications().get(0))) //
+        .containsOnly(
+            PULL_REQUEST_FROM_BRANCH,
+            VARIABLE_REGEX_MATCH,
+            PULL_REQUEST_TITLE,
+            PULL_REQUEST_COMMENT_TEXT,
+            PULL_REQUEST_TO_HTTP_CLONE_URL);
+    assertThat(
+            this.pluginSettings
+                .getPluginSettingsMap()
+                .get(SETTINGS_NOTIFICATION_KEY + notification.getUuid())) //
+        .doesNotContain("usedVariables");
+  }
+
+  @Test
+  public void testThatAllVariablesAreUsedWithEverythingUrl() throws ValidationException {
+    final PrnfbNotification notification =
+        prnfbNotificationBuilder() //
+            .withUrl("http://hej.com/?${EVERYTHING_URL}") //
+            .withTrigger(APPROVED) //
+            .build();
+
+    assertThat(SettingsService.findUsedVariables(notification)) //
+        .containsOnly(PrnfbVariable.values());
+  }
+
   @Test
   public void testThatPluginSettingsDataCanBeStored() {
     final PrnfbSettings oldSettings =
@@ -244,7 +304,7 @@ public class SettingsServiceTest {
     final String oldSettingsString = new Gson().toJson(oldSettings);
 
     this.pluginSettings.getPluginSettingsMap().put(SETTINGS_STORAGE_KEY, oldSettingsString);
-    SettingsService.nextCacheExpiry = System.currentTimeMillis() - 12435L;
+    SettingsService.snapshot = null;
 
     final PrnfbSettings newSettings =
         prnfbSettingsBuilder() //
@@ -261,9 +321,13 @@ public class SettingsServiceTest {
 
     this.sut.setPrnfbSettingsData(newSettings.getPrnfbSettingsData());
 
-    final String expectedSettingsString = new Gson().toJson(newSettings);
-    assertThat(this.pluginSettings.getPluginSettingsMap().get(SETTINGS_STORAGE_KEY)) //
-        .isEqualTo(expectedSettingsString);
+    final String expectedManifestString =
+        new Gson().toJson(new SettingsManifest(newSettings.getPrnfbSettingsData()));
+    assertThat(this.pluginSettings.getPluginSettingsMap().get(SETTINGS_MANIFEST_KEY)) //
+        .isEqualTo(expectedManifestString);
+    SettingsService.snapshot = null;
+    assertThat(this.sut.getPrnfbSettings()) //
+        .isEqualTo(newSettings);
   }
 
   @Test
@@ -282,7 +346,7 @@ public class SettingsServiceTest {
             .build();
     final String oldSettingsString = new Gson().toJson(oldSettings);
     this.pluginSettings.getPluginSettingsMap().put(SETTINGS_STORAGE_KEY, oldSettingsString);
-    SettingsService.nextCacheExpiry = System.currentTimeMillis() - 12435L;
+    SettingsService.snapshot = null;
 
     final PrnfbSettings actual = this.sut.getPrnfbSettings();
 
@@ -301,13 +365,367 @@ public class SettingsServiceTest {
         .isEqualTo(oldSettings.getPrnfbSettingsData().hashCode());
   }
 
+  @Test
+  public void testThatSettingsStoredByAnotherNodeAreRead() throws ValidationException {
+    this.sut.addOrUpdateNotification(this.notification1);
+    final SettingsManifest otherNodeManifest =
+        new SettingsManifest(this.sut.getPrnfbSettingsData());
+
+    this.pluginSettings
+        .getPluginSettingsMap()
+        .put(SETTINGS_MANIFEST_KEY, new Gson().toJson(otherNodeManifest));
+    this.pluginSettings.getPluginSettingsMap().put(SETTINGS_VERSION_KEY, "other node");
+    SettingsService.nextVersionCheck = 0;
+
+    assertThat(this.sut.getNotifications()) //
+        .isEmpty();
+  }
+
+  @Test
+  public void testThatSettingsAreNotReadAgainWhenVersionIsUnchanged() throws ValidationException {
+    this.sut.addOrUpdateNotification(this.notification1);
+
+    this.pluginSettings.getPluginSettingsMap().put(SETTINGS_MANIFEST_KEY, "not read");
+    SettingsService.nextVersionCheck = 0;
+
+    assertThat(this.sut.getNotifications()) //
+        .containsExactly(this.notification1);
+  }
+
+  @Test
+  public void testThatStoringSameSettingsKeepsVersion() throws ValidationException {
+    this.sut.addOrUpdateNotification(this.notification1);
+    final String version = this.pluginSettings.getPluginSettingsMap().get(SETTINGS_VERSION_KEY);
+
+    this.sut.setPrnfbSettingsData(this.sut.getPrnfbSettingsData());
+
+    assertThat(this.pluginSettings.getPluginSettingsMap().get(SETTINGS_VERSION_KEY)) //
+        .isEqualTo(version) //
+        .isEqualTo(
+            SettingsService.versionOf(
+                this.pluginSettings.getPluginSettingsMap().get(SETTINGS_MANIFEST_KEY)));
+  }
+
+  @Test
+  public void testThatLegacySettingsAreMigrated() throws ValidationException {
+    final PrnfbButton button =
+        new PrnfbButton(
+            null, "title", EVERYONE, ON_OR_OFF.off, "p1", "r1", "confirmationText", null, null);
+    final PrnfbSettings legacySettings =
+        prnfbSettingsBuilder() //
+            .withNotification(this.notification1) //
+            .withButton(button) //
+            .build();
+    this.pluginSettings
+        .getPluginSettingsMap()
+        .put(SETTINGS_STORAGE_KEY, new Gson().toJson(legacySettings));
+    SettingsService.snapshot = null;
+
+    assertThat(this.sut.getPrnfbSettings()) //
+        .isEqualTo(legacySettings);
+    assertThat(this.pluginSettings.getPluginSettingsMap().keySet()) //
+        .contains(
+            SETTINGS_STORAGE_KEY,
+            SETTINGS_MANIFEST_KEY,
+            SETTINGS_NOTIFICATION_KEY + this.notification1.getUuid(),
+            SETTINGS_BUTTON_KEY + button.getUuid());
+
+    SettingsService.snapshot = null;
+    assertThat(this.sut.getPrnfbSettings()) //
+        .isEqualTo(legacySettings);
+  }
+
+  @Test
+  public void testThatLegacySettingsAreKeptButNotReadAfterMigration() throws ValidationException {
+    final PrnfbSettings legacySettings =
+        prnfbSettingsBuilder() //
+            .withNotification(this.notification1) //
+            .build();
+    final String legacy = new Gson().toJson(legacySettings);
+    this.pluginSettings.getPluginSettingsMap().put(SETTINGS_STORAGE_KEY, legacy);
+    SettingsService.snapshot = null;
+    this.sut.getPrnfbSettings();
+
+    this.sut.deleteNotification(this.notification1.getUuid());
+    SettingsService.snapshot = null;
+
+    assertThat(this.sut.getNotifications()) //
+        .isEmpty();
+    assertThat(this.pluginSettings.getPluginSettingsMap().get(SETTINGS_STORAGE_KEY)) //
+        .isEqualTo(legacy);
+  }
+
+  @Test
+  public void testThatOnlyTheChangedNotificationIsStored() throws ValidationException {
+    final PrnfbNotification notification2 =
+        prnfbNotificationBuilder() //
+            .withUrl("http://hej.com/") //
+            .withTrigger(APPROVED) //
+            .build();
+    this.sut.addOrUpdateNotification(this.notification1);
+    this.sut.addOrUpdateNotification(notification2);
+    final Map<String, String> before = new HashMap<>(this.pluginSettings.getPluginSettingsMap());
+
+    final PrnfbNotification updated =
+        prnfbNotificationBuilder(notification2) //
+            .withUrl("http://hej2.com/") //
+            .build();
+    this.sut.addOrUpdateNotification(updated);
+
+    final Set<String> changed = new HashSet<>();
+    for (final Map.Entry<String, String> entry :
+        this.pluginSettings.getPluginSettingsMap().entrySet()) {
+      if (!entry.getValue().equals(before.get(entry.getKey()))) {
+        changed.add(entry.getKey());
+      }
+    }
+    assertThat(changed) //
+        .containsOnly(
+            SETTINGS_MANIFEST_KEY,
+            SETTINGS_VERSION_KEY,
+            SETTINGS_NOTIFICATION_KEY + notification2.getUuid());
+  }
+
+  @Test
+  public void testThatEachChangedKeyIsStoredOnce() throws ValidationException {
+    this.sut.addOrUpdateNotification(this.notification1);
+    final int puts = this.pluginSettings.getPuts();
+
+    this.sut.addOrUpdateNotification(
+        prnfbNotificationBuilder(this.notification1) //
+            .withUrl("http://hej2.com/") //
+            .build());
+
+    assertThat(this.pluginSettings.getPuts()) //
+        .isEqualTo(puts + 3);
+  }
+
+  @Test
+  public void testThatNotificationsCanBeStoredTogether() throws ValidationException {
+    final PrnfbNotification notification2 =
+        prnfbNotificationBuilder() //
+            .withUrl("http://hej.com/") //
+            .withTrigger(APPROVED) //
+            .build();
+    this.sut.addOrUpdateNotification(this.notification1);
+    final int puts = this.pluginSettings.getPuts();
+
+    this.sut.addOrUpdateNotifications(
+        newArrayList(
+            prnfbNotificationBuilder(this.notification1) //
+                .withUrl("http://hej2.com/") //
+                .build(),
+            notification2));
+
+    assertThat(this.pluginSettings.getPuts()) //
+        .isEqualTo(puts + 4);
+    assertThat(this.sut.getNotifications()) //
+        .hasSize(2);
+    assertThat(this.sut.getNotifications().get(0).getUrl()) //
+        .isEqualTo("http://hej2.com/");
+    SettingsService.snapshot = null;
+    assertThat(this.sut.getNotifications().get(1)) //
+        .isEqualTo(notification2);
+  }
+
+  @Test
+  public void testThatSettingsCanBeStoredCompressed() throws ValidationException {
+    this.sut.addOrUpdateNotification(this.notification1);
+    this.sut.setPrnfbSettingsData(
+        prnfbSettingsDataBuilder() //
+            .setAdminRestriction(ADMIN) //
+            .setSettingsCompressed(true) //
+            .build());
+    final PrnfbNotification notification2 =
+        prnfbNotificationBuilder() //
+            .withUrl("http://hej.com/") //
+            .withTrigger(APPROVED) //
+            .build();
+    this.sut.addOrUpdateNotification(notification2);
+
+    assertThat(
+            this.pluginSettings
+                .getPluginSettingsMap()
+                .get(SETTINGS_NOTIFICATION_KEY + this.notification1.getUuid())) //
+        .startsWith(SettingsCodec.GZIP_MARKER);
+    assertThat(this.pluginSettings.getPluginSettingsMap().get(SETTINGS_MANIFEST_KEY)) //
+        .startsWith(SettingsCodec.GZIP_MARKER);
+    SettingsService.snapshot = null;
+    assertThat(this.sut.getNotifications()) //
+        .containsExactly(this.notification1, notification2);
+    assertThat(this.sut.getPrnfbSettingsData().isSettingsCompressed()) //
+        .isTrue();
+  }
+
+  @Test
+  public void testThatUpdatesAreNotReadBack() throws ValidationException {
+    final PrnfbNotification notification2 =
+        prnfbNotificationBuilder() //
+            .withUrl("http://hej.com/") //
+            .withTrigger(APPROVED) //
+            .build();
+    this.sut.addOrUpdateNotification(this.notification1);
+    this.pluginSettings.getPluginSettingsMap().put(SETTINGS_MANIFEST_KEY, "not read");
+    this.pluginSettings
+        .getPluginSettingsMap()
+        .put(SETTINGS_NOTIFICATION_KEY + this.notification1.getUuid(), "not read");
+
+    this.sut.addOrUpdateNotification(notification2);
+
+    assertThat(this.sut.getNotifications()) //
+        .containsExactly(this.notification1, notification2);
+    assertThat(this.pluginSettings.getPluginSettingsMap().get(SETTINGS_MANIFEST_KEY)) //
+        .contains(notification2.getUuid().toString());
+  }
+
+  @Test
+  public void testThatOnlyChangedNotificationsAreReadAgain() throws ValidationException {
+    final PrnfbNotification notification2 =
+        prnfbNotificationBuilder() //
+            .withUrl("http://hej.com/") //
+            .withTrigger(APPROVED) //
+            .build();
+    this.sut.addOrUpdateNotification(this.notification1);
+    this.sut.addOrUpdateNotification(notification2);
+
+    this.pluginSettings
+        .getPluginSettingsMap()
+        .put(SETTINGS_NOTIFICATION_KEY + this.notification1.getUuid(), "not read");
+    this.pluginSettings.getPluginSettingsMap().put(SETTINGS_VERSION_KEY, "other node");
+    SettingsService.nextVersionCheck = 0;
+
+    assertThat(this.sut.getNotifications()) //
+        .containsExactly(this.notification1, notification2);
+  }
+
+  @Test
+  public void testThatReloadsAreCounted() throws ValidationException {
+    this.sut.addOrUpdateNotification(this.notification1);
+    SettingsService.snapshot = null;
+    final long reloads = SettingsService.getReloads();
+    final long unchangedVersions = SettingsService.getUnchangedVersions();
+
+    this.sut.getPrnfbSettings();
+    SettingsService.nextVersionCheck = 0;
+    this.sut.getPrnfbSettings();
+
+    assertThat(SettingsService.getReloads()) //
+        .isEqualTo(reloads + 1);
+    assertThat(SettingsService.getUnchangedVersions()) //
+        .isEqualTo(unchangedVersions + 1);
+  }
+
+  @Test
+  public void testThatVersionIsReadAtMostOncePerInterval() throws ValidationException {
+    this.sut.addOrUpdateNotification(this.notification1);
+    this.sut.getPrnfbSettings();
+    final long reloads = SettingsService.getReloads();
+    final long unchangedVersions = SettingsService.getUnchangedVersions();
+
+    this.pluginSettings.getPluginSettingsMap().put(SETTINGS_VERSION_KEY, "other node");
+    this.sut.getPrnfbSettings();
+    this.sut.getNotifications();
+
+    assertThat(SettingsService.getReloads()) //
+        .isEqualTo(reloads);
+    assertThat(SettingsService.getUnchangedVersions()) //
+        .isEqualTo(unchangedVersions);
+  }
+
+  @Test
+  public void testThatChangesReadTheVersionStoredByAnotherNode() throws ValidationException {
+    final PrnfbNotification notification2 =
+        prnfbNotificationBuilder() //
+            .withUrl("http://hej.com/") //
+            .withTrigger(APPROVED) //
+            .build();
+    final PrnfbButton button =
+        new PrnfbButton(
+            null, "title", EVERYONE, ON_OR_OFF.off, "p1", "r1", "confirmationText", null, null);
+    this.sut.addOrUpdateNotification(this.notification1);
+    final SettingsSnapshot beforeOtherNode = SettingsService.snapshot;
+    // Stored as if by another node, since the version was read on this node
+    this.sut.addOrUpdateNotification(notification2);
+    SettingsService.snapshot = beforeOtherNode;
+    SettingsService.nextVersionCheck = Long.MAX_VALUE;
+
+    this.sut.addOrUpdateButton(button);
+
+    SettingsService.snapshot = null;
+    assertThat(this.sut.getNotifications()) //
+        .containsExactly(this.notification1, notification2);
+    assertThat(this.sut.getButtons()) //
+        .containsExactly(button);
+  }
+
+  @Test
+  public void testThatInjectionUrlsAreInvalidatedWhenChangedByAnotherNode()
+      throws ValidationException {
+    this.sut.addOrUpdateNotification(this.notification1);
+    final SettingsSnapshot beforeOtherNode = SettingsService.snapshot;
+    // Stored as if by another node, since the version was read on this node
+    this.sut.addOrUpdateNotification(
+        prnfbNotificationBuilder(this.notification1) //
+            .withUrl("http://changed.com/") //
+            .build());
+    SettingsService.snapshot = beforeOtherNode;
+    final AtomicInteger fetches = new AtomicInteger();
+    final Supplier<HttpResponse> fetcher =
+        () -> {
+          fetches.incrementAndGet();
+          return new HttpResponse(URI.create("http://injection/"), 200, "token");
+        };
+    InjectionUrlCache.get(this.notification1.getUuid(), "http://injection/", 60, fetcher);
+
+    SettingsService.nextVersionCheck = 0;
+    this.sut.getNotifications();
+    InjectionUrlCache.get(this.notification1.getUuid(), "http://injection/", 60, fetcher);
+
+    assertThat(fetches.get()) //
+        .isEqualTo(2);
+  }
+
   @Test
   public void testThatSettingsCanBeReadWhenNoneAreSaved() {
     this.pluginSettings.getPluginSettingsMap().put(SETTINGS_STORAGE_KEY, null);
-    SettingsService.nextCacheExpiry = System.currentTimeMillis() - 12435L;
+    SettingsService.snapshot = null;
 
     final PrnfbSettings actual = this.sut.getPrnfbSettings();
     assertThat(actual) //
         .isNotNull();
   }
+
+  @Test
+  public void testThatOnlyTransportSettingsReplaceHttpClients() {
+    final PrnfbSettingsData before =
+        prnfbSettingsDataBuilder() //
+            .setKeyStore("/keystore.jks") //
+            .setKeyStoreType("JKS") //
+            .build();
+
+    assertThat(SettingsService.isTransportChanged(null, before)) //
+        .isTrue();
+    assertThat(
+            SettingsService.isTransportChanged(
+                before,
+                prnfbSettingsDataBuilder(before) //
+                    .setAdminRestriction(EVERYONE) //
+                    .setFlightRecorderEnabled(true) //
+                    .build())) //
+        .isFalse();
+    assertThat(
+            SettingsService.isTransportChanged(
+                before,
+                prnfbSettingsDataBuilder(before) //
+                    .setKeyStorePassword("secret") //
+                    .build())) //
+        .isTrue();
+    assertThat(
+            SettingsService.isTransportChanged(
+                before,
+                prnfbSettingsDataBuilder(before) //
+                    .setShouldAcceptAnyCertificate(true) //
+                    .build())) //
+        .isTrue();
+  }
 }
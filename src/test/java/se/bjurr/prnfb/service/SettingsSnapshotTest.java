@@ -0,0 +1,117 @@
+package se.bjurr.prnfb.service;
+
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static se.bjurr.prnfb.listener.PrnfbPullRequestAction.APPROVED;
+import static se.bjurr.prnfb.settings.PrnfbNotificationBuilder.prnfbNotificationBuilder;
+import static se.bjurr.prnfb.settings.PrnfbSettingsBuilder.prnfbSettingsBuilder;
+import static se.bjurr.prnfb.settings.USER_LEVEL.EVERYONE;
+
+import org.junit.Before;
+import org.junit.Test;
+import se.bjurr.prnfb.presentation.dto.ON_OR_OFF;
+import se.bjurr.prnfb.settings.PrnfbButton;
+import se.bjurr.prnfb.settings.PrnfbNotification;
+import se.bjurr.prnfb.settings.ValidationException;
+
+public class SettingsSnapshotTest {
+  private PrnfbButton button1;
+  private PrnfbButton button2;
+  private PrnfbNotification notification1;
+  private PrnfbNotification notification2;
+  private PrnfbNotification notification3;
+  private SettingsSnapshot sut;
+
+  @Before
+  public void before() throws ValidationException {
+    this.notification1 = notification("p1", "r1");
+    this.notification2 = notification("p1", null);
+    this.notification3 = notification("p2", "r1");
+    this.button1 =
+        new PrnfbButton(null, "b1", EVERYONE, ON_OR_OFF.off, "p1", "r1", null, null, null);
+    this.button2 =
+        new PrnfbButton(null, "b2", EVERYONE, ON_OR_OFF.off, null, null, null, null, null);
+    this.sut =
+        SettingsSnapshot.of(
+            prnfbSettingsBuilder() //
+                .withNotification(this.notification1) //
+                .withNotification(this.notification2) //
+                .withNotification(this.notification3) //
+                .withButton(this.button1) //
+                .withButton(this.button2) //
+                .build());
+  }
+
+  @Test
+  public void testThatNotificationsAndButtonsAreFoundByUuid() {
+    assertThat(this.sut.findNotification(this.notification2.getUuid()).get()) //
+        .isSameAs(this.notification2);
+    assertThat(this.sut.findButton(this.button2.getUuid()).get()) //
+        .isSameAs(this.button2);
+    assertThat(this.sut.findNotification(randomUUID()).isPresent()) //
+        .isFalse();
+  }
+
+  @Test
+  public void testThatNotificationsAreFoundByProject() {
+    assertThat(this.sut.getNotifications("p1")) //
+        .containsExactly(this.notification1, this.notification2);
+    assertThat(this.sut.getNotifications("p1", "r1")) //
+        .containsExactly(this.notification1);
+    assertThat(this.sut.getNotifications("p3")) //
+        .isEmpty();
+    assertThat(this.sut.getNotifications("p2", "r2")) //
+        .isEmpty();
+  }
+
+  @Test
+  public void testThatButtonsAreFoundByProject() {
+    assertThat(this.sut.getButtons("p1")) //
+        .containsExactly(this.button1);
+    assertThat(this.sut.getButtons("p1", "r1")) //
+        .containsExactly(this.button1);
+    assertThat(this.sut.getButtons("p2", "r1")) //
+        .isEmpty();
+  }
+
+  @Test
+  public void testThatCompiledNotificationsAreReused() throws ValidationException {
+    final PrnfbNotification changed =
+        prnfbNotificationBuilder(this.notification2) //
+            .withFilterString("changed") //
+            .build();
+    final SettingsSnapshot next =
+        SettingsSnapshot.of(
+            prnfbSettingsBuilder() //
+                .withNotification(this.notification1) //
+                .withNotification(changed) //
+                .build(),
+            null,
+            null,
+            this.sut);
+
+    assertThat(next.getCompiledNotifications().get(0)) //
+        .isSameAs(this.sut.getCompiledNotifications().get(0));
+    assertThat(next.getCompiledNotifications().get(1).getNotification()) //
+        .isSameAs(changed);
+    assertThat(next.findCompiledNotification(changed).get()) //
+        .isSameAs(next.getCompiledNotifications().get(1));
+    assertThat(next.findCompiledNotification(this.notification2).isPresent()) //
+        .isFalse();
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testThatIndexCanNotBeChanged() {
+    this.sut.getNotifications("p1").clear();
+  }
+
+  private PrnfbNotification notification(String projectKey, String repositorySlug)
+      throws ValidationException {
+    return prnfbNotificationBuilder() //
+        .withUrl("http://hej.com/") //
+        .withProjectKey(projectKey) //
+        .withRepositorySlug(repositorySlug) //
+        .withTrigger(APPROVED) //
+        .build();
+  }
+}
@@ -0,0 +1,40 @@
+package se.bjurr.prnfb.service;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URLEncoder;
+import org.junit.Test;
+
+public class UrlEscaperTest {
+
+  @Test
+  public void testThatStringIsEncodedLikeUrlEncoder() throws Exception {
+    for (final String value :
+        new String[] {
+          "",
+          "abc-_.*",
+          "a b+c&d=e/f?g#h%",
+          "\u00e5\u00e4\u00f6 \u20ac \ud83d\ude00",
+          "a\ud83db\ude00"
+        }) {
+      assertThat(UrlEscaper.urlEncode(value)) //
+          .isEqualTo(URLEncoder.encode(value, UTF_8.name()));
+    }
+  }
+
+  @Test
+  public void testThatStringIsAppended() {
+    final StringBuilder sb = new StringBuilder("a=");
+    UrlEscaper.urlEncode("b c", sb);
+    assertThat(sb.toString()) //
+        .isEqualTo("a=b+c");
+  }
+
+  @Test
+  public void testThatStringNotNeedingEncodingIsReturned() {
+    final String value = "abc123";
+    assertThat(UrlEscaper.urlEncode(value)) //
+        .isSameAs(value);
+  }
+}
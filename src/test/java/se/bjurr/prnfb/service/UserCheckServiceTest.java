@@ -11,6 +11,7 @@ import static se.bjurr.prnfb.settings.USER_LEVEL.SYSTEM_ADMIN;
 import com.atlassian.bitbucket.permission.Permission;
 import com.atlassian.bitbucket.permission.PermissionService;
 import com.atlassian.bitbucket.project.ProjectService;
+import com.atlassian.bitbucket.repository.Repository;
 import com.atlassian.bitbucket.repository.RepositoryService;
 import com.atlassian.bitbucket.user.EscalatedSecurityContext;
 import com.atlassian.bitbucket.user.SecurityService;
@@ -24,6 +25,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Matchers;
 import org.mockito.Mock;
+import se.bjurr.prnfb.settings.PrnfbButton;
 import se.bjurr.prnfb.settings.Restricted;
 
 public class UserCheckServiceTest {
@@ -56,6 +58,7 @@ public class UserCheckServiceTest {
 
   @Mock private PermissionService permissionService;
   @Mock private ProjectService projectService;
+  @Mock private Repository repository;
   @Mock private RepositoryService repositoryService;
   @Mock private SecurityService securityService;
   @Mock private SettingsService settingsService;
@@ -115,6 +118,23 @@ public class UserCheckServiceTest {
         .isTrue();
   }
 
+  @Test
+  public void testThatUserLevelCanBeChecked() {
+    when(this.user.getUserKey()).thenReturn(this.userKey);
+    when(this.userManager.getRemoteUser()).thenReturn(this.user);
+
+    assertThat(this.sut.getUserLevel(null, null)) //
+        .isEqualTo(EVERYONE);
+
+    when(this.userManager.isAdmin(this.userKey)).thenReturn(true);
+    assertThat(this.sut.getUserLevel(null, null)) //
+        .isEqualTo(ADMIN);
+
+    when(this.userManager.isSystemAdmin(this.userKey)).thenReturn(true);
+    assertThat(this.sut.getUserLevel(null, null)) //
+        .isEqualTo(SYSTEM_ADMIN);
+  }
+
   @Test
   public void testThatViewAllowedIsFalseWhenNotLoggedIn() {
     assertThat(this.sut.isViewAllowed()) //
@@ -128,4 +148,32 @@ public class UserCheckServiceTest {
     assertThat(this.sut.isViewAllowed()) //
         .isTrue();
   }
+
+  @Test
+  public void testThatJobIsOnlyAllowedForUserThatPressedTheButton() {
+    final ButtonPressJob job =
+        ButtonPressJob.start(mock(PrnfbButton.class), this.userKey, this.repository, 1);
+
+    assertThat(this.sut.isJobAllowed(job)) //
+        .isFalse();
+
+    when(this.user.getUserKey()).thenReturn(new UserKey("other"));
+    when(this.userManager.getRemoteUser()).thenReturn(this.user);
+    when(this.permissionService.hasRepositoryPermission(this.repository, Permission.REPO_READ)) //
+        .thenReturn(true);
+
+    assertThat(this.sut.isJobAllowed(job)) //
+        .isFalse();
+
+    when(this.user.getUserKey()).thenReturn(this.userKey);
+
+    assertThat(this.sut.isJobAllowed(job)) //
+        .isTrue();
+
+    when(this.permissionService.hasRepositoryPermission(this.repository, Permission.REPO_READ)) //
+        .thenReturn(false);
+
+    assertThat(this.sut.isJobAllowed(job)) //
+        .isFalse();
+  }
 }
@@ -0,0 +1,83 @@
+package se.bjurr.prnfb.settings;
+
+import static com.atlassian.bitbucket.pull.PullRequestState.DECLINED;
+import static com.atlassian.bitbucket.pull.PullRequestState.MERGED;
+import static org.assertj.core.api.Assertions.assertThat;
+import static se.bjurr.prnfb.listener.PrnfbPullRequestAction.APPROVED;
+import static se.bjurr.prnfb.listener.PrnfbPullRequestAction.OPENED;
+import static se.bjurr.prnfb.settings.PrnfbCompiledNotification.compile;
+import static se.bjurr.prnfb.settings.PrnfbNotificationBuilder.prnfbNotificationBuilder;
+
+import java.util.regex.PatternSyntaxException;
+import org.junit.Test;
+
+public class PrnfbCompiledNotificationTest {
+
+  @Test
+  public void testThatBasicAuthIsCreatedFromUserAndPassword() throws ValidationException {
+    final PrnfbCompiledNotification sut =
+        compile(
+            builder() //
+                .withUser("user") //
+                .withPassword("password") //
+                .build());
+
+    assertThat(sut.getBasicAuth().get()) //
+        .isEqualTo("Basic dXNlcjpwYXNzd29yZA==");
+    assertThat(compile(builder().build()).getBasicAuth().isPresent()) //
+        .isFalse();
+  }
+
+  @Test
+  public void testThatProxyIsCreatedIfServerAndPortIsSet() throws ValidationException {
+    final PrnfbCompiledNotification sut =
+        compile(
+            builder() //
+                .withProxyServer("proxy.com") //
+                .withProxyPort(8080) //
+                .withProxySchema("https") //
+                .build());
+
+    assertThat(sut.getProxy().get().toURI()) //
+        .isEqualTo("https://proxy.com:8080");
+    assertThat(compile(builder().withProxyServer("proxy.com").build()).getProxy().isPresent()) //
+        .isFalse();
+  }
+
+  @Test
+  public void testThatTriggersAreCompiled() throws ValidationException {
+    final PrnfbCompiledNotification sut =
+        compile(
+            builder() //
+                .withTrigger(APPROVED) //
+                .withTriggerIgnoreState(DECLINED) //
+                .withFilterRegexp("^feature") //
+                .withFilterString("${PULL_REQUEST_FROM_BRANCH}") //
+                .build());
+
+    assertThat(sut.getTriggers()) //
+        .containsOnly(OPENED, APPROVED);
+    assertThat(sut.getTriggerIgnoreStates()) //
+        .containsOnly(DECLINED) //
+        .doesNotContain(MERGED);
+    assertThat(sut.getFilterRegexp().get().matcher("feature/a").find()) //
+        .isTrue();
+  }
+
+  @Test(expected = PatternSyntaxException.class)
+  public void testThatInvalidRegexpIsReportedWhenUsed() throws ValidationException {
+    final PrnfbCompiledNotification sut =
+        compile(
+            builder() //
+                .withVariableRegex("(") //
+                .build());
+
+    sut.getVariableRegex();
+  }
+
+  private PrnfbNotificationBuilder builder() {
+    return prnfbNotificationBuilder() //
+        .withUrl("http://hej.com/") //
+        .withTrigger(OPENED);
+  }
+}
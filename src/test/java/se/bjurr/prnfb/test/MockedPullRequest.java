@@ -0,0 +1,86 @@
+package se.bjurr.prnfb.test;
+
+import static com.atlassian.bitbucket.pull.PullRequestState.OPEN;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import com.atlassian.bitbucket.project.Project;
+import com.atlassian.bitbucket.pull.PullRequest;
+import com.atlassian.bitbucket.pull.PullRequestParticipant;
+import com.atlassian.bitbucket.pull.PullRequestRef;
+import com.atlassian.bitbucket.repository.Repository;
+import com.atlassian.bitbucket.user.ApplicationUser;
+
+/**
+ * A pull request, with refs, repository, project and author, mocked with realistic values. The
+ * mocks are stub only, they do not record invocations, so that they can be used in benchmarks.
+ */
+public class MockedPullRequest {
+  public static final String AUTHOR_NAME = "tomas";
+  public static final String FROM_BRANCH = "feature/cache-clone-urls";
+  public static final String PROJECT_KEY = "PROJ";
+  public static final String REPOSITORY_SLUG = "pull-request-notifier";
+  public static final String TO_BRANCH = "master";
+
+  public static ApplicationUser mockedUser(final String name) {
+    final ApplicationUser user = stub(ApplicationUser.class);
+    when(user.getId()).thenReturn(name.hashCode());
+    when(user.getName()).thenReturn(name);
+    when(user.getSlug()).thenReturn(name);
+    when(user.getEmailAddress()).thenReturn(name + "@example.com");
+    when(user.getDisplayName()).thenReturn("User " + name);
+    return user;
+  }
+
+  public static PullRequest mockedPullRequest() {
+    final Project project = stub(Project.class);
+    when(project.getId()).thenReturn(1);
+    when(project.getKey()).thenReturn(PROJECT_KEY);
+    when(project.getName()).thenReturn("Project");
+
+    final Repository repository = stub(Repository.class);
+    when(repository.getId()).thenReturn(12);
+    when(repository.getSlug()).thenReturn(REPOSITORY_SLUG);
+    when(repository.getName()).thenReturn("Pull Request Notifier");
+    when(repository.getProject()).thenReturn(project);
+
+    final PullRequestParticipant author = stub(PullRequestParticipant.class);
+    final ApplicationUser authorUser = mockedUser(AUTHOR_NAME);
+    when(author.getUser()).thenReturn(authorUser);
+
+    final PullRequestRef fromRef = mockedRef(repository, FROM_BRANCH, "5b1e7c0d");
+    final PullRequestRef toRef = mockedRef(repository, TO_BRANCH, "9f3a21be");
+
+    final PullRequest pullRequest = stub(PullRequest.class);
+    when(pullRequest.getId()).thenReturn(123L);
+    when(pullRequest.getVersion()).thenReturn(2);
+    when(pullRequest.getTitle()).thenReturn("Cache clone URL:s per repository");
+    when(pullRequest.getDescription())
+        .thenReturn(
+            "Resolving clone URL:s is slow on large instances.\n"
+                + "They are now cached & invalidated when the repository is \"modified\".");
+    when(pullRequest.getState()).thenReturn(OPEN);
+    when(pullRequest.isOpen()).thenReturn(true);
+    when(pullRequest.getAuthor()).thenReturn(author);
+    when(pullRequest.getFromRef()).thenReturn(fromRef);
+    when(pullRequest.getToRef()).thenReturn(toRef);
+    return pullRequest;
+  }
+
+  private static PullRequestRef mockedRef(
+      final Repository repository, final String branch, final String hashPrefix) {
+    final PullRequestRef ref = stub(PullRequestRef.class);
+    when(ref.getId()).thenReturn("refs/heads/" + branch);
+    when(ref.getDisplayId()).thenReturn(branch);
+    when(ref.getLatestCommit()).thenReturn(hashPrefix + "e0c4a1b2c3d4e5f60718293a4b5c6d7e");
+    when(ref.getRepository()).thenReturn(repository);
+    return ref;
+  }
+
+  private static <T> T stub(final Class<T> clazz) {
+    return mock(clazz, withSettings().stubOnly());
+  }
+
+  private MockedPullRequest() {}
+}
@@ -4,6 +4,9 @@ import static com.atlassian.bitbucket.pull.PullRequestState.DECLINED;
 import static com.google.common.collect.Lists.newArrayList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static se.bjurr.prnfb.listener.PrnfbPullRequestAction.MERGED;
+import static se.bjurr.prnfb.service.PrnfbVariable.INJECTION_URL_VALUE;
+import static se.bjurr.prnfb.service.PrnfbVariable.PULL_REQUEST_TO_SSH_CLONE_URL;
+import static se.bjurr.prnfb.settings.PrnfbNotificationBuilder.prnfbNotificationBuilder;
 import static se.bjurr.prnfb.settings.PrnfbSettings.UNCHANGED;
 import static se.bjurr.prnfb.test.Podam.populatedInstanceOf;
 import static se.bjurr.prnfb.transformer.NotificationTransformer.toNotificationDto;
@@ -12,6 +15,7 @@ import static se.bjurr.prnfb.transformer.NotificationTransformer.toPrnfbNotifica
 import com.google.common.collect.Lists;
 import org.junit.Test;
 import se.bjurr.prnfb.presentation.dto.NotificationDTO;
+import se.bjurr.prnfb.settings.PrnfbNotification;
 import se.bjurr.prnfb.settings.ValidationException;
 
 public class NotificationTransformerTest {
@@ -25,6 +29,7 @@ public class NotificationTransformerTest {
     originalDto.setPassword(UNCHANGED);
     originalDto.setProxyUser(UNCHANGED);
     originalDto.setProxyPassword(UNCHANGED);
+    originalDto.setExpensiveVariables(newArrayList());
     NotificationDTO retransformedDto = toNotificationDto(toPrnfbNotification(originalDto));
 
     assertThat(retransformedDto) //
@@ -34,4 +39,17 @@ public class NotificationTransformerTest {
     assertThat(retransformedDto.hashCode()) //
         .isEqualTo(originalDto.hashCode());
   }
+
+  @Test
+  public void testThatExpensiveVariablesAreListed() throws ValidationException {
+    final PrnfbNotification notification =
+        prnfbNotificationBuilder() //
+            .withUrl("http://hej.com/?${PULL_REQUEST_TO_SSH_CLONE_URL}&${PULL_REQUEST_ID}") //
+            .withPostContent("${INJECTION_URL_VALUE}") //
+            .withTrigger(MERGED) //
+            .build();
+
+    assertThat(toNotificationDto(notification).getExpensiveVariables()) //
+        .containsExactly(INJECTION_URL_VALUE.name(), PULL_REQUEST_TO_SSH_CLONE_URL.name());
+  }
 }